@@ -0,0 +1,287 @@
+/**
+ * This file provides a columnar store for the air quality readings of every city in the record.
+ */
+package com.airquality.airquality;
+
+import com.airquality.constants.Constants;
+import com.airquality.exceptions.InvalidRecordException;
+
+import java.util.Arrays;
+
+/**
+ * Stores air quality readings column by column, with one primitive array per pollutant value and one byte array
+ * per pollutant category. Each row holds the reading of one city, and a deleted bit marks rows whose reading has
+ * been removed instead of storing "N/A" strings.
+ * <p>
+ * Rows are only ever appended, never changed, so a row id handed out by this class always refers to the same
+ * reading. Updating a city appends a new row and points the city at it.
+ */
+public class AirQualityColumns {
+
+    /** The value stored for an AQI value that is not available. */
+    public static final int NOT_AVAILABLE = -1;
+
+    // The category code stored for an AQI category that is not available
+    private static final byte NO_CATEGORY = 0;
+
+    // The number of rows the columns can hold before they are first grown
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Cached copy of Pollutant.values(), which allocates a new array on every call
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // One column of AQI values per pollutant, indexed by pollutant ordinal and then by row
+    private volatile int[][] values;
+
+    // One column of category codes per pollutant, indexed by pollutant ordinal and then by row
+    private volatile byte[][] categories;
+
+    // The deleted bit of each row, packed 64 rows to a word
+    private volatile long[] deleted;
+
+    // The number of rows appended so far
+    private volatile int size;
+
+    /**
+     * Constructs an empty AirQualityColumns store.
+     */
+    public AirQualityColumns() {
+        values = new int[POLLUTANTS.length][INITIAL_CAPACITY];
+        categories = new byte[POLLUTANTS.length][INITIAL_CAPACITY];
+        deleted = new long[INITIAL_CAPACITY >> 6];
+    }
+
+    /**
+     * Appends a row holding the given air quality reading. Values and categories of "N/A" are stored as not
+     * available, and a reading that is "N/A" throughout is stored as a deleted row.
+     *
+     * @param airQuality The AirQuality object to store.
+     * @return The id of the new row.
+     * @throws InvalidRecordException If a value is not an integer or a category is not a known AQI category.
+     */
+    public int append(AirQuality airQuality) throws InvalidRecordException {
+        int[] rowValues = new int[POLLUTANTS.length];
+        byte[] rowCategories = new byte[POLLUTANTS.length];
+        boolean available = false;
+
+        for (Pollutant pollutant : POLLUTANTS) {
+            rowValues[pollutant.ordinal()] = encodeValue(pollutant.getValue(airQuality));
+            rowCategories[pollutant.ordinal()] = encodeCategory(pollutant.getCategory(airQuality));
+            available |= rowValues[pollutant.ordinal()] != NOT_AVAILABLE || rowCategories[pollutant.ordinal()] != NO_CATEGORY;
+        }
+        return appendRow(rowValues, rowCategories, !available);
+    }
+
+    /**
+     * Appends a row holding an already decoded air quality reading. A reading with no value or category for any
+     * pollutant is stored as a deleted row.
+     *
+     * @param rowValues     The AQI value of each pollutant, indexed by pollutant ordinal, or NOT_AVAILABLE.
+     * @param rowCategories The AQI category of each pollutant, indexed by pollutant ordinal, or null.
+     * @return The id of the new row.
+     */
+    public synchronized int append(int[] rowValues, AqiCategory[] rowCategories) {
+        int row = reserveRow();
+        int[][] valueColumns = values;
+        byte[][] categoryColumns = categories;
+        boolean available = false;
+
+        for (int i = 0; i < POLLUTANTS.length; i++) {
+            byte code = rowCategories[i] == null ? NO_CATEGORY : (byte) (rowCategories[i].ordinal() + 1);
+            valueColumns[i][row] = rowValues[i];
+            categoryColumns[i][row] = code;
+            available |= rowValues[i] != NOT_AVAILABLE || code != NO_CATEGORY;
+        }
+        if (!available) {
+            deleted[row >> 6] |= 1L << row;
+        }
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Appends a deleted row.
+     *
+     * @return The id of the new row.
+     */
+    public int appendDeleted() {
+        int[] rowValues = new int[POLLUTANTS.length];
+        Arrays.fill(rowValues, NOT_AVAILABLE);
+        return appendRow(rowValues, new byte[POLLUTANTS.length], true);
+    }
+
+    /**
+     * Gets the number of rows in the store.
+     *
+     * @return The number of rows.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the AQI value of a pollutant in a row.
+     *
+     * @param pollutant The pollutant.
+     * @param row       The id of the row.
+     * @return The AQI value, or NOT_AVAILABLE if the row has no value for the pollutant.
+     */
+    public int getValue(Pollutant pollutant, int row) {
+        return values[pollutant.ordinal()][row];
+    }
+
+    /**
+     * Gets the AQI category of a pollutant in a row.
+     *
+     * @param pollutant The pollutant.
+     * @param row       The id of the row.
+     * @return The AqiCategory, or null if the row has no category for the pollutant.
+     */
+    public AqiCategory getCategory(Pollutant pollutant, int row) {
+        byte code = categories[pollutant.ordinal()][row];
+        return code == NO_CATEGORY ? null : AqiCategory.fromOrdinal(code - 1);
+    }
+
+    /**
+     * Checks whether a row is deleted.
+     *
+     * @param row The id of the row.
+     * @return True if the row is deleted, false otherwise.
+     */
+    public boolean isDeleted(int row) {
+        return (deleted[row >> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Creates an AirQuality object holding the reading of a row, with "N/A" for anything not available.
+     *
+     * @param row The id of the row.
+     * @return A new AirQuality object for the row.
+     */
+    public AirQuality toAirQuality(int row) {
+        return new AirQuality(
+                decodeValue(Pollutant.AQI, row), decodeCategory(Pollutant.AQI, row),
+                decodeValue(Pollutant.CO, row), decodeCategory(Pollutant.CO, row),
+                decodeValue(Pollutant.OZONE, row), decodeCategory(Pollutant.OZONE, row),
+                decodeValue(Pollutant.NO2, row), decodeCategory(Pollutant.NO2, row),
+                decodeValue(Pollutant.PM, row), decodeCategory(Pollutant.PM, row));
+    }
+
+    /**
+     * Appends a row of encoded values and category codes, growing the columns if they are full.
+     *
+     * @param rowValues     The AQI value of each pollutant.
+     * @param rowCategories The category code of each pollutant.
+     * @param rowDeleted    Whether the row is deleted.
+     * @return The id of the new row.
+     */
+    private synchronized int appendRow(int[] rowValues, byte[] rowCategories, boolean rowDeleted) {
+        int row = reserveRow();
+        int[][] valueColumns = values;
+        byte[][] categoryColumns = categories;
+        for (int i = 0; i < POLLUTANTS.length; i++) {
+            valueColumns[i][row] = rowValues[i];
+            categoryColumns[i][row] = rowCategories[i];
+        }
+        if (rowDeleted) {
+            deleted[row >> 6] |= 1L << row;
+        }
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * Gets the id of the next row to append, growing the columns first if they are full.
+     * Callers must hold the lock on this store and publish the row by updating the size.
+     *
+     * @return The id of the next row.
+     */
+    private int reserveRow() {
+        int row = size;
+        if (row == values[0].length) {
+            grow();
+        }
+        return row;
+    }
+
+    /**
+     * Doubles the capacity of every column. Existing rows are copied unchanged, so readers holding the old
+     * arrays still see the same data for them.
+     */
+    private void grow() {
+        int capacity = values[0].length << 1;
+        int[][] newValues = new int[POLLUTANTS.length][];
+        byte[][] newCategories = new byte[POLLUTANTS.length][];
+        for (int i = 0; i < POLLUTANTS.length; i++) {
+            newValues[i] = Arrays.copyOf(values[i], capacity);
+            newCategories[i] = Arrays.copyOf(categories[i], capacity);
+        }
+        deleted = Arrays.copyOf(deleted, capacity >> 6);
+        categories = newCategories;
+        values = newValues;
+    }
+
+    /**
+     * Encodes an AQI value string for storage.
+     *
+     * @param value The AQI value string.
+     * @return The AQI value, or NOT_AVAILABLE for "N/A".
+     * @throws InvalidRecordException If the value is not a non-negative integer.
+     */
+    private static int encodeValue(String value) throws InvalidRecordException {
+        if (value == null || value.equals(Constants.DELETED_CHARACTER)) {
+            return NOT_AVAILABLE;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new InvalidRecordException("Database record entry invalid", 400);
+    }
+
+    /**
+     * Encodes an AQI category string for storage.
+     *
+     * @param category The AQI category string.
+     * @return The category code, or NO_CATEGORY for "N/A".
+     * @throws InvalidRecordException If the category is not a known AQI category.
+     */
+    private static byte encodeCategory(String category) throws InvalidRecordException {
+        if (category == null || category.equals(Constants.DELETED_CHARACTER)) {
+            return NO_CATEGORY;
+        }
+        AqiCategory aqiCategory = AqiCategory.fromLabel(category);
+        if (aqiCategory == null) {
+            throw new InvalidRecordException("Database record entry invalid", 400);
+        }
+        return (byte) (aqiCategory.ordinal() + 1);
+    }
+
+    /**
+     * Decodes the AQI value of a pollutant in a row.
+     *
+     * @param pollutant The pollutant.
+     * @param row       The id of the row.
+     * @return The AQI value string, or "N/A" if not available.
+     */
+    public String decodeValue(Pollutant pollutant, int row) {
+        int value = getValue(pollutant, row);
+        return value == NOT_AVAILABLE ? Constants.DELETED_CHARACTER : String.valueOf(value);
+    }
+
+    /**
+     * Decodes the AQI category of a pollutant in a row.
+     *
+     * @param pollutant The pollutant.
+     * @param row       The id of the row.
+     * @return The AQI category label, or "N/A" if not available.
+     */
+    public String decodeCategory(Pollutant pollutant, int row) {
+        AqiCategory category = getCategory(pollutant, row);
+        return category == null ? Constants.DELETED_CHARACTER : category.getLabel();
+    }
+}
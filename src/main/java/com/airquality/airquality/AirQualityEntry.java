@@ -0,0 +1,93 @@
+/**
+ * This file represents one entry of a batch of air quality readings sent in a single request.
+ */
+package com.airquality.airquality;
+
+/**
+ * Represents one entry of a batch of air quality readings: the air quality of a city in a country.
+ */
+public class AirQualityEntry {
+
+    // The name of the country
+    private String country;
+
+    // The name of the city
+    private String city;
+
+    // The air quality reading of the city
+    private AirQuality airQuality;
+
+    /**
+     * Default constructor for the AirQualityEntry class.
+     */
+    public AirQualityEntry() {
+        // Empty constructor
+    }
+
+    /**
+     * Parameterized constructor to initialize an AirQualityEntry object.
+     *
+     * @param country    The name of the country.
+     * @param city       The name of the city.
+     * @param airQuality The air quality reading of the city.
+     */
+    public AirQualityEntry(String country, String city, AirQuality airQuality) {
+        this.country = country;
+        this.city = city;
+        this.airQuality = airQuality;
+    }
+
+    /**
+     * Gets the name of the country.
+     *
+     * @return The name of the country.
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Sets the name of the country.
+     *
+     * @param country The name of the country to set.
+     */
+    public void setCountry(String country) {
+        this.country = country;
+    }
+
+    /**
+     * Gets the name of the city.
+     *
+     * @return The name of the city.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Sets the name of the city.
+     *
+     * @param city The name of the city to set.
+     */
+    public void setCity(String city) {
+        this.city = city;
+    }
+
+    /**
+     * Gets the air quality reading of the city.
+     *
+     * @return The AirQuality object.
+     */
+    public AirQuality getAirQuality() {
+        return airQuality;
+    }
+
+    /**
+     * Sets the air quality reading of the city.
+     *
+     * @param airQuality The AirQuality object to set.
+     */
+    public void setAirQuality(AirQuality airQuality) {
+        this.airQuality = airQuality;
+    }
+}
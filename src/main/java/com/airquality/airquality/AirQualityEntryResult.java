@@ -0,0 +1,89 @@
+/**
+ * This file represents the outcome of storing one entry of a batch of air quality readings.
+ */
+package com.airquality.airquality;
+
+/**
+ * Represents the outcome of storing one entry of a batch of air quality readings, using the status code the
+ * matching single-city request would have returned.
+ */
+public class AirQualityEntryResult {
+
+    // The position of the entry in the batch, starting at 0
+    private final int index;
+
+    // The name of the country of the entry
+    private final String country;
+
+    // The name of the city of the entry
+    private final String city;
+
+    // The status code of the entry
+    private final int status;
+
+    // The message describing the outcome
+    private final String message;
+
+    /**
+     * Parameterized constructor to initialize an AirQualityEntryResult object.
+     *
+     * @param index   The position of the entry in the batch, starting at 0.
+     * @param country The name of the country of the entry.
+     * @param city    The name of the city of the entry.
+     * @param status  The status code of the entry.
+     * @param message The message describing the outcome.
+     */
+    public AirQualityEntryResult(int index, String country, String city, int status, String message) {
+        this.index = index;
+        this.country = country;
+        this.city = city;
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * Gets the position of the entry in the batch.
+     *
+     * @return The position, starting at 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Gets the name of the country of the entry.
+     *
+     * @return The name of the country.
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Gets the name of the city of the entry.
+     *
+     * @return The name of the city.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Gets the status code of the entry: 201 if the city was created, 200 if it was updated, or the error code
+     * of the failure otherwise.
+     *
+     * @return The status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the message describing the outcome.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+}
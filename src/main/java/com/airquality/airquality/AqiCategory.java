@@ -0,0 +1,79 @@
+/**
+ * This file lists the AQI categories that an air quality reading can fall into.
+ */
+package com.airquality.airquality;
+
+import com.airquality.constants.Constants;
+
+/**
+ * Lists the AQI categories that an air quality reading can fall into, in order of increasing severity.
+ */
+public enum AqiCategory {
+
+    /** Air quality is good. */
+    GOOD(Constants.AQI_CATEGORY_HEALTHY),
+
+    /** Air quality is moderate. */
+    MODERATE(Constants.AQI_CATEGORY_MODERATE),
+
+    /** Air quality is unhealthy for sensitive groups. */
+    UNHEALTHY_FOR_SENSITIVE_GROUPS(Constants.AQI_CATEGORY_UNHEALTHY_FOR_CERTAIN_GROUPS),
+
+    /** Air quality is unhealthy. */
+    UNHEALTHY(Constants.AQI_CATEGORY_UNHEALTHY),
+
+    /** Air quality is very unhealthy. */
+    VERY_UNHEALTHY(Constants.AQI_CATEGORY_VERY_UNHEALTHY),
+
+    /** Air quality is hazardous. */
+    HAZARDOUS(Constants.AQI_CATEGORY_HAZARDOUS);
+
+    // Cached copy of values(), which allocates a new array on every call
+    private static final AqiCategory[] CATEGORIES = values();
+
+    // The label used for the category in the dataset and the API
+    private final String label;
+
+    /**
+     * Constructs an AqiCategory with the label used in the dataset.
+     *
+     * @param label The category label.
+     */
+    AqiCategory(String label) {
+        this.label = label;
+    }
+
+    /**
+     * Gets the label used for the category in the dataset and the API.
+     *
+     * @return The category label.
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Finds the category with the given label, ignoring case.
+     *
+     * @param label The category label.
+     * @return The matching AqiCategory, or null if the label is not a known category.
+     */
+    public static AqiCategory fromLabel(String label) {
+        for (AqiCategory category : CATEGORIES) {
+            if (category.label.equalsIgnoreCase(label)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the category with the given ordinal.
+     *
+     * @param ordinal The ordinal of the category.
+     * @return The AqiCategory with that ordinal.
+     */
+    public static AqiCategory fromOrdinal(int ordinal) {
+        return CATEGORIES[ordinal];
+    }
+}
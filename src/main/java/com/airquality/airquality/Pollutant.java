@@ -0,0 +1,68 @@
+/**
+ * This file lists the pollutants that have an AQI value and category in each air quality record.
+ */
+package com.airquality.airquality;
+
+/**
+ * Lists the pollutants that have an AQI value and category in each air quality record.
+ * The overall AQI is treated as a pollutant of its own.
+ */
+public enum Pollutant {
+
+    /** The overall air quality index. */
+    AQI,
+
+    /** Carbon monoxide. */
+    CO,
+
+    /** Ozone. */
+    OZONE,
+
+    /** Nitrogen dioxide. */
+    NO2,
+
+    /** Particulate matter (PM2.5). */
+    PM;
+
+    /**
+     * Gets the AQI value of this pollutant from an AirQuality object.
+     *
+     * @param airQuality The AirQuality object.
+     * @return The AQI value as stored in the AirQuality object.
+     */
+    public String getValue(AirQuality airQuality) {
+        switch (this) {
+            case AQI:
+                return airQuality.getAqiValue();
+            case CO:
+                return airQuality.getCoAqiValue();
+            case OZONE:
+                return airQuality.getOzoneAqiValue();
+            case NO2:
+                return airQuality.getNoAqiValue();
+            default:
+                return airQuality.getPmAqiValue();
+        }
+    }
+
+    /**
+     * Gets the AQI category of this pollutant from an AirQuality object.
+     *
+     * @param airQuality The AirQuality object.
+     * @return The AQI category as stored in the AirQuality object.
+     */
+    public String getCategory(AirQuality airQuality) {
+        switch (this) {
+            case AQI:
+                return airQuality.getAqiCategory();
+            case CO:
+                return airQuality.getCoAqiCategory();
+            case OZONE:
+                return airQuality.getOzoneAqiCategory();
+            case NO2:
+                return airQuality.getNoAqiCategory();
+            default:
+                return airQuality.getPmAqiCategory();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * The CredentialVerifier file checks the Basic authorization header sent with every request.
+ */
+package com.airquality.auth;
+
+import com.airquality.constants.Constants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The CredentialVerifier class checks Basic authorization headers against a UserStore.
+ * It follows the Singleton pattern to ensure a single verifier and cache exist.
+ * <p>
+ * Clients send the same header with every request, so the headers that have been verified are kept in a small
+ * cache and a repeated header is accepted with a single hash lookup, without decoding it or asking the store.
+ * The cache holds only the SHA-256 digest of each header, so no credentials are kept in memory and lookups
+ * compare digests rather than the credentials themselves.
+ * The cache is cleared when it fills up and whenever the user store is replaced. Malformed headers are rejected
+ * rather than failing the request.
+ */
+public class CredentialVerifier {
+
+    /**
+     * A user store together with the headers it has accepted, swapped as one so that a header verified by a
+     * replaced store never reaches the cache of the new one.
+     */
+    private static final class Verification {
+
+        // The store the headers are checked against
+        private final UserStore userStore;
+
+        // The SHA-256 digests of the headers the store has accepted, Base64-encoded
+        private final ConcurrentHashMap<String, Boolean> verifiedHeaders = new ConcurrentHashMap<>();
+
+        /**
+         * Constructs a Verification with an empty cache.
+         *
+         * @param userStore The store the headers are checked against.
+         */
+        private Verification(UserStore userStore) {
+            this.userStore = userStore;
+        }
+    }
+
+    /** The single instance of the CredentialVerifier class. */
+    private static CredentialVerifier instance;
+
+    // The current user store and its cache
+    private volatile Verification verification;
+
+    /**
+     * Private constructor to prevent direct instantiation. Starts with the default user store.
+     */
+    private CredentialVerifier() {
+        verification = new Verification(createDefaultUserStore());
+    }
+
+    /**
+     * Gets the single instance of the CredentialVerifier class using the Singleton pattern.
+     *
+     * @return The singleton instance of the CredentialVerifier class.
+     */
+    public static CredentialVerifier getInstance() {
+        if (instance == null) {
+            synchronized (CredentialVerifier.class) {
+                if (instance == null) {
+                    instance = new CredentialVerifier();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Replaces the user store that headers are checked against, forgetting every header verified so far.
+     *
+     * @param userStore The new user store.
+     */
+    public void setUserStore(UserStore userStore) {
+        verification = new Verification(userStore);
+    }
+
+    /**
+     * Checks if an authorization header holds valid Basic credentials.
+     *
+     * @param authorizationHeader The authorization header of the request, or null if it has none.
+     * @return True if the credentials are valid, false if they are not or the header is malformed.
+     */
+    public boolean isAuthorised(String authorizationHeader) {
+        if (authorizationHeader == null) {
+            return false;
+        }
+        Verification current = verification;
+        String headerDigest = digest(authorizationHeader);
+        if (current.verifiedHeaders.containsKey(headerDigest)) {
+            return true;
+        }
+        if (!authorizationHeader.startsWith(Constants.PASSWORD_PREFIX)) {
+            return false;
+        }
+
+        String credentials;
+        try {
+            String base64Credentials = authorizationHeader.substring(Constants.PASSWORD_PREFIX.length()).trim();
+            credentials = new String(Base64.getDecoder().decode(base64Credentials), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        int separator = credentials.indexOf(':');
+        if (separator < 0 || !current.userStore.verify(credentials.substring(0, separator), credentials.substring(separator + 1))) {
+            return false;
+        }
+
+        if (current.verifiedHeaders.size() >= Constants.AUTH_CACHE_MAX_ENTRIES) {
+            current.verifiedHeaders.clear();
+        }
+        current.verifiedHeaders.put(headerDigest, Boolean.TRUE);
+        return true;
+    }
+
+    /**
+     * Computes the SHA-256 digest of an authorization header, which stands for the header in the cache.
+     *
+     * @param authorizationHeader The authorization header.
+     * @return The digest, Base64-encoded.
+     */
+    private static String digest(String authorizationHeader) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authorizationHeader.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Creates the user store used until another is plugged in: the built-in user, plus any users listed in the
+     * users file if it exists.
+     *
+     * @return The default user store.
+     */
+    private static UserStore createDefaultUserStore() {
+        InMemoryUserStore userStore = new InMemoryUserStore();
+        userStore.addUser(Constants.USERNAME, Constants.PASSWORD);
+        Path usersFile = Paths.get(Constants.USERS_FILE_PATH);
+        if (Files.exists(usersFile)) {
+            try {
+                userStore.addUsers(usersFile);
+            } catch (IOException e) {
+                // The built-in user still works without the file
+                System.err.println(e.getLocalizedMessage());
+            }
+        }
+        return userStore;
+    }
+}
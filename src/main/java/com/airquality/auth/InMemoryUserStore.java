@@ -0,0 +1,91 @@
+/**
+ * The InMemoryUserStore file holds the users accepted by the service in memory.
+ */
+package com.airquality.auth;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The InMemoryUserStore class keeps the SHA-256 digest of the password of each user rather than the password
+ * itself. A password is checked by comparing its digest with MessageDigest.isEqual, which takes the same time
+ * wherever the digests differ. Unknown users are compared against a digest of their own too, so the time taken
+ * does not tell which usernames exist.
+ */
+public class InMemoryUserStore implements UserStore {
+
+    // Compared against when the user is not known, so that unknown users take as long as wrong passwords
+    private static final byte[] UNKNOWN_USER_DIGEST = digest("");
+
+    // The password digest of each user
+    private final ConcurrentHashMap<String, byte[]> passwordDigests = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty InMemoryUserStore.
+     */
+    public InMemoryUserStore() {
+        // Users are added with addUser
+    }
+
+    /**
+     * Adds a user, replacing the password of an existing user of the same name.
+     *
+     * @param username The username.
+     * @param password The password.
+     */
+    public void addUser(String username, String password) {
+        passwordDigests.put(username, digest(password));
+    }
+
+    /**
+     * Adds the users listed in a properties file, one username=password entry per user.
+     *
+     * @param path The path of the properties file.
+     * @throws IOException If the file cannot be read.
+     */
+    public void addUsers(Path path) throws IOException {
+        Properties users = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            users.load(reader);
+        }
+        for (String username : users.stringPropertyNames()) {
+            addUser(username, users.getProperty(username));
+        }
+    }
+
+    /**
+     * Checks the credentials of a client in constant time.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return True if the user exists and the password is theirs, false otherwise.
+     */
+    @Override
+    public boolean verify(String username, String password) {
+        byte[] expected = passwordDigests.get(username);
+        boolean matches = MessageDigest.isEqual(expected == null ? UNKNOWN_USER_DIGEST : expected, digest(password));
+        return matches && expected != null;
+    }
+
+    /**
+     * Computes the SHA-256 digest of a password.
+     *
+     * @param password The password.
+     * @return The digest.
+     */
+    private static byte[] digest(String password) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * The UserStore file defines where the credentials accepted by the service come from.
+ */
+package com.airquality.auth;
+
+/**
+ * The UserStore interface checks the username and password of a client. Implementations can hold the users in
+ * memory, read them from a file or ask another system, and are plugged in with CredentialVerifier.setUserStore.
+ * <p>
+ * Implementations must compare secrets in constant time, for example with MessageDigest.isEqual over digests, so
+ * that the time taken to reject a password does not reveal how much of it was right.
+ */
+public interface UserStore {
+
+    /**
+     * Checks the credentials of a client.
+     *
+     * @param username The username.
+     * @param password The password.
+     * @return True if the user exists and the password is theirs, false otherwise.
+     */
+    boolean verify(String username, String password);
+}
@@ -5,6 +5,7 @@
 package com.airquality.builders;
 
 import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.AirQualityColumns;
 import com.airquality.exceptions.InvalidAqiCategoryException;
 import com.airquality.exceptions.InvalidAqiValueException;
 import com.airquality.exceptions.InvalidRecordException;
@@ -56,6 +57,20 @@ public class FluentCityBuilder {
         return this;
     }
 
+    /**
+     * Points the current city being built at a row of a columnar store holding its air quality information.
+     *
+     * @param airQualityColumns The columnar store.
+     * @param airQualityRow     The row of the columnar store.
+     * @return The FluentCityBuilder instance for method chaining.
+     */
+    public FluentCityBuilder addAirQuality(AirQualityColumns airQualityColumns, int airQualityRow) {
+        if (currentCity != null) {
+            currentCity.bindAirQuality(airQualityColumns, airQualityRow);
+        }
+        return this;
+    }
+
     /**
      * Builds and returns the City object with the provided information.
      *
@@ -54,7 +54,7 @@ public class FluentCountryBuilder {
      */
     public FluentCountryBuilder endCity() {
         if (currentCity != null) {
-            currentCountry.getCities().add(currentCity);
+            currentCountry.addCity(currentCity);
             currentCity = null;
         }
         return this;
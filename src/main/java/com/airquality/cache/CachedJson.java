@@ -0,0 +1,100 @@
+/**
+ * The CachedJson file holds a response body serialized once for a version of the dataset.
+ */
+package com.airquality.cache;
+
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The CachedJson class holds the JSON bytes of a response body built from one version of the dataset, and the
+ * gzip-compressed bytes once a client has asked for them. Both are written out as they are, so serving a cached
+ * body neither serializes nor allocates anything in proportion to its size.
+ */
+public class CachedJson {
+
+    // The version of the dataset the body was built from
+    private final long version;
+
+    // Whether the body is an empty list
+    private final boolean empty;
+
+    // The body serialized as JSON
+    private final byte[] json;
+
+    // The body serialized as JSON and compressed with gzip, built on first use
+    private volatile byte[] gzip;
+
+    /**
+     * Constructs a CachedJson.
+     *
+     * @param version The version of the dataset the body was built from.
+     * @param empty   Whether the body is an empty list.
+     * @param json    The body serialized as JSON.
+     */
+    CachedJson(long version, boolean empty, byte[] json) {
+        this.version = version;
+        this.empty = empty;
+        this.json = json;
+    }
+
+    /**
+     * Gets the version of the dataset the body was built from.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Checks whether the body is an empty list, which the resources report as not found.
+     *
+     * @return True if the body is empty, false otherwise.
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * Builds a 200 response writing the cached bytes, compressed if the client accepts gzip.
+     *
+     * @param gzipped Whether to send the gzip-compressed bytes.
+     * @return The response builder, to which the caller adds its entity tag and cache control.
+     */
+    public Response.ResponseBuilder toResponse(boolean gzipped) {
+        Response.ResponseBuilder response = Response.ok(gzipped ? getGzip() : json, MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response;
+    }
+
+    /**
+     * Gets the gzip-compressed bytes, compressing the JSON bytes on first use. Two threads may both compress
+     * them, which gives the same bytes.
+     *
+     * @return The compressed bytes.
+     */
+    private byte[] getGzip() {
+        byte[] compressed = gzip;
+        if (compressed == null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+            try (GZIPOutputStream gzipStream = new GZIPOutputStream(bytes)) {
+                gzipStream.write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            compressed = bytes.toByteArray();
+            gzip = compressed;
+        }
+        return compressed;
+    }
+}
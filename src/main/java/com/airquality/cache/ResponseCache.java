@@ -0,0 +1,113 @@
+/**
+ * The ResponseCache file keeps the serialized bodies of the bulk list endpoints for the current dataset version.
+ */
+package com.airquality.cache;
+
+import com.airquality.constants.Constants;
+import com.airquality.record.RecordSnapshot;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The ResponseCache class keeps the JSON bytes of the responses of the bulk list endpoints, each keyed by the
+ * endpoint and stamped with the version of the dataset it was built from.
+ * It follows the Singleton pattern to ensure a single cache exists.
+ * <p>
+ * Only bodies of datasets up to a configured size are cached; larger ones are streamed by the resources.
+ * A body is rebuilt lazily, by the first request to find the dataset changed since it was built. That request
+ * builds and serializes the list once while concurrent requests for the same endpoint wait for it, and every
+ * later request until the next change only writes out the cached bytes.
+ */
+public class ResponseCache {
+
+    /** The single instance of the ResponseCache class. */
+    private static ResponseCache instance;
+
+    // Serializes the bodies the same way the JAX-RS runtime would; JSON-B instances are thread-safe
+    private final Jsonb jsonb = JsonbBuilder.create();
+
+    // The most recent body of each endpoint
+    private final ConcurrentHashMap<String, CachedJson> bodies = new ConcurrentHashMap<>();
+
+    // The lock each endpoint's body is rebuilt under, so that it is only rebuilt once per version
+    private final ConcurrentHashMap<String, Object> rebuildLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to prevent direct instantiation.
+     */
+    private ResponseCache() {
+        // Private constructor
+    }
+
+    /**
+     * Gets the single instance of the ResponseCache class using the Singleton pattern.
+     *
+     * @return The singleton instance of the ResponseCache class.
+     */
+    public static ResponseCache getInstance() {
+        if (instance == null) {
+            synchronized (ResponseCache.class) {
+                if (instance == null) {
+                    instance = new ResponseCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether the bodies built from a snapshot are small enough to cache. Bodies of larger datasets are
+     * streamed instead, so that they are never held in memory as a whole.
+     *
+     * @param snapshot The snapshot the response is built from.
+     * @return True if the snapshot holds no more than RESPONSE_CACHE_MAX_CITIES cities, false otherwise.
+     */
+    public boolean isCacheable(RecordSnapshot snapshot) {
+        return snapshot.getCityCount() <= Constants.RESPONSE_CACHE_MAX_CITIES;
+    }
+
+    /**
+     * Gets the body of an endpoint for a snapshot of the dataset, building and serializing it if the cached body
+     * was built from a different version.
+     *
+     * @param key      The name of the endpoint.
+     * @param snapshot The snapshot the response is built from.
+     * @param builder  Builds the list returned by the endpoint from the snapshot.
+     * @return The CachedJson body for the snapshot's version.
+     */
+    public CachedJson get(String key, RecordSnapshot snapshot, Function<RecordSnapshot, List<?>> builder) {
+        CachedJson cached = bodies.get(key);
+        if (cached != null && cached.getVersion() == snapshot.getVersion()) {
+            return cached;
+        }
+        synchronized (rebuildLocks.computeIfAbsent(key, k -> new Object())) {
+            cached = bodies.get(key);
+            if (cached != null && cached.getVersion() == snapshot.getVersion()) {
+                return cached;
+            }
+            CachedJson built = build(snapshot, builder);
+            // A request still holding an older snapshot gets its own body without replacing a newer one
+            if (cached == null || cached.getVersion() < built.getVersion()) {
+                bodies.put(key, built);
+            }
+            return built;
+        }
+    }
+
+    /**
+     * Builds and serializes the body of an endpoint.
+     *
+     * @param snapshot The snapshot the response is built from.
+     * @param builder  Builds the list returned by the endpoint from the snapshot.
+     * @return The new CachedJson body.
+     */
+    private CachedJson build(RecordSnapshot snapshot, Function<RecordSnapshot, List<?>> builder) {
+        List<?> body = builder.apply(snapshot);
+        return new CachedJson(snapshot.getVersion(), body.isEmpty(), jsonb.toJson(body).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -43,6 +43,98 @@ public class Constants {
      */
     public static final String FILE_PATH = "data/global-air-pollution-dataset.csv";
 
+    /**
+     * Suffix added to the dataset file path to give the path of its journal of changes
+     */
+    public static final String JOURNAL_FILE_SUFFIX = ".journal";
+
+    /**
+     * Suffix added to the dataset file path to give the path a checkpoint is written to before replacing it
+     */
+    public static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+
+    /**
+     * Maximum time in milliseconds the journal writer waits for more appends to join a batch before flushing it
+     */
+    public static final long JOURNAL_GROUP_COMMIT_MAX_DELAY_MILLIS = 2;
+
+    /**
+     * Maximum number of appends the journal writer flushes together in one batch
+     */
+    public static final int JOURNAL_GROUP_COMMIT_MAX_BATCH = 512;
+
+    /**
+     * Interval in seconds between checkpoints folding the journal into the dataset file
+     */
+    public static final long CHECKPOINT_INTERVAL_SECONDS = 60;
+
+    /**
+     * Maximum number of cities in the dataset for which the bulk list endpoints cache their serialized bodies;
+     * above it the bodies are streamed
+     */
+    public static final int RESPONSE_CACHE_MAX_CITIES = 100000;
+
+    /**
+     * Optional properties file listing further users, one username=password entry per user
+     */
+    public static final String USERS_FILE_PATH = "data/users.properties";
+
+    /**
+     * Maximum number of verified authorization headers remembered, after which the cache is cleared
+     */
+    public static final int AUTH_CACHE_MAX_ENTRIES = 256;
+
+    /**
+     * Media type of the compact columnar binary encoding of the city lists, chosen with the Accept header
+     */
+    public static final String COLUMNAR_MEDIA_TYPE = "application/vnd.airquality.columnar";
+
+    /**
+     * Number of elements returned in a page of a list endpoint when a cursor is given without a limit
+     */
+    public static final int PAGE_DEFAULT_LIMIT = 100;
+
+    /**
+     * Maximum number of elements that can be asked for in a page of a list endpoint
+     */
+    public static final int PAGE_MAX_LIMIT = 1000;
+
+    /**
+     * Number of matches returned by the autocomplete search when no limit is given
+     */
+    public static final int AUTOCOMPLETE_DEFAULT_LIMIT = 10;
+
+    /**
+     * Maximum number of entries accepted in a single batch request
+     */
+    public static final int BATCH_MAX_ENTRIES = 10000;
+
+    /**
+     * Number of deleted cities, or of unused rows of the columnar store, from which the dataset is compacted
+     */
+    public static final int COMPACTION_TOMBSTONE_THRESHOLD = 1000;
+
+    /**
+     * Number of lock stripes of the category and statistics indexes, so that writes to different countries
+     * update them in parallel
+     */
+    public static final int INDEX_LOCK_STRIPES = 16;
+
+    /**
+     * Interval in seconds after which the dataset is compacted even if fewer deleted cities have built up
+     */
+    public static final long COMPACTION_INTERVAL_SECONDS = 60 * 60;
+
+    /**
+     * Size in bytes from which the dataset file is memory-mapped and parsed in parallel
+     */
+    public static final long PARALLEL_LOAD_MIN_FILE_SIZE = 8L * 1024 * 1024;
+
+    /**
+     * Target size in bytes of each chunk of the dataset file parsed in parallel
+     */
+    public static final int PARALLEL_LOAD_CHUNK_SIZE = 4 * 1024 * 1024;
+
     /**
      * Regular expression for validating integers
      */
@@ -86,7 +178,7 @@ public class Constants {
     /**
      * CSV file header
      */
-    public static final String CSV_HEADER = "Country,City,AQI Value,AQI Category,CO AQI Value,CO AQI Category,Ozone AQI Value,Ozone AQI Category,NO2 AQI Value,NO2 AQI Category,PM2.5 AQI Value,PM2.5 AQI Category";
+    public static final String CSV_HEADER = "Country,City,AQI Value,AQI Category,CO AQI Value,CO AQI Category,Ozone AQI Value,Ozone AQI Category,NO2 AQI Value,NO2 AQI Category,PM2.5 AQI Value,PM2.5 AQI Category,City Id";
 
     /**
      * Private constructor to prevent instantiation of the Constants class.
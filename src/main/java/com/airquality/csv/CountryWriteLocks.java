@@ -0,0 +1,113 @@
+/**
+ * CountryWriteLocks file provides the locks that coordinate writes to the dataset, one per country.
+ */
+package com.airquality.csv;
+
+import com.airquality.locations.Location;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * CountryWriteLocks class coordinates writes to the dataset with one lock per country, so that writes to
+ * different countries run in parallel while writes to the same country are applied one at a time.
+ * <p>
+ * Every country write also holds the shared side of a dataset lock, whose exclusive side is taken by operations
+ * that replace the whole dataset, such as loading, checkpoints and compaction. Writes that span several countries
+ * lock them in the order of their normalised names, so two such writes can never wait on each other in a cycle.
+ * Readers take no locks at all and work on the snapshot published by the Record.
+ */
+class CountryWriteLocks {
+
+    // Shared by country writes, exclusive for operations on the whole dataset
+    private final ReentrantReadWriteLock datasetLock = new ReentrantReadWriteLock();
+
+    // The lock of each country written so far, keyed by normalised country name
+    private final ConcurrentHashMap<String, ReentrantLock> countryLocks = new ConcurrentHashMap<>();
+
+    /**
+     * Locks a country for writing, waiting for any other write to the same country or operation on the whole
+     * dataset to finish.
+     *
+     * @param country The name of the country.
+     */
+    void lockCountry(String country) {
+        datasetLock.readLock().lock();
+        getLock(Location.toKey(country)).lock();
+    }
+
+    /**
+     * Unlocks a country locked by lockCountry.
+     *
+     * @param country The name of the country.
+     */
+    void unlockCountry(String country) {
+        getLock(Location.toKey(country)).unlock();
+        datasetLock.readLock().unlock();
+    }
+
+    /**
+     * Locks several countries for writing, in the order of their normalised names.
+     *
+     * @param countries The names of the countries. Names that differ only in case are locked once.
+     */
+    void lockCountries(Collection<String> countries) {
+        datasetLock.readLock().lock();
+        for (String key : toSortedKeys(countries)) {
+            getLock(key).lock();
+        }
+    }
+
+    /**
+     * Unlocks the countries locked by lockCountries, in the reverse order.
+     *
+     * @param countries The names of the countries passed to lockCountries.
+     */
+    void unlockCountries(Collection<String> countries) {
+        for (String key : toSortedKeys(countries).descendingSet()) {
+            getLock(key).unlock();
+        }
+        datasetLock.readLock().unlock();
+    }
+
+    /**
+     * Locks the whole dataset, waiting for every country write in progress to finish.
+     */
+    void lockAll() {
+        datasetLock.writeLock().lock();
+    }
+
+    /**
+     * Unlocks the whole dataset locked by lockAll.
+     */
+    void unlockAll() {
+        datasetLock.writeLock().unlock();
+    }
+
+    /**
+     * Gets the lock of a country, creating it on first use.
+     *
+     * @param key The normalised name of the country.
+     * @return The lock of the country.
+     */
+    private ReentrantLock getLock(String key) {
+        return countryLocks.computeIfAbsent(key, k -> new ReentrantLock());
+    }
+
+    /**
+     * Normalises and sorts country names, dropping duplicates.
+     *
+     * @param countries The names of the countries.
+     * @return The sorted set of normalised names.
+     */
+    private static TreeSet<String> toSortedKeys(Collection<String> countries) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String country : countries) {
+            keys.add(Location.toKey(country));
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,277 @@
+/**
+ * CsvJournal file provides the append-only log of changes made to the dataset since its last checkpoint.
+ */
+package com.airquality.csv;
+
+import com.airquality.constants.Constants;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CsvJournal class appends changes to the dataset to a journal file next to the CSV file.
+ * Each entry is a line in the same format as a row of the CSV file and replaces the row of that city, so replaying
+ * the journal over the CSV file in order gives the current dataset. A row of "N/A" values records a deletion.
+ * <p>
+ * Appends are group committed: a single writer thread drains the queue of pending appends, writes them with one
+ * buffered write and one flush to the storage device, and only then releases every waiting caller. Concurrent
+ * writers therefore share the cost of a flush instead of queueing for one each.
+ */
+class CsvJournal implements Closeable {
+
+    // The path of the journal file
+    private final Path path;
+
+    // The channel entries are appended through, opened on first use
+    private FileChannel channel;
+
+    // Queued by close to stop the writer thread once the appends queued before it are written
+    private static final PendingAppend STOP = new PendingAppend(new byte[0]);
+
+    // The appends waiting for the writer thread
+    private final LinkedBlockingQueue<PendingAppend> pendingAppends = new LinkedBlockingQueue<>();
+
+    // The thread writing queued appends to the journal, started on first use
+    private Thread writerThread;
+
+    /**
+     * Constructs a CsvJournal for the given CSV file.
+     *
+     * @param fileName The name of the CSV file.
+     */
+    CsvJournal(String fileName) {
+        this.path = Paths.get(fileName + Constants.JOURNAL_FILE_SUFFIX);
+    }
+
+    /**
+     * Gets the path of the journal file.
+     *
+     * @return The path of the journal file.
+     */
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Appends entries to the journal and waits until they have been forced to the storage device.
+     * The entries are written by the writer thread together with those of any other caller waiting at the time.
+     *
+     * @param lines One or more entries, each ending with a line break.
+     * @throws IOException If the journal cannot be written.
+     */
+    void append(String lines) throws IOException {
+        await(enqueue(lines));
+    }
+
+    /**
+     * Queues entries to be appended to the journal, without waiting for them to be written. Entries are written
+     * in the order they are queued.
+     *
+     * @param lines One or more entries, each ending with a line break.
+     * @return A future completed once the entries have been forced to the storage device.
+     */
+    CompletableFuture<Void> enqueue(String lines) {
+        PendingAppend pending = new PendingAppend(lines.getBytes(StandardCharsets.UTF_8));
+        startWriter();
+        pendingAppends.add(pending);
+        return pending.done;
+    }
+
+    /**
+     * Waits for queued entries to be forced to the storage device.
+     *
+     * @param written The future returned by enqueue.
+     * @throws IOException If the journal cannot be written.
+     */
+    static void await(CompletableFuture<Void> written) throws IOException {
+        try {
+            written.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing the journal", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to write the journal", e.getCause());
+        }
+    }
+
+    /**
+     * Gets the size of the journal.
+     *
+     * @return The size of the journal file in bytes.
+     * @throws IOException If the size cannot be read.
+     */
+    synchronized long size() throws IOException {
+        return getChannel().size();
+    }
+
+    /**
+     * Removes every entry from the journal, after they have been folded into a new CSV file.
+     *
+     * @throws IOException If the journal cannot be truncated.
+     */
+    synchronized void truncate() throws IOException {
+        FileChannel journalChannel = getChannel();
+        journalChannel.truncate(0);
+        journalChannel.force(true);
+    }
+
+    /**
+     * Stops the writer thread and closes the journal file. Both are started again if another entry is appended.
+     *
+     * @throws IOException If the journal cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread writer;
+        synchronized (this) {
+            writer = writerThread;
+            writerThread = null;
+        }
+        if (writer != null) {
+            // Not interrupted, as interrupting a thread writing to a channel closes the channel
+            pendingAppends.add(STOP);
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Starts the writer thread if it is not running.
+     */
+    private synchronized void startWriter() {
+        if (writerThread == null) {
+            writerThread = new Thread(this::writeAppends, "air-quality-journal-writer");
+            writerThread.setDaemon(true);
+            writerThread.start();
+        }
+    }
+
+    /**
+     * Runs the writer thread: waits for an append, gathers every append queued until the batch is full or the
+     * maximum delay has passed, and writes them as one batch. When the thread is stopped, appends still queued
+     * are failed instead of being left waiting.
+     */
+    private void writeAppends() {
+        List<PendingAppend> batch = new ArrayList<>();
+        boolean stopped = false;
+        try {
+            while (!stopped) {
+                batch.add(pendingAppends.take());
+                pendingAppends.drainTo(batch, Constants.JOURNAL_GROUP_COMMIT_MAX_BATCH - batch.size());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Constants.JOURNAL_GROUP_COMMIT_MAX_DELAY_MILLIS);
+                while (batch.size() < Constants.JOURNAL_GROUP_COMMIT_MAX_BATCH) {
+                    PendingAppend next = pendingAppends.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    pendingAppends.drainTo(batch, Constants.JOURNAL_GROUP_COMMIT_MAX_BATCH - batch.size());
+                }
+                stopped = batch.remove(STOP);
+                if (!batch.isEmpty()) {
+                    writeBatch(batch);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException closed = new IOException("Journal closed");
+        pendingAppends.drainTo(batch);
+        for (PendingAppend pending : batch) {
+            pending.done.completeExceptionally(closed);
+        }
+    }
+
+    /**
+     * Writes a batch of appends with one buffered write, forces it to the storage device and then releases the
+     * callers waiting on them, or fails them all if the batch cannot be written.
+     *
+     * @param batch The appends to write.
+     */
+    private void writeBatch(List<PendingAppend> batch) {
+        int size = 0;
+        for (PendingAppend pending : batch) {
+            size += pending.bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (PendingAppend pending : batch) {
+            buffer.put(pending.bytes);
+        }
+        buffer.flip();
+        try {
+            synchronized (this) {
+                FileChannel journalChannel = getChannel();
+                while (buffer.hasRemaining()) {
+                    journalChannel.write(buffer);
+                }
+                journalChannel.force(false);
+            }
+            for (PendingAppend pending : batch) {
+                pending.done.complete(null);
+            }
+        } catch (IOException e) {
+            for (PendingAppend pending : batch) {
+                pending.done.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Gets the channel of the journal file, opening or creating the file if needed.
+     *
+     * @return The open channel.
+     * @throws IOException If the journal cannot be opened.
+     */
+    private FileChannel getChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    /**
+     * PendingAppend class holds the entries of one append until the writer thread has made them durable.
+     */
+    private static class PendingAppend {
+
+        // The entries to append, encoded as UTF-8
+        private final byte[] bytes;
+
+        // Completed once the entries have been forced to the storage device, or failed if they could not be
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        /**
+         * Constructs a PendingAppend.
+         *
+         * @param bytes The entries to append, encoded as UTF-8.
+         */
+        PendingAppend(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -5,18 +5,33 @@
 package com.airquality.csv;
 
 import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.AirQualityEntry;
+import com.airquality.airquality.AirQualityEntryResult;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
 import com.airquality.builders.FluentCityBuilder;
 import com.airquality.builders.FluentCountryBuilder;
 import com.airquality.exceptions.*;
 import com.airquality.locations.City;
 import com.airquality.constants.Constants;
 import com.airquality.locations.Country;
+import com.airquality.locations.Location;
 import com.airquality.record.Record;
 import com.airquality.utility.Utility;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * CsvReadWrite class provides methods for reading and writing data to a CSV file.
@@ -24,209 +39,717 @@ import java.util.Scanner;
  */
 public class CsvReadWrite {
 
+	// Last-modified time of the CSV file when it was last loaded into the Record
+	private static volatile long loadedLastModified = -1;
+
+	// Size in bytes of the CSV file when it was last loaded into the Record
+	private static volatile long loadedFileSize = -1;
+
+	// The journal of the CSV file, opened on first use
+	private static CsvJournal journal;
+
+	// Coordinates writes, letting writes to different countries run in parallel
+	private static final CountryWriteLocks WRITE_LOCKS = new CountryWriteLocks();
+
+	// Held while new cities take their ids and their rows are queued to the journal, so that ids follow the order
+	// of the journal, which is the order a replay of the journal gives them
+	private static final Object JOURNAL_ORDER = new Object();
+
+	// The reading recorded in the journal for a deleted city
+	private static final AirQuality DELETED_AIR_QUALITY = new AirQuality(Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER,
+			Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER,
+			Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER);
+
 	/**
-	 * Appends data to the CSV file.
+	 * Appends data to the CSV file. The new city is recorded in the journal of the CSV file and added to the
+	 * Record singleton instance; the CSV file itself is only rewritten at the next checkpoint.
+	 * If the city is still held in the record after being deleted, it takes the new reading instead.
 	 *
 	 * @param fileName   The name of the CSV file.
 	 * @param country    The country name.
 	 * @param city       The city name.
 	 * @param airQuality The AirQuality object.
+	 * @throws InvalidCityException      If the city already exists.
 	 * @throws DatabaseNotFoundException If there is an issue with the database.
+	 * @throws InvalidRecordException    If a name cannot be stored or the air quality information contains an
+	 *                                   invalid value or category.
 	 */
 	public static void appendDataToCSV(String fileName, String country, String city,
-									   AirQuality airQuality) throws DatabaseNotFoundException {
-		try (FileWriter fileWriter = new FileWriter(fileName, true)) {
-			fileWriter.append(country).append(Constants.DELIMITER);
-			fileWriter.append(city).append(Constants.DELIMITER);
-			fileWriter.append(String.valueOf(airQuality.getAqiValue())).append(Constants.DELIMITER);
-			fileWriter.append(airQuality.getAqiCategory()).append(Constants.DELIMITER);
-
-			fileWriter.append(String.valueOf(airQuality.getCoAqiValue())).append(Constants.DELIMITER);
-			fileWriter.append(airQuality.getCoAqiCategory()).append(Constants.DELIMITER);
-
-			fileWriter.append(String.valueOf(airQuality.getOzoneAqiValue())).append(Constants.DELIMITER);
-			fileWriter.append(airQuality.getOzoneAqiCategory()).append(Constants.DELIMITER);
-
-			fileWriter.append(String.valueOf(airQuality.getNoAqiValue())).append(Constants.DELIMITER);
-			fileWriter.append(airQuality.getNoAqiCategory()).append(Constants.DELIMITER);
-
-			fileWriter.append(String.valueOf(airQuality.getPmAqiValue())).append(Constants.DELIMITER);
-			fileWriter.append(airQuality.getPmAqiCategory()).append(Constants.DELIMITER);
-			fileWriter.append("\n");
-
-		} catch (IOException e) {
-			e.printStackTrace();
+									   AirQuality airQuality) throws InvalidCityException, DatabaseNotFoundException, InvalidRecordException {
+		validateNames(country, city);
+		WRITE_LOCKS.lockCountry(country);
+		try {
+			Country targetCountry = Record.getInstance().getCountry(country);
+			City existingCity = targetCountry == null ? null : targetCountry.getCity(city);
+			if (existingCity != null && !existingCity.isDeleted()) {
+				throw new InvalidCityException("City already exists", 409);
+			}
+			AirQualityColumns columns = Record.getInstance().getAirQualityColumns();
+			int airQualityRow = columns.append(airQuality);
+			City newCity = null;
+			CompletableFuture<Void> written;
+			synchronized (JOURNAL_ORDER) {
+				if (existingCity == null) {
+					newCity = new FluentCityBuilder(city).addAirQuality(columns, airQualityRow).build();
+				}
+				int cityId = newCity == null ? existingCity.getCityId() : newCity.getCityId();
+				written = enqueueJournal(fileName, toCsvLine(country, city, cityId, airQuality));
+			}
+			awaitJournal(written);
+			if (newCity != null) {
+				Record.getInstance().addCity(country, newCity);
+			} else {
+				Record.getInstance().storeAirQuality(country, city, columns, airQualityRow);
+			}
+		} finally {
+			WRITE_LOCKS.unlockCountry(country);
 		}
-		CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
 	}
 
 	/**
-	 * Updates the specified CSV file with the air quality information for a specific city in a given country.
-	 * The file is cleared, and all data is written again with the updated information.
+	 * Updates the air quality information for a specific city in a given country.
+	 * The change is recorded in the journal of the CSV file and applied to the Record singleton instance;
+	 * the CSV file itself is only rewritten at the next checkpoint.
 	 *
 	 * @param fileName   The name of the CSV file to be updated.
 	 * @param country    The name of the country.
-	 * @param cityId     The ID of the city to be updated.
+	 * @param city       The name of the city to be updated.
 	 * @param airQuality The new air quality information for the city.
 	 * @throws InvalidCountryException   If the specified country is not found.
+	 * @throws InvalidCityException      If the specified city is not found or has been deleted.
 	 * @throws DatabaseNotFoundException If the air quality database is not found.
+	 * @throws InvalidRecordException    If a name cannot be stored or the air quality information contains an
+	 *                                   invalid value or category.
 	 */
-	public static void updateCsvLine(String fileName, String country, int cityId,
-									 AirQuality airQuality) throws InvalidCountryException, DatabaseNotFoundException {
-		Country targetCountry = Utility.getInstance().getCountryByName(country);
-		for (int i = 0; i < targetCountry.getCities().size(); i++) {
-			if (targetCountry.getCities().get(i).getCityId() == cityId) {
-				targetCountry.getCities().get(i).setAirQuality(airQuality);
+	public static void updateCsvLine(String fileName, String country, String city,
+									 AirQuality airQuality) throws InvalidCountryException, InvalidCityException, DatabaseNotFoundException, InvalidRecordException {
+		validateNames(country, city);
+		WRITE_LOCKS.lockCountry(country);
+		try {
+			Country targetCountry = Utility.getInstance().getCountryByName(country);
+			City targetCity = Utility.getInstance().getCity(country, city);
+			AirQualityColumns columns = Record.getInstance().getAirQualityColumns();
+			int airQualityRow = columns.append(airQuality);
+			writeJournal(fileName, toCsvLine(targetCountry.getName(), targetCity.getName(), targetCity.getCityId(), airQuality));
+			Record.getInstance().storeAirQuality(targetCountry.getName(), targetCity.getName(), columns, airQualityRow);
+		} finally {
+			WRITE_LOCKS.unlockCountry(country);
+		}
+	}
+
+	/**
+	 * Deletes the air quality information for a specific city in a given country.
+	 * The deletion is recorded in the journal of the CSV file as a row of "N/A" values and applied to the Record
+	 * singleton instance; the CSV file itself is only rewritten at the next checkpoint.
+	 *
+	 * @param fileName The name of the CSV file to be updated.
+	 * @param country  The name of the country.
+	 * @param city     The name of the city to be deleted.
+	 * @throws InvalidCountryException   If the specified country is not found.
+	 * @throws InvalidCityException      If the specified city is not found or has been deleted.
+	 * @throws DatabaseNotFoundException If the air quality database is not found.
+	 * @throws InvalidRecordException    If a name cannot be stored.
+	 */
+	public static void deleteCsvLine(String fileName, String country,
+									 String city) throws DatabaseNotFoundException, InvalidCountryException, InvalidCityException, InvalidRecordException {
+		validateNames(country, city);
+		WRITE_LOCKS.lockCountry(country);
+		try {
+			Country targetCountry = Utility.getInstance().getCountryByName(country);
+			City targetCity = Utility.getInstance().getCity(country, city);
+			AirQualityColumns columns = Record.getInstance().getAirQualityColumns();
+			int airQualityRow = columns.appendDeleted();
+			writeJournal(fileName, toCsvLine(targetCountry.getName(), targetCity.getName(), targetCity.getCityId(), DELETED_AIR_QUALITY));
+			Record.getInstance().storeAirQuality(targetCountry.getName(), targetCity.getName(), columns, airQualityRow);
+		} finally {
+			WRITE_LOCKS.unlockCountry(country);
+		}
+	}
+
+	/**
+	 * Creates or updates the air quality information of many cities at once. Every entry is validated on its own,
+	 * the valid entries are recorded in the journal of the CSV file with a single write and flush, and all of them
+	 * are applied to the Record singleton instance in a single step. The countries of the batch are locked in
+	 * order for the duration, so the batch does not wait on writes to any other country.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @param entries  The entries to store.
+	 * @return The result of each entry, in the order of the entries.
+	 * @throws DatabaseNotFoundException If the journal cannot be written, in which case no entry is stored.
+	 */
+	public static List<AirQualityEntryResult> storeAirQualityBatch(String fileName,
+																	List<AirQualityEntry> entries) throws DatabaseNotFoundException {
+		AirQualityEntryResult[] results = new AirQualityEntryResult[entries.size()];
+		List<String> countries = new ArrayList<>();
+		for (int i = 0; i < entries.size(); i++) {
+			AirQualityEntry entry = entries.get(i);
+			try {
+				validateEntry(entry);
+				countries.add(entry.getCountry());
+			} catch (InvalidRecordException | InvalidAqiValueException | InvalidAqiCategoryException e) {
+				results[i] = entry == null ? new AirQualityEntryResult(i, null, null, e.getErrorCode(), e.getMessage())
+						: new AirQualityEntryResult(i, entry.getCountry(), entry.getCity(), e.getErrorCode(), e.getMessage());
 			}
 		}
-		clearFile(fileName);
 
-		try (FileWriter fileWriter = new FileWriter(fileName, true)) {
-			fileWriter.append(Constants.CSV_HEADER);
-			fileWriter.append("\n");
-			for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-				Country printingCountry = Record.getInstance().getCountryRecords().get(i);
-				for (int y = 0; y < printingCountry.getCities().size(); y++) {
-					City printingCity = printingCountry.getCities().get(y);
-					fileWriter.append(printingCountry.getName()).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getName()).append(Constants.DELIMITER);
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getAqiCategory()).append(Constants.DELIMITER);
+		WRITE_LOCKS.lockCountries(countries);
+		try {
+			AirQualityColumns columns = Record.getInstance().getAirQualityColumns();
+			List<AirQualityEntry> accepted = new ArrayList<>();
+			int[] airQualityRows = new int[entries.size()];
+			boolean[] newCity = new boolean[entries.size()];
+			int[] cityIds = new int[entries.size()];
+			Set<String> stored = new HashSet<>();
+			for (int i = 0; i < entries.size(); i++) {
+				if (results[i] != null) {
+					continue;
+				}
+				AirQualityEntry entry = entries.get(i);
+				try {
+					airQualityRows[accepted.size()] = columns.append(entry.getAirQuality());
+				} catch (InvalidRecordException e) {
+					results[i] = new AirQualityEntryResult(i, entry.getCountry(), entry.getCity(), e.getErrorCode(), e.getMessage());
+					continue;
+				}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getCoAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getCoAqiCategory()).append(Constants.DELIMITER);
+				// A city is created by its first entry, unless it already exists outside this batch
+				String key = Location.toKey(entry.getCountry()) + Constants.DELIMITER + Location.toKey(entry.getCity());
+				Country existingCountry = Record.getInstance().getCountry(entry.getCountry());
+				City existingCity = existingCountry == null ? null : existingCountry.getCity(entry.getCity());
+				boolean first = stored.add(key);
+				boolean created = first && (existingCity == null || existingCity.isDeleted());
+				newCity[accepted.size()] = first && existingCity == null;
+				cityIds[accepted.size()] = existingCity == null ? 0 : existingCity.getCityId();
+				accepted.add(entry);
+				results[i] = created
+						? new AirQualityEntryResult(i, entry.getCountry(), entry.getCity(), 201, "Air Quality Record Created Successfully For " + entry.getCity() + ", " + entry.getCountry())
+						: new AirQualityEntryResult(i, entry.getCountry(), entry.getCity(), 200, "Air Quality Record Updated Successfully For " + entry.getCity() + ", " + entry.getCountry());
+			}
+			if (!accepted.isEmpty()) {
+				City[] newCities = new City[accepted.size()];
+				CompletableFuture<Void> written;
+				synchronized (JOURNAL_ORDER) {
+					// Later entries for a city created by this batch leave the id out; the replay finds them by name
+					StringBuilder lines = new StringBuilder();
+					for (int i = 0; i < accepted.size(); i++) {
+						AirQualityEntry entry = accepted.get(i);
+						if (newCity[i]) {
+							newCities[i] = new City(entry.getCity());
+							newCities[i].bindAirQuality(columns, airQualityRows[i]);
+							cityIds[i] = newCities[i].getCityId();
+						}
+						lines.append(toCsvLine(entry.getCountry(), entry.getCity(), cityIds[i], entry.getAirQuality()));
+					}
+					written = enqueueJournal(fileName, lines.toString());
+				}
+				awaitJournal(written);
+				Record.getInstance().storeAirQuality(accepted, newCities, columns, airQualityRows);
+			}
+		} finally {
+			WRITE_LOCKS.unlockCountries(countries);
+		}
+		return Arrays.asList(results);
+	}
+
+	/**
+	 * Validates an entry of a batch before it is stored.
+	 *
+	 * @param entry The entry to validate.
+	 * @throws InvalidRecordException      If the entry is missing its country, city or reading.
+	 * @throws InvalidAqiValueException    If an AQI value of the reading is not valid.
+	 * @throws InvalidAqiCategoryException If an AQI category of the reading is not valid.
+	 */
+	private static void validateEntry(AirQualityEntry entry) throws InvalidRecordException, InvalidAqiValueException, InvalidAqiCategoryException {
+		if (entry == null || entry.getCountry() == null || entry.getCity() == null || entry.getAirQuality() == null) {
+			throw new InvalidRecordException("Entry must have a country, a city and an air quality reading", 400);
+		}
+		validateNames(entry.getCountry(), entry.getCity());
+		for (Pollutant pollutant : Pollutant.values()) {
+			if (pollutant.getValue(entry.getAirQuality()) == null || pollutant.getCategory(entry.getAirQuality()) == null) {
+				throw new InvalidRecordException("Entry must have a value and category for every pollutant", 400);
+			}
+		}
+		Utility.getInstance().isAirQualityValid(entry.getAirQuality());
+	}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getOzoneAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getOzoneAqiCategory()).append(Constants.DELIMITER);
+	/**
+	 * Validates the country and city names of a write before anything is queued to the journal. A name holding the
+	 * delimiter, a line break or any other control character would break the row written for it, which would then
+	 * be skipped when the journal is replayed, losing the write.
+	 *
+	 * @param country The country name.
+	 * @param city    The city name.
+	 * @throws InvalidRecordException If either name is not a valid location name or cannot be stored in a row.
+	 */
+	private static void validateNames(String country, String city) throws InvalidRecordException {
+		Utility.getInstance().isString(country);
+		Utility.getInstance().isString(city);
+		if (!isStorableName(country) || !isStorableName(city)) {
+			throw new InvalidRecordException("Database record entry invalid", 400);
+		}
+	}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getNoAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getNoAqiCategory()).append(Constants.DELIMITER);
+	/**
+	 * Checks whether a name can be written into a row of the CSV file as it is.
+	 *
+	 * @param name The name.
+	 * @return True if the name holds neither the delimiter nor a control character, false otherwise.
+	 */
+	private static boolean isStorableName(String name) {
+		if (name.contains(Constants.DELIMITER)) {
+			return false;
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (name.charAt(i) < 0x20 || name.charAt(i) == 0x7f) {
+				return false;
+			}
+		}
+		return true;
+	}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getPmAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getPmAqiCategory()).append(Constants.DELIMITER);
-					fileWriter.append("\n");
-				}
+	/**
+	 * Folds the journal into the CSV file. A new CSV file is written from the Record singleton instance next to
+	 * the current one and moved over it in a single step, and the journal is emptied afterwards, so a failure at
+	 * any point leaves either the old file and its journal or the new file.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @throws DatabaseNotFoundException If the CSV file or its journal cannot be written.
+	 */
+	public static void checkpoint(String fileName) throws DatabaseNotFoundException {
+		WRITE_LOCKS.lockAll();
+		try {
+			// Nothing to fold, or the file changed since it was loaded and must be loaded again first
+			if (getJournal(fileName).size() == 0 || !isLoaded(fileName)) {
+				return;
 			}
+			writeCheckpoint(fileName);
 		} catch (IOException e) {
-			throw new RuntimeException(e);
+			throw new DatabaseNotFoundException("Cannot Read Database", 503);
+		} finally {
+			WRITE_LOCKS.unlockAll();
 		}
-		CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
 	}
 
 	/**
-	 * Deletes the specified CSV file entry related to air quality data for a specific city in a given country.
-	 * The file is cleared, and all data is written again with the updated information (with the specified entry
-	 * marked as deleted).
+	 * Compacts the dataset if enough deleted cities or unused rows have built up, or if any deleted city has been
+	 * waiting longer than the compaction interval.
 	 *
-	 * @param fileName The name of the CSV file to be updated.
-	 * @param country  The name of the country.
-	 * @param city     The name of the city to be deleted.
-	 * @param cityId   The ID of the city to be deleted.
-	 * @throws InvalidCountryException   If the specified country is not found.
-	 * @throws DatabaseNotFoundException If the air quality database is not found.
+	 * @param fileName The name of the CSV file.
+	 * @throws DatabaseNotFoundException If the CSV file or its journal cannot be written.
 	 */
-	public static void deleteCsvLine(String fileName, String country, String city,
-									 int cityId) throws DatabaseNotFoundException, InvalidCountryException {
-		Country targetCountry = Utility.getInstance().getCountryByName(country);
-		for (int i = 0; i < targetCountry.getCities().size(); i++) {
-			if (targetCountry.getCities().get(i).getCityId() == cityId) {
-				targetCountry.getCities().get(i).setAirQuality(new AirQuality(Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER, Constants.DELETED_CHARACTER));
+	public static void compactIfNeeded(String fileName) throws DatabaseNotFoundException {
+		Record record = Record.getInstance();
+		int tombstones = record.getTombstoneCount();
+		long sinceLastCompaction = System.currentTimeMillis() - record.getLastCompactionTime();
+		if (tombstones >= Constants.COMPACTION_TOMBSTONE_THRESHOLD
+				|| record.getUnusedRowCount() >= Constants.COMPACTION_TOMBSTONE_THRESHOLD
+				|| (tombstones > 0 && sinceLastCompaction >= Constants.COMPACTION_INTERVAL_SECONDS * 1000)) {
+			compact(fileName);
+		}
+	}
+
+	/**
+	 * Removes the deleted cities from the Record singleton instance and from the CSV file. The record is compacted
+	 * in memory and then written out as a checkpoint, so the "N/A" rows of the deleted cities are no longer loaded.
+	 * Readers are not blocked, as the compacted record is swapped in with a single assignment.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @throws DatabaseNotFoundException If the CSV file or its journal cannot be written.
+	 */
+	public static void compact(String fileName) throws DatabaseNotFoundException {
+		WRITE_LOCKS.lockAll();
+		try {
+			// The file changed since it was loaded and must be loaded again first
+			if (!isLoaded(fileName)) {
+				return;
 			}
+			Record.getInstance().compact();
+			writeCheckpoint(fileName);
+		} finally {
+			WRITE_LOCKS.unlockAll();
 		}
-		clearFile(fileName);
+	}
 
-		try (FileWriter fileWriter = new FileWriter(fileName, true)) {
-			fileWriter.append(Constants.CSV_HEADER);
-			fileWriter.append("\n");
-			for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-				Country printingCountry = Record.getInstance().getCountryRecords().get(i);
-				for (int y = 0; y < printingCountry.getCities().size(); y++) {
-					City printingCity = printingCountry.getCities().get(y);
-					fileWriter.append(printingCountry.getName()).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getName()).append(Constants.DELIMITER);
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getAqiCategory()).append(Constants.DELIMITER);
+	/**
+	 * Writes a new CSV file from the Record singleton instance next to the current one, moves it over the current
+	 * one and empties the journal. Callers must hold the lock on the whole dataset.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @throws DatabaseNotFoundException If the CSV file or its journal cannot be written.
+	 */
+	private static void writeCheckpoint(String fileName) throws DatabaseNotFoundException {
+		CsvJournal journal = getJournal(fileName);
+		File file = new File(fileName);
+		try {
+			Path target = file.toPath();
+			Path temporary = Paths.get(fileName + Constants.CHECKPOINT_FILE_SUFFIX);
+			// Rows carry their city id and are written in id order, so reading them back keeps both ids and order
+			int idCount = City.peekNextId();
+			City[] citiesById = new City[idCount];
+			String[] countriesById = new String[idCount];
+			for (Country country : Record.getInstance().getCountryRecords()) {
+				for (City city : country.getCities()) {
+					citiesById[city.getCityId()] = city;
+					countriesById[city.getCityId()] = country.getName();
+				}
+			}
+			try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+				writer.append(Constants.CSV_HEADER).append("\n");
+				for (int cityId = 0; cityId < citiesById.length; cityId++) {
+					if (citiesById[cityId] != null) {
+						writeCsvLine(writer, countriesById[cityId], citiesById[cityId]);
+					}
+				}
+			}
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+				channel.force(true);
+			}
+			Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			journal.truncate();
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getCoAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getCoAqiCategory()).append(Constants.DELIMITER);
+			// The new file holds what is already in memory, so it does not need to be loaded again
+			loadedLastModified = file.lastModified();
+			loadedFileSize = file.length();
+		} catch (IOException e) {
+			throw new DatabaseNotFoundException("Cannot Write Database", 503);
+		}
+	}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getOzoneAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getOzoneAqiCategory()).append(Constants.DELIMITER);
+	/**
+	 * Checks whether the Record singleton instance was loaded from the current contents of the CSV file.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @return True if the file has not changed since it was loaded, false otherwise.
+	 */
+	private static boolean isLoaded(String fileName) {
+		File file = new File(fileName);
+		return file.lastModified() == loadedLastModified && file.length() == loadedFileSize;
+	}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getNoAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getNoAqiCategory()).append(Constants.DELIMITER);
+	/**
+	 * Closes the journal of the CSV file, if it is open.
+	 */
+	public static synchronized void closeJournal() {
+		if (journal != null) {
+			try {
+				journal.close();
+			} catch (IOException e) {
+				System.err.println(e.getLocalizedMessage());
+			}
+			journal = null;
+		}
+	}
 
-					fileWriter.append(String.valueOf(printingCity.getAirQuality().getPmAqiValue())).append(Constants.DELIMITER);
-					fileWriter.append(printingCity.getAirQuality().getPmAqiCategory()).append(Constants.DELIMITER);
-					fileWriter.append("\n");
+	/**
+	 * Makes sure the Record singleton instance holds the current contents of the CSV file.
+	 * The file is only parsed again when its last-modified time or size differs from the
+	 * values seen at the previous load, so requests normally read straight from memory.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @throws DatabaseNotFoundException If there is an issue with the database.
+	 */
+	public static void refreshDataIfChanged(String fileName) throws DatabaseNotFoundException {
+		File file = new File(fileName);
+		if (!file.isFile()) {
+			throw new DatabaseNotFoundException("Cannot Connect to Database", 503);
+		}
+		if (file.lastModified() != loadedLastModified || file.length() != loadedFileSize) {
+			WRITE_LOCKS.lockAll();
+			try {
+				// Another request may have reloaded the file while this one was waiting
+				if (file.lastModified() != loadedLastModified || file.length() != loadedFileSize) {
+					loadDataFromCSV(fileName);
 				}
+			} finally {
+				WRITE_LOCKS.unlockAll();
 			}
-		} catch (IOException e) {
-			throw new RuntimeException(e);
 		}
-		CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
 	}
 
 	/**
-	 * Reads data from the CSV file and populates the Record singleton instance.
+	 * Reads data from the CSV file and populates the Record singleton instance, then replays the changes recorded
+	 * in the journal of the CSV file since its last checkpoint. The data is built up privately and published in
+	 * a single step once complete, so readers keep seeing the previous data until then.
 	 *
 	 * @param fileName The name of the CSV file.
 	 * @throws DatabaseNotFoundException If there is an issue with the database.
 	 */
 	public static void readDataFromCSV(String fileName) throws DatabaseNotFoundException {
-		Record.getInstance().setCountryRecords(new ArrayList<>());
-		City.nextId = 1;
+		WRITE_LOCKS.lockAll();
+		try {
+			loadDataFromCSV(fileName);
+		} finally {
+			WRITE_LOCKS.unlockAll();
+		}
+	}
+
+	/**
+	 * Reads data from the CSV file and its journal and publishes it to the Record singleton instance.
+	 * Callers must hold the lock on the whole dataset.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @throws DatabaseNotFoundException If there is an issue with the database.
+	 */
+	private static void loadDataFromCSV(String fileName) throws DatabaseNotFoundException {
+		City.resetIds();
 		File file = new File(fileName);
-		try (Scanner fileReader = new Scanner(file)) {
+		// Taken before parsing so that a change made during the load is picked up next time
+		loadedLastModified = file.lastModified();
+		loadedFileSize = file.length();
+		try {
+			RecordLoader loader = new RecordLoader();
+			if (file.length() >= Constants.PARALLEL_LOAD_MIN_FILE_SIZE) {
+				readRowsInParallel(file, loader);
+			} else {
+				readRows(file, loader);
+			}
+			replayJournal(fileName, loader);
+			Record.getInstance().replaceCountryRecords(loader.countries, loader.airQualityColumns);
+		} catch (FileNotFoundException | NoSuchFileException e) {
+			throw new DatabaseNotFoundException("Cannot Connect to Database", 503);
+		} catch (IOException e) {
+			throw new DatabaseNotFoundException("Cannot Read Database", 503);
+		}
+	}
 
-			fileReader.useDelimiter(",");
-			fileReader.nextLine();
-			while (fileReader.hasNext()) {
+	/**
+	 * Reads the rows of the CSV file one after another.
+	 *
+	 * @param file   The CSV file.
+	 * @param loader The RecordLoader building the new data.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static void readRows(File file, RecordLoader loader) throws IOException {
+		try (CsvTokenizer tokenizer = new CsvTokenizer(new FileInputStream(file))) {
+			tokenizer.skipLine();
+			while (true) {
 				try {
-					String country = Utility.getInstance().isString(fileReader.next());
-					String city = Utility.getInstance().isString(fileReader.next());
-					String aqiValue = Utility.getInstance().isInteger(fileReader.next());
-					String aqiCategory = Utility.getInstance().isString(fileReader.next());
-					String coAqiValue = Utility.getInstance().isInteger(fileReader.next());
-					String coAqiCategory = Utility.getInstance().isString(fileReader.next());
-					String ozoneAqiValue = Utility.getInstance().isInteger(fileReader.next());
-					String ozoneAqiCategory = Utility.getInstance().isString(fileReader.next());
-					String noAqiValue = Utility.getInstance().isInteger(fileReader.next());
-					String noAqiCategory = Utility.getInstance().isString(fileReader.next());
-					String pmAqiValue = Utility.getInstance().isInteger(fileReader.next());
-					String pmAqiCategory = Utility.getInstance().isString(fileReader.nextLine().replaceAll(Constants.DELIMITER, Constants.BLANK).trim());
-
-					if (!Utility.getInstance().doesCountryExist(country)) {
-						Country newCountry = new FluentCountryBuilder(country).startCity(city).addAirQuality(aqiValue, aqiCategory, coAqiValue, coAqiCategory, ozoneAqiValue, ozoneAqiCategory, noAqiValue, noAqiCategory, pmAqiValue, pmAqiCategory).endCity().build();
-						Record.getInstance().getCountryRecords().add(newCountry);
-					} else {
-						City newCity = new FluentCityBuilder(city).addAirQuality(aqiValue, aqiCategory, coAqiValue, coAqiCategory, ozoneAqiValue, ozoneAqiCategory, noAqiValue, noAqiCategory, pmAqiValue, pmAqiCategory).build();
-						Utility.getInstance().getCountryByName(country).getCities().add(newCity);
+					if (!tokenizer.nextRow()) {
+						break;
 					}
-				} catch (InvalidRecordException | InvalidCountryException e) {
-					fileReader.nextLine();
+					loader.addRow(tokenizer.getCountry(), tokenizer.getCity(), tokenizer.getCityId(), tokenizer.getValues(), tokenizer.getCategories());
+				} catch (InvalidRecordException e) {
+					System.err.println(e.getLocalizedMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the CSV file in parallel chunks and then adds the rows in file order.
+	 *
+	 * @param file   The CSV file.
+	 * @param loader The RecordLoader building the new data.
+	 * @throws IOException If the file cannot be read.
+	 */
+	private static void readRowsInParallel(File file, RecordLoader loader) throws IOException {
+		int[] values = new int[Pollutant.values().length];
+		AqiCategory[] categories = new AqiCategory[values.length];
+		for (ParallelCsvLoader.ParsedChunk chunk : ParallelCsvLoader.parse(file)) {
+			for (String error : chunk.getErrors()) {
+				System.err.println(error);
+			}
+			for (int row = 0; row < chunk.size(); row++) {
+				chunk.copyAirQuality(row, values, categories);
+				try {
+					loader.addRow(chunk.getCountry(row), chunk.getCity(row), chunk.getCityId(row), values, categories);
+				} catch (InvalidRecordException e) {
 					System.err.println(e.getLocalizedMessage());
-				} catch (InvalidAqiCategoryException | InvalidAqiValueException e) {
-					throw new RuntimeException(e);
 				}
 			}
-		} catch (FileNotFoundException e) {
-			throw new DatabaseNotFoundException("Cannot Connect to Database", 403);
 		}
 	}
 
 	/**
-	 * Clears the content of the specified file.
-	 * This method opens the file for writing and immediately closes it, effectively clearing its content.
+	 * Replays the journal of the CSV file over the data read from the file. Each entry replaces the reading of
+	 * its city, creating the city first if it does not exist yet.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @param loader   The RecordLoader building the new data.
+	 * @throws IOException If the journal cannot be read.
+	 */
+	private static void replayJournal(String fileName, RecordLoader loader) throws IOException {
+		Path journalPath = getJournal(fileName).getPath();
+		if (!Files.exists(journalPath)) {
+			return;
+		}
+		try (CsvTokenizer tokenizer = new CsvTokenizer(Files.newInputStream(journalPath))) {
+			while (true) {
+				try {
+					if (!tokenizer.nextRow()) {
+						break;
+					}
+					loader.putRow(tokenizer.getCountry(), tokenizer.getCity(), tokenizer.getCityId(), tokenizer.getValues(), tokenizer.getCategories());
+				} catch (InvalidRecordException e) {
+					System.err.println("Journal: " + e.getLocalizedMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends an entry to the journal of the CSV file and waits until it is durable.
 	 *
-	 * @param fileName The name of the file to be cleared.
+	 * @param fileName The name of the CSV file.
+	 * @param line     The entry, in the format of a row of the CSV file.
+	 * @throws DatabaseNotFoundException If the journal cannot be written.
+	 */
+	private static void writeJournal(String fileName, String line) throws DatabaseNotFoundException {
+		awaitJournal(enqueueJournal(fileName, line));
+	}
+
+	/**
+	 * Queues entries to be appended to the journal of the CSV file by its writer thread.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @param lines    The entries, in the format of rows of the CSV file.
+	 * @return A future completed once the entries are durable.
 	 */
-	private static void clearFile(String fileName) {
-		// Clear the CSV file
-		try (FileWriter fileWriter = new FileWriter(fileName)) {
-			// Do nothing here, just close the file to clear its content
+	private static CompletableFuture<Void> enqueueJournal(String fileName, String lines) {
+		return getJournal(fileName).enqueue(lines);
+	}
+
+	/**
+	 * Waits for entries queued to the journal of the CSV file to become durable.
+	 *
+	 * @param written The future returned by enqueueJournal.
+	 * @throws DatabaseNotFoundException If the journal cannot be written.
+	 */
+	private static void awaitJournal(CompletableFuture<Void> written) throws DatabaseNotFoundException {
+		try {
+			CsvJournal.await(written);
 		} catch (IOException e) {
-			e.printStackTrace();
+			throw new DatabaseNotFoundException("Cannot Write Database", 503);
+		}
+	}
+
+	/**
+	 * Gets the journal of the CSV file, replacing the open journal if it belongs to another file.
+	 *
+	 * @param fileName The name of the CSV file.
+	 * @return The CsvJournal of the file.
+	 */
+	private static synchronized CsvJournal getJournal(String fileName) {
+		if (journal == null || !journal.getPath().equals(Paths.get(fileName + Constants.JOURNAL_FILE_SUFFIX))) {
+			closeJournal();
+			journal = new CsvJournal(fileName);
+		}
+		return journal;
+	}
+
+	/**
+	 * Formats an air quality reading as a row of the CSV file.
+	 *
+	 * @param country    The country name.
+	 * @param city       The city name.
+	 * @param cityId     The city id, or 0 to leave it out.
+	 * @param airQuality The AirQuality object.
+	 * @return The row, ending with a line break.
+	 */
+	private static String toCsvLine(String country, String city, int cityId, AirQuality airQuality) {
+		StringBuilder line = new StringBuilder(128);
+		line.append(country).append(Constants.DELIMITER);
+		line.append(city).append(Constants.DELIMITER);
+		for (Pollutant pollutant : Pollutant.values()) {
+			line.append(pollutant.getValue(airQuality)).append(Constants.DELIMITER);
+			line.append(pollutant.getCategory(airQuality)).append(Constants.DELIMITER);
+		}
+		if (cityId > 0) {
+			line.append(cityId);
+		}
+		return line.append("\n").toString();
+	}
+
+	/**
+	 * Writes the reading and id of a city as a row of the CSV file, reading it straight from the columnar store.
+	 *
+	 * @param writer  The writer of the CSV file.
+	 * @param country The country name.
+	 * @param city    The City object.
+	 * @throws IOException If the row cannot be written.
+	 */
+	private static void writeCsvLine(Writer writer, String country, City city) throws IOException {
+		writer.append(country).append(Constants.DELIMITER);
+		writer.append(city.getName()).append(Constants.DELIMITER);
+		for (Pollutant pollutant : Pollutant.values()) {
+			int value = city.getAqiValue(pollutant);
+			AqiCategory category = city.getAqiCategory(pollutant);
+			writer.append(value == AirQualityColumns.NOT_AVAILABLE ? Constants.DELETED_CHARACTER : String.valueOf(value)).append(Constants.DELIMITER);
+			writer.append(category == null ? Constants.DELETED_CHARACTER : category.getLabel()).append(Constants.DELIMITER);
+		}
+		writer.append(String.valueOf(city.getCityId())).append("\n");
+	}
+
+	/**
+	 * RecordLoader class builds up the countries, cities and columnar store read from the CSV file and its journal
+	 * before they are published to the Record singleton instance.
+	 */
+	private static class RecordLoader {
+
+		// The countries read so far, in the order of their first row
+		private final ArrayList<Country> countries = new ArrayList<>();
+
+		// Index of the countries read so far, keyed by normalised country name
+		private final HashMap<String, Country> countryIndex = new HashMap<>();
+
+		// The columnar store holding the readings of the cities read so far
+		private final AirQualityColumns airQualityColumns = new AirQualityColumns();
+
+		// The ids of the cities read so far
+		private final BitSet cityIds = new BitSet();
+
+		/**
+		 * Adds a row as a new city, creating its country if needed. The city keeps the id given by the row, unless
+		 * the row has none or another city already took it, in which case it gets a new one.
+		 *
+		 * @param country    The country name.
+		 * @param city       The city name.
+		 * @param cityId     The city id, or 0 if the row does not give one.
+		 * @param values     The AQI value of each pollutant, indexed by pollutant ordinal.
+		 * @param categories The AQI category of each pollutant, indexed by pollutant ordinal.
+		 * @throws InvalidRecordException If the country or city cannot be created.
+		 */
+		void addRow(String country, String city, int cityId, int[] values, AqiCategory[] categories) throws InvalidRecordException {
+			try {
+				Country targetCountry = countryIndex.get(Location.toKey(country));
+				if (targetCountry == null) {
+					targetCountry = new FluentCountryBuilder(country).build();
+					countries.add(targetCountry);
+					countryIndex.put(Location.toKey(country), targetCountry);
+				}
+				int airQualityRow = airQualityColumns.append(values, categories);
+				City newCity;
+				if (cityId > 0 && !cityIds.get(cityId)) {
+					newCity = City.restore(city, cityId);
+					newCity.bindAirQuality(airQualityColumns, airQualityRow);
+				} else {
+					newCity = new FluentCityBuilder(city).addAirQuality(airQualityColumns, airQualityRow).build();
+				}
+				targetCountry.addCity(newCity);
+				cityIds.set(newCity.getCityId());
+			} catch (InvalidCountryException e) {
+				throw new InvalidRecordException(e.getMessage(), 500);
+			}
+		}
+
+		/**
+		 * Replaces the reading of the city of a row, or adds the row as a new city if it does not exist yet.
+		 *
+		 * @param country    The country name.
+		 * @param city       The city name.
+		 * @param cityId     The city id, or 0 if the row does not give one.
+		 * @param values     The AQI value of each pollutant, indexed by pollutant ordinal.
+		 * @param categories The AQI category of each pollutant, indexed by pollutant ordinal.
+		 * @throws InvalidRecordException If the country or city cannot be created.
+		 */
+		void putRow(String country, String city, int cityId, int[] values, AqiCategory[] categories) throws InvalidRecordException {
+			Country targetCountry = countryIndex.get(Location.toKey(country));
+			City targetCity = targetCountry == null ? null : targetCountry.getCity(city);
+			if (targetCity == null) {
+				addRow(country, city, cityId, values, categories);
+			} else {
+				targetCity.bindAirQuality(airQualityColumns, airQualityColumns.append(values, categories));
+			}
 		}
 	}
 }
@@ -0,0 +1,436 @@
+/**
+ * CsvTokenizer file provides a streaming reader for the rows of the air quality dataset.
+ */
+package com.airquality.csv;
+
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.exceptions.InvalidRecordException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CsvTokenizer class reads the rows of the air quality dataset from a stream, one row at a time.
+ * It works directly on the bytes of a reusable buffer: AQI values are parsed digit by digit and AQI categories
+ * are matched against the known labels, so only the country and city names are turned into strings.
+ * Each row has twelve fields, optionally followed by a thirteenth holding the id of the city, as written by
+ * CsvReadWrite. The rows of the original dataset leave the id field empty after a trailing delimiter, or leave it
+ * out altogether.
+ */
+public class CsvTokenizer implements Closeable {
+
+    // The number of fields in a row of the dataset
+    private static final int FIELD_COUNT = 12;
+
+    // The initial size of the read buffer, which grows if a single line does not fit
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Cached copy of Pollutant.values(), which allocates a new array on every call
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // Cached copy of AqiCategory.values(), which allocates a new array on every call
+    private static final AqiCategory[] CATEGORIES = AqiCategory.values();
+
+    // The label of each AQI category as bytes, indexed by category ordinal
+    private static final byte[][] CATEGORY_LABELS = new byte[CATEGORIES.length][];
+
+    // The "N/A" placeholder for deleted data as bytes
+    private static final byte[] DELETED_LABEL = Constants.DELETED_CHARACTER.getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        for (AqiCategory category : CATEGORIES) {
+            CATEGORY_LABELS[category.ordinal()] = category.getLabel().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    // The stream the dataset is read from
+    private final InputStream inputStream;
+
+    // The read buffer, holding the unread part of the stream between start and end
+    private byte[] buffer = new byte[BUFFER_SIZE];
+
+    // The position of the first unread byte in the buffer
+    private int start;
+
+    // The position after the last byte read into the buffer
+    private int end;
+
+    // Whether the end of the stream has been reached
+    private boolean endOfStream;
+
+    // The number of the line most recently read, starting at 1
+    private int lineNumber;
+
+    // The start position of each field of the current line, including the id field, plus the position after it
+    private final int[] fieldBounds = new int[FIELD_COUNT + 2];
+
+    // The country name of the current row
+    private String country;
+
+    // The city name of the current row
+    private String city;
+
+    // The city id of the current row, or 0 if the row does not give one
+    private int cityId;
+
+    // The AQI value of each pollutant in the current row, indexed by pollutant ordinal
+    private final int[] values = new int[POLLUTANTS.length];
+
+    // The AQI category of each pollutant in the current row, indexed by pollutant ordinal
+    private final AqiCategory[] categories = new AqiCategory[POLLUTANTS.length];
+
+    /**
+     * Constructs a CsvTokenizer reading from the given stream.
+     *
+     * @param inputStream The stream to read the dataset from.
+     */
+    public CsvTokenizer(InputStream inputStream) {
+        this(inputStream, 1);
+    }
+
+    /**
+     * Constructs a CsvTokenizer reading from the given stream, where the stream starts part way through the
+     * dataset. Line numbers in error messages are counted from the given number.
+     *
+     * @param inputStream     The stream to read the dataset from.
+     * @param firstLineNumber The line number of the first line of the stream.
+     */
+    public CsvTokenizer(InputStream inputStream, int firstLineNumber) {
+        this.inputStream = inputStream;
+        this.lineNumber = firstLineNumber - 1;
+    }
+
+    /**
+     * Skips the next line without parsing it, such as the header line.
+     *
+     * @return True if a line was skipped, false if the end of the stream was reached.
+     * @throws IOException If the stream cannot be read.
+     */
+    public boolean skipLine() throws IOException {
+        int lineEnd = nextLineEnd();
+        if (lineEnd < 0) {
+            return false;
+        }
+        consumeLine(lineEnd);
+        return true;
+    }
+
+    /**
+     * Reads the next row of the dataset. Blank lines are skipped.
+     * If the row is invalid the exception names its line number, and the next call continues with the following line.
+     *
+     * @return True if a row was read, false if the end of the stream was reached.
+     * @throws IOException            If the stream cannot be read.
+     * @throws InvalidRecordException If the row does not have the expected fields or contains an invalid value.
+     */
+    public boolean nextRow() throws IOException, InvalidRecordException {
+        while (true) {
+            int lineEnd = nextLineEnd();
+            if (lineEnd < 0) {
+                return false;
+            }
+            int lineStart = start;
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer[contentEnd - 1] == '\r') {
+                contentEnd--;
+            }
+            consumeLine(lineEnd);
+            if (contentEnd > lineStart) {
+                parseLine(lineStart, contentEnd);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of the line most recently read, starting at 1 for the first line of the stream.
+     *
+     * @return The line number.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets the country name of the current row.
+     *
+     * @return The country name.
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Gets the city name of the current row.
+     *
+     * @return The city name.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Gets the city id of the current row.
+     *
+     * @return The city id, or 0 if the row does not give one.
+     */
+    public int getCityId() {
+        return cityId;
+    }
+
+    /**
+     * Gets the AQI values of the current row. The array is reused for every row.
+     *
+     * @return The AQI value of each pollutant, indexed by pollutant ordinal, or AirQualityColumns.NOT_AVAILABLE.
+     */
+    public int[] getValues() {
+        return values;
+    }
+
+    /**
+     * Gets the AQI categories of the current row. The array is reused for every row.
+     *
+     * @return The AQI category of each pollutant, indexed by pollutant ordinal, or null if not available.
+     */
+    public AqiCategory[] getCategories() {
+        return categories;
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException If the stream cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+
+    /**
+     * Finds the end of the next line, reading more of the stream into the buffer as needed.
+     * The last line of the stream does not need to end with a line break.
+     *
+     * @return The position of the line break ending the next line, or of the end of the data for a final line
+     * without one, or -1 if there are no more lines.
+     * @throws IOException If the stream cannot be read.
+     */
+    private int nextLineEnd() throws IOException {
+        int scanFrom = start;
+        while (true) {
+            for (int i = scanFrom; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    return i;
+                }
+            }
+            scanFrom = end;
+            if (endOfStream) {
+                return start < end ? end : -1;
+            }
+            scanFrom -= fill();
+        }
+    }
+
+    /**
+     * Moves past the line found by nextLineEnd and counts it. The bytes of the line stay in the buffer until
+     * the next call to nextLineEnd.
+     *
+     * @param lineEnd The position returned by nextLineEnd.
+     */
+    private void consumeLine(int lineEnd) {
+        start = lineEnd < end ? lineEnd + 1 : end;
+        lineNumber++;
+    }
+
+    /**
+     * Reads more of the stream into the buffer, first moving the unread bytes to the front of the buffer
+     * and growing it if it is already full.
+     *
+     * @return The number of positions the unread bytes moved towards the front of the buffer.
+     * @throws IOException If the stream cannot be read.
+     */
+    private int fill() throws IOException {
+        int shift = start;
+        if (shift > 0) {
+            System.arraycopy(buffer, start, buffer, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if (end == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length << 1);
+        }
+        int read = inputStream.read(buffer, end, buffer.length - end);
+        if (read < 0) {
+            endOfStream = true;
+        } else {
+            end += read;
+        }
+        return shift;
+    }
+
+    /**
+     * Splits a line into fields and decodes them into the current row.
+     *
+     * @param lineStart The position of the first byte of the line.
+     * @param lineEnd   The position after the last byte of the line, excluding the line break.
+     * @throws InvalidRecordException If the line does not have the expected fields or contains an invalid value.
+     */
+    private void parseLine(int lineStart, int lineEnd) throws InvalidRecordException {
+        int fields = 0;
+        fieldBounds[0] = lineStart;
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer[i] == ',') {
+                if (++fields > FIELD_COUNT) {
+                    throw invalid("expected " + FIELD_COUNT + " fields");
+                }
+                fieldBounds[fields] = i + 1;
+            }
+        }
+        if (fields == FIELD_COUNT - 1) {
+            // Mark where the last field would end if the line had a trailing delimiter, and leave the id field empty
+            fieldBounds[FIELD_COUNT] = lineEnd + 1;
+            fieldBounds[FIELD_COUNT + 1] = lineEnd + 1;
+        } else if (fields == FIELD_COUNT) {
+            fieldBounds[FIELD_COUNT + 1] = lineEnd + 1;
+        } else {
+            throw invalid("expected " + FIELD_COUNT + " fields");
+        }
+
+        country = parseName(0);
+        city = parseName(1);
+        for (Pollutant pollutant : POLLUTANTS) {
+            int field = 2 + pollutant.ordinal() * 2;
+            values[pollutant.ordinal()] = parseValue(field);
+            categories[pollutant.ordinal()] = parseCategory(field + 1);
+        }
+        cityId = parseCityId(FIELD_COUNT);
+    }
+
+    /**
+     * Decodes a location name field.
+     *
+     * @param field The index of the field.
+     * @return The name.
+     */
+    private String parseName(int field) {
+        int from = fieldBounds[field];
+        int to = fieldBounds[field + 1] - 1;
+        return new String(buffer, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes an AQI value field, which must be a non-negative integer or "N/A".
+     *
+     * @param field The index of the field.
+     * @return The AQI value, or AirQualityColumns.NOT_AVAILABLE for "N/A".
+     * @throws InvalidRecordException If the field is not a valid AQI value.
+     */
+    private int parseValue(int field) throws InvalidRecordException {
+        int from = fieldBounds[field];
+        int to = fieldBounds[field + 1] - 1;
+        if (matches(from, to, DELETED_LABEL)) {
+            return AirQualityColumns.NOT_AVAILABLE;
+        }
+        if (from >= to || to - from > 9) {
+            throw invalid("invalid AQI value");
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid("invalid AQI value");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Decodes the city id field, which must be empty or a positive integer.
+     *
+     * @param field The index of the field.
+     * @return The city id, or 0 if the field is empty.
+     * @throws InvalidRecordException If the field is not a valid city id.
+     */
+    private int parseCityId(int field) throws InvalidRecordException {
+        int from = fieldBounds[field];
+        int to = fieldBounds[field + 1] - 1;
+        if (from >= to) {
+            return 0;
+        }
+        if (to - from > 9) {
+            throw invalid("invalid city id");
+        }
+        int id = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw invalid("invalid city id");
+            }
+            id = id * 10 + digit;
+        }
+        if (id == 0) {
+            throw invalid("invalid city id");
+        }
+        return id;
+    }
+
+    /**
+     * Decodes an AQI category field, which must be one of the known category labels or "N/A".
+     *
+     * @param field The index of the field.
+     * @return The AqiCategory, or null for "N/A".
+     * @throws InvalidRecordException If the field is not a known AQI category.
+     */
+    private AqiCategory parseCategory(int field) throws InvalidRecordException {
+        int from = fieldBounds[field];
+        int to = fieldBounds[field + 1] - 1;
+        if (matches(from, to, DELETED_LABEL)) {
+            return null;
+        }
+        for (AqiCategory category : CATEGORIES) {
+            if (matches(from, to, CATEGORY_LABELS[category.ordinal()])) {
+                return category;
+            }
+        }
+        throw invalid("invalid AQI category");
+    }
+
+    /**
+     * Compares a range of the buffer with an ASCII label, ignoring case.
+     *
+     * @param from  The position of the first byte of the range.
+     * @param to    The position after the last byte of the range.
+     * @param label The label to compare with.
+     * @return True if the range holds the label, false otherwise.
+     */
+    private boolean matches(int from, int to, byte[] label) {
+        if (to - from != label.length) {
+            return false;
+        }
+        for (int i = 0; i < label.length; i++) {
+            int b = buffer[from + i];
+            int l = label[i];
+            boolean letter = (l | 0x20) >= 'a' && (l | 0x20) <= 'z';
+            if (b != l && !(letter && (b | 0x20) == (l | 0x20))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the exception reported for an invalid row.
+     *
+     * @param reason The reason the row is invalid.
+     * @return The InvalidRecordException naming the line of the row.
+     */
+    private InvalidRecordException invalid(String reason) {
+        return new InvalidRecordException("Database record entry invalid on line " + lineNumber + ": " + reason, 500);
+    }
+}
@@ -0,0 +1,356 @@
+/**
+ * ParallelCsvLoader file parses large dataset files in parallel using memory-mapped chunks.
+ */
+package com.airquality.csv;
+
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.exceptions.InvalidRecordException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelCsvLoader class parses a dataset file in parallel. The file is split into chunks that end on line
+ * breaks, each chunk is memory-mapped and parsed by its own task on the common fork-join pool, and the parsed
+ * rows are returned chunk by chunk in file order so that they can be added to the Record in the same order as
+ * a sequential load, giving the same city ids.
+ */
+class ParallelCsvLoader {
+
+    /**
+     * Private constructor to prevent instantiation of the ParallelCsvLoader class.
+     */
+    private ParallelCsvLoader() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Parses every row of the dataset file, skipping the header line.
+     *
+     * @param file The dataset file.
+     * @return The parsed chunks, in file order.
+     * @throws IOException If the file cannot be read.
+     */
+    static List<ParsedChunk> parse(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long[] bounds = findChunkBounds(channel);
+            int chunkCount = bounds.length - 1;
+            MappedByteBuffer[] chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]);
+            }
+
+            // Count the lines of every chunk first, so that each chunk knows the line number it starts at
+            List<Callable<Integer>> counters = new ArrayList<>();
+            for (MappedByteBuffer chunk : chunks) {
+                counters.add(() -> countLines(chunk));
+            }
+            List<Integer> lineCounts = invokeAll(counters);
+
+            List<Callable<ParsedChunk>> parsers = new ArrayList<>();
+            int firstLineNumber = 1;
+            for (int i = 0; i < chunkCount; i++) {
+                MappedByteBuffer chunk = chunks[i];
+                boolean header = i == 0;
+                int chunkFirstLine = firstLineNumber;
+                parsers.add(() -> parseChunk(chunk, chunkFirstLine, header));
+                firstLineNumber += lineCounts.get(i);
+            }
+            return invokeAll(parsers);
+        }
+    }
+
+    /**
+     * Splits the file into chunks of roughly the configured size, moving each boundary forward to just after
+     * the next line break.
+     *
+     * @param channel The channel of the dataset file.
+     * @return The start offset of each chunk, followed by the size of the file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static long[] findChunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long position = Constants.PARALLEL_LOAD_CHUNK_SIZE;
+
+        while (position < size) {
+            long boundary = -1;
+            long scan = position;
+            while (boundary < 0 && scan < size) {
+                probe.clear();
+                int read = channel.read(probe, scan);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        boundary = scan + i + 1;
+                        break;
+                    }
+                }
+                scan += read;
+            }
+            if (boundary < 0 || boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            position = boundary + Constants.PARALLEL_LOAD_CHUNK_SIZE;
+        }
+        bounds.add(size);
+
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Counts the lines in a chunk. A final line without a line break counts as a line.
+     *
+     * @param chunk The mapped chunk.
+     * @return The number of lines.
+     */
+    private static int countLines(ByteBuffer chunk) {
+        int limit = chunk.limit();
+        int lines = 0;
+        for (int i = 0; i < limit; i++) {
+            if (chunk.get(i) == '\n') {
+                lines++;
+            }
+        }
+        if (limit > 0 && chunk.get(limit - 1) != '\n') {
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * Parses the rows of a chunk.
+     *
+     * @param chunk           The mapped chunk.
+     * @param firstLineNumber The line number of the first line of the chunk.
+     * @param header          Whether the chunk starts with the header line.
+     * @return The parsed rows of the chunk.
+     * @throws IOException If the chunk cannot be read.
+     */
+    private static ParsedChunk parseChunk(ByteBuffer chunk, int firstLineNumber, boolean header) throws IOException {
+        ParsedChunk parsed = new ParsedChunk();
+        try (CsvTokenizer tokenizer = new CsvTokenizer(new ByteBufferInputStream(chunk.duplicate()), firstLineNumber)) {
+            if (header) {
+                tokenizer.skipLine();
+            }
+            while (true) {
+                try {
+                    if (!tokenizer.nextRow()) {
+                        break;
+                    }
+                    parsed.add(tokenizer);
+                } catch (InvalidRecordException e) {
+                    parsed.errors.add(e.getLocalizedMessage());
+                }
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Runs the tasks on the common fork-join pool and waits for all of them.
+     *
+     * @param tasks The tasks to run.
+     * @param <T>   The result type of the tasks.
+     * @return The results of the tasks, in the order of the tasks.
+     * @throws IOException If a task fails.
+     */
+    private static <T> List<T> invokeAll(List<Callable<T>> tasks) throws IOException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : ForkJoinPool.commonPool().invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the dataset", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Failed to load the dataset", e.getCause());
+        }
+        return results;
+    }
+
+    /**
+     * ParsedChunk class holds the rows parsed from one chunk of the dataset file, column by column.
+     */
+    static class ParsedChunk {
+
+        // The number of pollutants in each row
+        private static final int POLLUTANT_COUNT = Pollutant.values().length;
+
+        // The country name of each row
+        private String[] countries = new String[1024];
+
+        // The city name of each row
+        private String[] cities = new String[1024];
+
+        // The city id of each row, or 0 if the row does not give one
+        private int[] cityIds = new int[1024];
+
+        // The AQI values of each row, POLLUTANT_COUNT entries per row
+        private int[] values = new int[1024 * POLLUTANT_COUNT];
+
+        // The AQI category of each row, POLLUTANT_COUNT entries per row
+        private AqiCategory[] categories = new AqiCategory[1024 * POLLUTANT_COUNT];
+
+        // The number of rows parsed
+        private int size;
+
+        // The messages of the rows that could not be parsed
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Adds the current row of a tokenizer.
+         *
+         * @param tokenizer The tokenizer positioned on a row.
+         */
+        private void add(CsvTokenizer tokenizer) {
+            if (size == countries.length) {
+                int capacity = size << 1;
+                countries = Arrays.copyOf(countries, capacity);
+                cities = Arrays.copyOf(cities, capacity);
+                cityIds = Arrays.copyOf(cityIds, capacity);
+                values = Arrays.copyOf(values, capacity * POLLUTANT_COUNT);
+                categories = Arrays.copyOf(categories, capacity * POLLUTANT_COUNT);
+            }
+            countries[size] = tokenizer.getCountry();
+            cities[size] = tokenizer.getCity();
+            cityIds[size] = tokenizer.getCityId();
+            System.arraycopy(tokenizer.getValues(), 0, values, size * POLLUTANT_COUNT, POLLUTANT_COUNT);
+            System.arraycopy(tokenizer.getCategories(), 0, categories, size * POLLUTANT_COUNT, POLLUTANT_COUNT);
+            size++;
+        }
+
+        /**
+         * Gets the number of rows parsed.
+         *
+         * @return The number of rows.
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Gets the country name of a row.
+         *
+         * @param row The index of the row.
+         * @return The country name.
+         */
+        String getCountry(int row) {
+            return countries[row];
+        }
+
+        /**
+         * Gets the city name of a row.
+         *
+         * @param row The index of the row.
+         * @return The city name.
+         */
+        String getCity(int row) {
+            return cities[row];
+        }
+
+        /**
+         * Gets the city id of a row.
+         *
+         * @param row The index of the row.
+         * @return The city id, or 0 if the row does not give one.
+         */
+        int getCityId(int row) {
+            return cityIds[row];
+        }
+
+        /**
+         * Copies the AQI values and categories of a row into the given arrays.
+         *
+         * @param row           The index of the row.
+         * @param rowValues     The array to receive the AQI values, indexed by pollutant ordinal.
+         * @param rowCategories The array to receive the AQI categories, indexed by pollutant ordinal.
+         */
+        void copyAirQuality(int row, int[] rowValues, AqiCategory[] rowCategories) {
+            System.arraycopy(values, row * POLLUTANT_COUNT, rowValues, 0, POLLUTANT_COUNT);
+            System.arraycopy(categories, row * POLLUTANT_COUNT, rowCategories, 0, POLLUTANT_COUNT);
+        }
+
+        /**
+         * Gets the messages of the rows that could not be parsed.
+         *
+         * @return The error messages, naming the line of each row.
+         */
+        List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    /**
+     * ByteBufferInputStream class reads the remaining bytes of a buffer as a stream.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        // The buffer being read
+        private final ByteBuffer buffer;
+
+        /**
+         * Constructs a ByteBufferInputStream reading the remaining bytes of a buffer.
+         *
+         * @param buffer The buffer to read.
+         */
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Reads the next byte of the buffer.
+         *
+         * @return The byte, or -1 if the buffer has no bytes remaining.
+         */
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        /**
+         * Reads up to the given number of bytes of the buffer into an array.
+         *
+         * @param bytes  The array to read into.
+         * @param offset The position in the array to read into.
+         * @param length The maximum number of bytes to read.
+         * @return The number of bytes read, or -1 if the buffer has no bytes remaining.
+         */
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
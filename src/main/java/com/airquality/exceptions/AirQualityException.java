@@ -0,0 +1,38 @@
+/**
+ * AirQualityException is the base exception file of the errors reported to clients by the service.
+ */
+package com.airquality.exceptions;
+
+/**
+ * AirQualityException is the base class of the exceptions reported to clients, each carrying the HTTP status code
+ * of its response.
+ * <p>
+ * These exceptions describe a request that cannot be served, such as a city that does not exist, rather than a
+ * fault in the code, so they do not capture a stack trace. Creating one then costs no more than its message, and
+ * as nothing about it can change once it is created, the frequent ones are created once and shared.
+ */
+public abstract class AirQualityException extends Exception {
+
+    // The HTTP status code of the response
+    private final int errorCode;
+
+    /**
+     * Constructs an AirQualityException without a stack trace.
+     *
+     * @param message   The formatted error message, sent to the client as it is.
+     * @param errorCode The HTTP status code of the response.
+     */
+    protected AirQualityException(String message, int errorCode) {
+        super(message, null, false, false);
+        this.errorCode = errorCode;
+    }
+
+    /**
+     * Gets the HTTP status code of the response.
+     *
+     * @return The status code.
+     */
+    public int getErrorCode() {
+        return errorCode;
+    }
+}
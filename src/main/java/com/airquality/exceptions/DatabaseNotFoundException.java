@@ -5,18 +5,18 @@ package com.airquality.exceptions;
 
 /**
  * DatabaseNotFoundException is an exception class that is thrown when there is an issue with the database.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class DatabaseNotFoundException extends Exception {
+public class DatabaseNotFoundException extends AirQualityException {
 
     /**
      * Constructs a DatabaseNotFoundException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public DatabaseNotFoundException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "DatabaseNotFoundException - " + message);
+        super("Error " + errorCode + ": " + "DatabaseNotFoundException - " + message, errorCode);
     }
 }
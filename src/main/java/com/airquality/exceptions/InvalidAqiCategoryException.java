@@ -5,19 +5,19 @@ package com.airquality.exceptions;
 
 /**
  * InvalidAqiCategoryException is an exception class that is thrown when an invalid Air Quality Index (AQI) category is encountered.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class InvalidAqiCategoryException extends Exception {
+public class InvalidAqiCategoryException extends AirQualityException {
 
     /**
      * Constructs an InvalidAqiCategoryException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public InvalidAqiCategoryException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "InvalidAqiCategoryException - " + message);
+        super("Error " + errorCode + ": " + "InvalidAqiCategoryException - " + message, errorCode);
     }
 }
 
@@ -5,19 +5,19 @@ package com.airquality.exceptions;
 
 /**
  * InvalidAqiValueException is an exception class that is thrown when an invalid Air Quality Index (AQI) value is encountered.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class InvalidAqiValueException extends Exception {
+public class InvalidAqiValueException extends AirQualityException {
 
     /**
      * Constructs an InvalidAqiValueException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public InvalidAqiValueException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "InvalidAqiValueException - " + message);
+        super("Error " + errorCode + ": " + "InvalidAqiValueException - " + message, errorCode);
     }
 }
 
@@ -5,19 +5,22 @@ package com.airquality.exceptions;
 
 /**
  * InvalidCityException is an exception class that is thrown when an invalid city is encountered.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class InvalidCityException extends Exception {
+public class InvalidCityException extends AirQualityException {
+
+    /** The shared exception reporting a city that is not in the database. */
+    public static final InvalidCityException CITY_NOT_FOUND = new InvalidCityException("City not found in the database", 404);
 
     /**
      * Constructs an InvalidCityException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public InvalidCityException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "InvalidCityException - " + message);
+        super("Error " + errorCode + ": " + "InvalidCityException - " + message, errorCode);
     }
 }
 
@@ -5,19 +5,22 @@ package com.airquality.exceptions;
 
 /**
  * InvalidCountryException is an exception class that is thrown when an invalid country is encountered.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class InvalidCountryException extends Exception {
+public class InvalidCountryException extends AirQualityException {
+
+    /** The shared exception reporting a country that is not in the database. */
+    public static final InvalidCountryException COUNTRY_NOT_FOUND = new InvalidCountryException("Country not found in the database", 404);
 
     /**
      * Constructs an InvalidCountryException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public InvalidCountryException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "InvalidRecordException - " + message);
+        super("Error " + errorCode + ": " + "InvalidRecordException - " + message, errorCode);
     }
 }
 
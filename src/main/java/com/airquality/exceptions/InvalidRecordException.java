@@ -5,19 +5,19 @@ package com.airquality.exceptions;
 
 /**
  * InvalidRecordException is an exception class that is thrown when an invalid record is encountered.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class InvalidRecordException extends Exception {
+public class InvalidRecordException extends AirQualityException {
 
     /**
      * Constructs an InvalidRecordException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public InvalidRecordException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "InvalidRecordException - " + message);
+        super("Error " + errorCode + ": " + "InvalidRecordException - " + message, errorCode);
     }
 }
 
@@ -5,19 +5,28 @@ package com.airquality.exceptions;
 
 /**
  * NoCityFoundException is an exception class that is thrown when no city is found.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class NoCityFoundException extends Exception {
+public class NoCityFoundException extends AirQualityException {
+
+    /** The shared exception reporting a city that is not in the database. */
+    public static final NoCityFoundException CITY_NOT_FOUND = new NoCityFoundException("City not found in the database", 404);
+
+    /** The shared exception reporting a query that matches no city. */
+    public static final NoCityFoundException NO_CITY_FOUND = new NoCityFoundException("No City Found", 404);
+
+    /** The shared exception reporting a dataset without cities. */
+    public static final NoCityFoundException NO_CITIES_FOUND = new NoCityFoundException("No Cities Found", 404);
 
     /**
      * Constructs a NoCityFoundException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public NoCityFoundException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "NoCityFoundException - " + message);
+        super("Error " + errorCode + ": " + "NoCityFoundException - " + message, errorCode);
     }
 }
 
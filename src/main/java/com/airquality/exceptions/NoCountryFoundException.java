@@ -5,19 +5,25 @@ package com.airquality.exceptions;
 
 /**
  * NoCountryFoundException is an exception class that is thrown when no country is found.
- * It extends the base Exception class.
+ * It extends the base AirQualityException class, so it carries the HTTP status code of its response.
  */
-public class NoCountryFoundException extends Exception {
+public class NoCountryFoundException extends AirQualityException {
+
+    /** The shared exception reporting a country that is not in the database. */
+    public static final NoCountryFoundException COUNTRY_NOT_FOUND = new NoCountryFoundException("Country not found in the database", 404);
+
+    /** The shared exception reporting a dataset without countries. */
+    public static final NoCountryFoundException NO_COUNTRIES_FOUND = new NoCountryFoundException("No Countries Found", 404);
 
     /**
      * Constructs a NoCountryFoundException with a custom error message and error code.
      *
      * @param message   A custom error message describing the exception.
-     * @param errorCode An integer error code associated with the exception.
+     * @param errorCode The HTTP status code of the response.
      */
     public NoCountryFoundException(String message, int errorCode) {
         // Calling the base class constructor with a formatted error message
-        super("Error " + errorCode + ": " + "NoCountryFoundException - " + message);
+        super("Error " + errorCode + ": " + "NoCountryFoundException - " + message, errorCode);
     }
 }
 
@@ -0,0 +1,51 @@
+/**
+ * The AuthenticationFilter file checks the credentials of every request before it reaches a resource.
+ */
+package com.airquality.filters;
+
+import com.airquality.auth.CredentialVerifier;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * The AuthenticationFilter class checks the Basic authorization header of every request with the
+ * CredentialVerifier, so that every resource is protected the same way. Requests without valid credentials are
+ * answered with 401 before any resource method runs.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class AuthenticationFilter implements ContainerRequestFilter {
+
+    // The message of responses to requests without valid credentials
+    private static final String INVALID_CREDENTIALS_MESSAGE = "Error 401: Invalid Credentials";
+
+    // The challenge sent with 401 responses, naming the scheme clients must authenticate with
+    private static final String CHALLENGE = "Basic realm=\"airquality\"";
+
+    /**
+     * Constructs an AuthenticationFilter.
+     */
+    public AuthenticationFilter() {
+        // Default constructor
+    }
+
+    /**
+     * Rejects the request with 401 unless its authorization header holds valid credentials.
+     *
+     * @param requestContext The context of the request.
+     */
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        if (!CredentialVerifier.getInstance().isAuthorised(requestContext.getHeaderString(HttpHeaders.AUTHORIZATION))) {
+            requestContext.abortWith(Response.status(401)
+                    .header(HttpHeaders.WWW_AUTHENTICATE, CHALLENGE)
+                    .entity(INVALID_CREDENTIALS_MESSAGE)
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * The DatasetLoaderListener file loads the air quality dataset into memory when the application starts.
+ */
+package com.airquality.listeners;
+
+import com.airquality.constants.Constants;
+import com.airquality.csv.CsvReadWrite;
+import com.airquality.exceptions.DatabaseNotFoundException;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import jakarta.servlet.annotation.WebListener;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The DatasetLoaderListener class loads the air quality dataset into the Record singleton when the application
+ * is deployed, so that the first requests are served from memory instead of parsing the CSV file.
+ * While the application runs it periodically compacts away deleted cities when enough have built up, and folds
+ * the journal of changes into the CSV file.
+ */
+@WebListener
+public class DatasetLoaderListener implements ServletContextListener {
+
+    // Runs the periodic checkpoints of the dataset
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a DatasetLoaderListener.
+     */
+    public DatasetLoaderListener() {
+        // Default constructor
+    }
+
+    /**
+     * Loads the dataset when the application starts.
+     *
+     * @param event The servlet context event.
+     */
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        try {
+            CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        } catch (DatabaseNotFoundException e) {
+            // Requests will keep trying to load the file until it becomes available
+            System.err.println(e.getLocalizedMessage());
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "air-quality-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(DatasetLoaderListener::checkpoint, Constants.CHECKPOINT_INTERVAL_SECONDS,
+                Constants.CHECKPOINT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the periodic checkpoints and folds any remaining journal entries into the CSV file.
+     *
+     * @param event The servlet context event.
+     */
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        checkpoint();
+        CsvReadWrite.closeJournal();
+    }
+
+    /**
+     * Compacts the dataset if needed and folds the journal into the CSV file, reporting rather than throwing
+     * any failure.
+     */
+    private static void checkpoint() {
+        try {
+            CsvReadWrite.compactIfNeeded(Constants.FILE_PATH);
+            CsvReadWrite.checkpoint(Constants.FILE_PATH);
+        } catch (DatabaseNotFoundException e) {
+            System.err.println(e.getLocalizedMessage());
+        }
+    }
+}
@@ -4,6 +4,13 @@
 package com.airquality.locations;
 
 import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import jakarta.json.bind.annotation.JsonbTransient;
+
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The City class represents a city within the air quality monitoring system.
@@ -11,15 +18,27 @@ import com.airquality.airquality.AirQuality;
  */
 public class City extends Location {
 
-    /** The next available ID for a city. */
-    public static int nextId = 1;
+    // The next available ID for a city, guarded by the lock of the City class
+    private static int nextId = 1;
+
+    // Hands out the version of every reading given to a city
+    private static final AtomicLong READING_VERSIONS = new AtomicLong();
 
     // The unique identifier for the city.
     private int cityId;
 
-    // The air quality information associated with the city.
+    // The air quality information associated with the city, when it is not held in a columnar store.
     private AirQuality airQuality;
 
+    // The columnar store holding the air quality information of the city, if any.
+    private AirQualityColumns airQualityColumns;
+
+    // The row of the columnar store holding the air quality information of the city.
+    private int airQualityRow;
+
+    // The version of the air quality information, unique to each reading given to a city
+    private long version;
+
     /**
      * Constructs a City object with the given name.
      *
@@ -27,8 +46,58 @@ public class City extends Location {
      */
     public City(String name) {
         super(name);
-        this.cityId = nextId;
-        nextId++;
+        this.cityId = allocateId();
+    }
+
+    /**
+     * Takes the next available ID. Cities of different countries can be created at the same time.
+     *
+     * @return The ID for a new city.
+     */
+    private static synchronized int allocateId() {
+        return nextId++;
+    }
+
+    /**
+     * Creates a City object with an identifier it was given before, such as one read back from the CSV file.
+     * The identifier is never handed to another city afterwards.
+     *
+     * @param name   The name of the city.
+     * @param cityId The unique identifier for the city.
+     * @return The new City object.
+     */
+    public static City restore(String name, int cityId) {
+        synchronized (City.class) {
+            nextId = Math.max(nextId, cityId + 1);
+        }
+        return new City(name, cityId);
+    }
+
+    /**
+     * Starts handing out IDs from 1 again, before a dataset is loaded from scratch.
+     */
+    public static synchronized void resetIds() {
+        nextId = 1;
+    }
+
+    /**
+     * Gets the ID the next new city will take, which is higher than the ID of every city created so far.
+     *
+     * @return The next available ID.
+     */
+    public static synchronized int peekNextId() {
+        return nextId;
+    }
+
+    /**
+     * Constructs a City object with the given name and unique identifier, without using up a new identifier.
+     *
+     * @param name   The name of the city.
+     * @param cityId The unique identifier for the city.
+     */
+    private City(String name, int cityId) {
+        super(name);
+        this.cityId = cityId;
     }
 
     /**
@@ -37,16 +106,132 @@ public class City extends Location {
      * @return The AirQuality object representing the air quality of the city.
      */
     public AirQuality getAirQuality() {
+        if (airQualityColumns != null) {
+            return airQualityColumns.toAirQuality(airQualityRow);
+        }
         return airQuality;
     }
 
     /**
-     * Sets the air quality information for the city.
+     * Sets the air quality information for the city, detaching it from any columnar store.
      *
      * @param airQuality The AirQuality object representing the air quality of the city.
      */
     public void setAirQuality(AirQuality airQuality) {
         this.airQuality = airQuality;
+        this.airQualityColumns = null;
+        this.version = READING_VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Points the city at a row of a columnar store holding its air quality information.
+     *
+     * @param airQualityColumns The columnar store.
+     * @param airQualityRow     The row of the columnar store.
+     */
+    public void bindAirQuality(AirQualityColumns airQualityColumns, int airQualityRow) {
+        this.airQualityColumns = airQualityColumns;
+        this.airQualityRow = airQualityRow;
+        this.airQuality = null;
+        this.version = READING_VERSIONS.incrementAndGet();
+    }
+
+    /**
+     * Creates a copy of the city, with the same name and identifier, pointing at a row of a columnar store.
+     * Published cities are never rebound, so this is how a new reading is given to a city.
+     *
+     * @param airQualityColumns The columnar store.
+     * @param airQualityRow     The row of the columnar store.
+     * @return The new City object.
+     */
+    public City withAirQuality(AirQualityColumns airQualityColumns, int airQualityRow) {
+        City copy = new City(getName(), cityId);
+        copy.bindAirQuality(airQualityColumns, airQualityRow);
+        return copy;
+    }
+
+    /**
+     * Gets the AQI value of a pollutant for the city, without creating an AirQuality object when the city is
+     * held in a columnar store.
+     *
+     * @param pollutant The pollutant.
+     * @return The AQI value, or AirQualityColumns.NOT_AVAILABLE if the city has no value for the pollutant.
+     */
+    public int getAqiValue(Pollutant pollutant) {
+        if (airQualityColumns != null) {
+            return airQualityColumns.getValue(pollutant, airQualityRow);
+        }
+        String value = airQuality == null ? null : pollutant.getValue(airQuality);
+        if (value == null || value.equals(Constants.DELETED_CHARACTER)) {
+            return AirQualityColumns.NOT_AVAILABLE;
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * Gets the AQI category of a pollutant for the city, without creating an AirQuality object when the city is
+     * held in a columnar store.
+     *
+     * @param pollutant The pollutant.
+     * @return The AqiCategory, or null if the city has no category for the pollutant.
+     */
+    public AqiCategory getAqiCategory(Pollutant pollutant) {
+        if (airQualityColumns != null) {
+            return airQualityColumns.getCategory(pollutant, airQualityRow);
+        }
+        return airQuality == null ? null : AqiCategory.fromLabel(pollutant.getCategory(airQuality));
+    }
+
+    /**
+     * Gets the AQI value of a pollutant for the city as it is shown to clients, reading only the column of that
+     * value when the city is held in a columnar store.
+     *
+     * @param pollutant The pollutant.
+     * @return The AQI value string, or "N/A" if not available.
+     */
+    public String formatAqiValue(Pollutant pollutant) {
+        if (airQualityColumns != null) {
+            return airQualityColumns.decodeValue(pollutant, airQualityRow);
+        }
+        return airQuality == null ? Constants.DELETED_CHARACTER : pollutant.getValue(airQuality);
+    }
+
+    /**
+     * Gets the AQI category of a pollutant for the city as it is shown to clients, reading only the column of
+     * that category when the city is held in a columnar store.
+     *
+     * @param pollutant The pollutant.
+     * @return The AQI category label, or "N/A" if not available.
+     */
+    public String formatAqiCategory(Pollutant pollutant) {
+        if (airQualityColumns != null) {
+            return airQualityColumns.decodeCategory(pollutant, airQualityRow);
+        }
+        return airQuality == null ? Constants.DELETED_CHARACTER : pollutant.getCategory(airQuality);
+    }
+
+    /**
+     * Checks whether the air quality record of the city has been deleted.
+     *
+     * @return True if the record is deleted, false otherwise.
+     */
+    @JsonbTransient
+    public boolean isDeleted() {
+        if (airQualityColumns != null) {
+            return airQualityColumns.isDeleted(airQualityRow);
+        }
+        return airQuality == null || Constants.DELETED_CHARACTER.equals(airQuality.getAqiValue());
+    }
+
+    /**
+     * Gets the version of the air quality information of the city. Every reading given to any city gets a new,
+     * higher version, so the version changes whenever the reading of the city does.
+     *
+     * @return The version, or 0 if the city has no reading.
+     */
+    @JsonbTransient
+    public long getVersion() {
+        return version;
     }
 
     /**
@@ -1,15 +1,22 @@
 package com.airquality.locations;
 
+import com.airquality.utility.SlotList;
+
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The Country class represents a country within the air quality monitoring system.
  * It extends the base Location class and includes information about cities in the country.
+ * <p>
+ * A country is only built up with setCities and addCity before it is published in a RecordSnapshot. After that it
+ * is never changed, and withCity creates a changed copy instead. The cities are held in a SlotList, which the copy
+ * shares with this country except for the few small arrays on the path to the changed city.
  */
 public class Country extends Location {
 
-    /** The list of cities within the country. */
-    private ArrayList<City> cities = new ArrayList<>();
+    /** The cities within the country, keyed by normalised city name. */
+    private SlotList<City> cities = SlotList.empty();
 
     /**
      * Constructs a Country object with the given name.
@@ -23,9 +30,9 @@ public class Country extends Location {
     /**
      * Gets the list of cities within the country.
      *
-     * @return The ArrayList of City objects representing cities in the country.
+     * @return An unmodifiable list of City objects representing cities in the country.
      */
-    public ArrayList<City> getCities() {
+    public List<City> getCities() {
         return cities;
     }
 
@@ -35,7 +42,92 @@ public class Country extends Location {
      * @param cities The ArrayList of City objects representing cities in the country.
      */
     public void setCities(ArrayList<City> cities) {
-        this.cities = cities;
+        SlotList<City> slots = SlotList.empty();
+        for (City city : cities) {
+            slots = slots.append(toKey(city.getName()), city);
+        }
+        this.cities = slots;
+    }
+
+    /**
+     * Adds a city to the country and to the city name index.
+     *
+     * @param city The City object to add.
+     */
+    public void addCity(City city) {
+        cities = cities.append(toKey(city.getName()), city);
+    }
+
+    /**
+     * Adds a city to the country or, if the country already has a city with the same name, replaces it.
+     * Like addCity, this must only be called before the country is published.
+     *
+     * @param city The new or replacement City object.
+     */
+    public void putCity(City city) {
+        cities = cities.put(toKey(city.getName()), city);
+    }
+
+    /**
+     * Creates a copy of the country that can be changed before it is published. The City objects and the
+     * list holding them are shared with this country.
+     *
+     * @return The new Country object.
+     */
+    public Country copy() {
+        Country copy = new Country(getName());
+        copy.cities = cities;
+        return copy;
+    }
+
+    /**
+     * Creates a copy of the country with a city added or, if the country already has a city with the same name,
+     * replacing it. The City objects are shared with this country.
+     *
+     * @param city The new or replacement City object.
+     * @return The new Country object.
+     */
+    public Country withCity(City city) {
+        Country copy = copy();
+        copy.putCity(city);
+        return copy;
+    }
+
+    /**
+     * Gets the country as it should be shown to clients, without the cities whose air quality has been deleted.
+     *
+     * @return This country if none of its cities is deleted, otherwise a copy holding only the remaining cities,
+     * or null if every city is deleted.
+     */
+    public Country withoutDeletedCities() {
+        ArrayList<City> liveCities = null;
+        for (int i = 0; i < cities.size(); i++) {
+            City city = cities.get(i);
+            if (city.isDeleted() && liveCities == null) {
+                liveCities = new ArrayList<>(cities.subList(0, i));
+            } else if (!city.isDeleted() && liveCities != null) {
+                liveCities.add(city);
+            }
+        }
+        if (liveCities == null) {
+            return this;
+        }
+        if (liveCities.isEmpty()) {
+            return null;
+        }
+        Country copy = new Country(getName());
+        copy.setCities(liveCities);
+        return copy;
+    }
+
+    /**
+     * Gets a city within the country by name, ignoring case.
+     *
+     * @param name The name of the city.
+     * @return The City object, or null if the country has no city with that name.
+     */
+    public City getCity(String name) {
+        return cities.getByKey(toKey(name));
     }
 }
 
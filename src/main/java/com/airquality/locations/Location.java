@@ -3,6 +3,8 @@
  */
 package com.airquality.locations;
 
+import java.util.Locale;
+
 /**
  * The Location class is an abstract class representing a geographical location within the air quality monitoring system.
  * It provides a base class for specific location types like City and Country.
@@ -21,6 +23,16 @@ public abstract class Location {
         this.name = name;
     }
 
+    /**
+     * Converts a location name into the key used by the name indexes, so that lookups ignore case.
+     *
+     * @param name The name of the location.
+     * @return The normalised key for the name.
+     */
+    public static String toKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
     /**
      * Gets the name of the location.
      *
@@ -3,6 +3,10 @@
  */
 package com.airquality.mappers;
 
+import com.airquality.exceptions.AirQualityException;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.ext.ExceptionMapper;
@@ -11,10 +15,18 @@ import jakarta.ws.rs.ext.Provider;
 /**
  * The AirQualityExceptionMapper class is responsible for mapping exceptions to HTTP responses.
  * It implements the ExceptionMapper interface to handle exceptions thrown in the application.
+ * <p>
+ * Application exceptions carry the status code they are answered with, such as 404 for a missing city or 400 for
+ * an invalid record. Not-found answers may be cached for as long as the lists themselves, so that repeated lookups
+ * of a missing city do not all reach the record. Exceptions raised by the JAX-RS runtime keep their own response,
+ * and any other exception is answered with 500 without exposing its message.
  */
 @Provider
 public class AirQualityExceptionMapper implements ExceptionMapper<Exception> {
 
+	// The message of responses to unexpected exceptions
+	private static final String INTERNAL_ERROR_MESSAGE = "Error 500: Internal Server Error";
+
 	/**
 	 * Constructs an AirQualityExceptionMapper.
 	 */
@@ -30,7 +42,21 @@ public class AirQualityExceptionMapper implements ExceptionMapper<Exception> {
 	 */
 	@Override
 	public Response toResponse(Exception exception) {
-		ResponseBuilder builder = Response.status(403); // 403 Forbidden status code
-		return builder.entity(exception.getMessage()).build();
+		if (exception instanceof AirQualityException) {
+			AirQualityException airQualityException = (AirQualityException) exception;
+			ResponseBuilder builder = Response.status(airQualityException.getErrorCode())
+					.entity(airQualityException.getMessage())
+					.type(MediaType.TEXT_PLAIN_TYPE);
+			if (airQualityException.getErrorCode() == 404) {
+				CacheControl cacheControl = new CacheControl();
+				cacheControl.setMaxAge(5);
+				builder.cacheControl(cacheControl);
+			}
+			return builder.build();
+		}
+		if (exception instanceof WebApplicationException) {
+			return ((WebApplicationException) exception).getResponse();
+		}
+		return Response.status(500).entity(INTERNAL_ERROR_MESSAGE).type(MediaType.TEXT_PLAIN_TYPE).build();
 	}
-}
\ No newline at end of file
+}
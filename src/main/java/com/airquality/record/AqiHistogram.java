@@ -0,0 +1,133 @@
+/**
+ * The AqiHistogram file provides a mergeable histogram of the AQI values of a pollutant.
+ */
+package com.airquality.record;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The AqiHistogram class counts the cities with each AQI value of a pollutant, together with their number and the
+ * sum of their values. It serves as a quantile sketch that, unlike sampling sketches, also supports removal, so it
+ * can follow updates and deletes: a city's old value is removed and its new value added in constant time.
+ * <p>
+ * AQI values are integers, and the AQI scale ends at 500, so every value up to that has its own counter and the
+ * sketch is exact. The counters are grown only as far as the highest value seen, which keeps the histograms of
+ * small countries small. The rare values above the scale are counted in a sorted map. Two histograms are merged by
+ * adding their counters, which is how the global statistics are built from those of the countries.
+ * <p>
+ * Instances are not thread-safe; the StatisticsIndex guards them.
+ */
+final class AqiHistogram {
+
+    // The highest AQI value with its own counter, the top of the AQI scale
+    private static final int MAX_COUNTED_VALUE = 500;
+
+    // The number of cities with each AQI value up to MAX_COUNTED_VALUE, grown as higher values are seen
+    private int[] counts = new int[0];
+
+    // The number of cities with each AQI value above MAX_COUNTED_VALUE
+    private final TreeMap<Integer, Integer> overflow = new TreeMap<>();
+
+    // The number of values counted
+    private int count;
+
+    // The sum of the values counted
+    private long sum;
+
+    /**
+     * Counts a value.
+     *
+     * @param value The AQI value, which must not be negative.
+     */
+    void add(int value) {
+        change(value, 1);
+    }
+
+    /**
+     * Stops counting a value counted before.
+     *
+     * @param value The AQI value.
+     */
+    void remove(int value) {
+        change(value, -1);
+    }
+
+    /**
+     * Adds the counts of another histogram to this one.
+     *
+     * @param other The histogram to merge into this one.
+     */
+    void merge(AqiHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int value = 0; value < other.counts.length; value++) {
+            counts[value] += other.counts[value];
+        }
+        for (Map.Entry<Integer, Integer> entry : other.overflow.entrySet()) {
+            overflow.merge(entry.getKey(), entry.getValue(), Integer::sum);
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    /**
+     * Summarises the values counted.
+     *
+     * @return The AqiStatistics of the values.
+     */
+    AqiStatistics toStatistics() {
+        if (count == 0) {
+            return new AqiStatistics(0, null, null, null, null, null, null, null);
+        }
+        double mean = Math.round(sum * 100.0 / count) / 100.0;
+        return new AqiStatistics(count, mean, quantile(0), quantile(0.5), quantile(0.9), quantile(0.95),
+                quantile(0.99), quantile(1));
+    }
+
+    /**
+     * Finds the value at a quantile by nearest rank: the lowest value that at least that fraction of the values
+     * are less than or equal to. The histogram must not be empty.
+     *
+     * @param fraction The quantile, from 0 for the minimum to 1 for the maximum.
+     * @return The AQI value at the quantile.
+     */
+    private int quantile(double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int value = 0; value < counts.length; value++) {
+            seen += counts[value];
+            if (seen >= rank) {
+                return value;
+            }
+        }
+        for (Map.Entry<Integer, Integer> entry : overflow.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= rank) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Histogram counts do not add up");
+    }
+
+    /**
+     * Changes the count of a value.
+     *
+     * @param value The AQI value.
+     * @param delta The change in the number of cities with the value.
+     */
+    private void change(int value, int delta) {
+        if (value > MAX_COUNTED_VALUE) {
+            overflow.merge(value, delta, (current, change) -> current + change == 0 ? null : current + change);
+        } else {
+            if (value >= counts.length) {
+                counts = Arrays.copyOf(counts, Math.min(Math.max(value + 1, counts.length << 1), MAX_COUNTED_VALUE + 1));
+            }
+            counts[value] += delta;
+        }
+        count += delta;
+        sum += (long) value * delta;
+    }
+}
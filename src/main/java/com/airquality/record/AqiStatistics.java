@@ -0,0 +1,132 @@
+/**
+ * The AqiStatistics file reports summary statistics of the AQI values of one pollutant.
+ */
+package com.airquality.record;
+
+/**
+ * The AqiStatistics class reports the number, mean, minimum, maximum and percentiles of the AQI values of one
+ * pollutant across a set of cities. Percentiles are exact, taken by nearest rank. Every statistic but the count
+ * is null when no city has a value for the pollutant.
+ */
+public class AqiStatistics {
+
+    // The number of cities with a value
+    private final int count;
+
+    // The mean value, rounded to two decimal places
+    private final Double mean;
+
+    // The lowest value
+    private final Integer min;
+
+    // The median value
+    private final Integer median;
+
+    // The 90th percentile value
+    private final Integer p90;
+
+    // The 95th percentile value
+    private final Integer p95;
+
+    // The 99th percentile value
+    private final Integer p99;
+
+    // The highest value
+    private final Integer max;
+
+    /**
+     * Constructs an AqiStatistics.
+     *
+     * @param count  The number of cities with a value.
+     * @param mean   The mean value, or null if there are no values.
+     * @param min    The lowest value, or null if there are no values.
+     * @param median The median value, or null if there are no values.
+     * @param p90    The 90th percentile value, or null if there are no values.
+     * @param p95    The 95th percentile value, or null if there are no values.
+     * @param p99    The 99th percentile value, or null if there are no values.
+     * @param max    The highest value, or null if there are no values.
+     */
+    public AqiStatistics(int count, Double mean, Integer min, Integer median, Integer p90, Integer p95, Integer p99,
+                         Integer max) {
+        this.count = count;
+        this.mean = mean;
+        this.min = min;
+        this.median = median;
+        this.p90 = p90;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    /**
+     * Gets the number of cities with a value.
+     *
+     * @return The number of cities.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the mean value.
+     *
+     * @return The mean, rounded to two decimal places, or null if there are no values.
+     */
+    public Double getMean() {
+        return mean;
+    }
+
+    /**
+     * Gets the lowest value.
+     *
+     * @return The minimum, or null if there are no values.
+     */
+    public Integer getMin() {
+        return min;
+    }
+
+    /**
+     * Gets the median value.
+     *
+     * @return The median, or null if there are no values.
+     */
+    public Integer getMedian() {
+        return median;
+    }
+
+    /**
+     * Gets the 90th percentile value.
+     *
+     * @return The 90th percentile, or null if there are no values.
+     */
+    public Integer getP90() {
+        return p90;
+    }
+
+    /**
+     * Gets the 95th percentile value.
+     *
+     * @return The 95th percentile, or null if there are no values.
+     */
+    public Integer getP95() {
+        return p95;
+    }
+
+    /**
+     * Gets the 99th percentile value.
+     *
+     * @return The 99th percentile, or null if there are no values.
+     */
+    public Integer getP99() {
+        return p99;
+    }
+
+    /**
+     * Gets the highest value.
+     *
+     * @return The maximum, or null if there are no values.
+     */
+    public Integer getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,300 @@
+/**
+ * The CategoryIndex file provides bitmap indexes of the recorded cities by the AQI category of each pollutant.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The CategoryIndex class keeps a bitmap for every pair of pollutant and AQI category, with the bit of each live
+ * city in that category set. Bits are numbered by city id, which the record hands out densely from 1 and
+ * compaction only leaves gaps in, so plain bitmaps stay compact without a compressed format.
+ * <p>
+ * A filter on categories is answered with bitmap operations: the bitmaps of the categories wanted for a pollutant
+ * are combined with OR, and the results for different pollutants with AND, one 64-bit word at a time. Only the
+ * matching cities are then looked up.
+ * <p>
+ * The words of the bitmaps, and the matching slots of the city table, are spread over lock stripes by word number.
+ * A write changes the bits of a single city, so it locks only the stripe of that city's word, and writes to
+ * cities of different words run in parallel. A query takes the read side of every stripe, so it sees either all
+ * or none of a write. Growing the bitmaps for a new city id takes the write side of every stripe.
+ */
+public class CategoryIndex {
+
+    // Cached copy of Pollutant.values(), which allocates a new array on every call
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // Cached copy of AqiCategory.values(), which allocates a new array on every call
+    private static final AqiCategory[] CATEGORIES = AqiCategory.values();
+
+    // Guards the bitmaps and the city table, each stripe guarding the words that map to it
+    private final IndexLockStripes locks = new IndexLockStripes(Constants.INDEX_LOCK_STRIPES);
+
+    // The words of the bitmap of each category of each pollutant, indexed by pollutant ordinal, category ordinal
+    // and word number; replaced as a whole when grown or rebuilt
+    private long[][][] bitmaps = newBitmaps(0);
+
+    // The indexed City object of each city id, or null for ids without a live city; as long as the bitmaps hold bits
+    private City[] cities = new City[0];
+
+    /**
+     * Constructs an empty CategoryIndex.
+     */
+    CategoryIndex() {
+        // Package-private constructor, the index is owned by the Record
+    }
+
+    /**
+     * Finds the live cities whose AQI category is one of the given categories for every given pollutant,
+     * for example PM2.5 Unhealthy and CO Good.
+     *
+     * @param categories The categories wanted for each pollutant. Pollutants that are not given are not restricted.
+     * @return The matching City objects, sorted by city id, or an empty list if there are none.
+     */
+    public List<City> findCities(Map<Pollutant, Set<AqiCategory>> categories) {
+        return findCities(categories, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds a page of the live cities whose AQI category is one of the given categories for every given pollutant.
+     * The matches are found one word at a time from the word of afterCityId, so the page stops once it is full.
+     *
+     * @param categories  The categories wanted for each pollutant. Pollutants that are not given are not restricted.
+     * @param afterCityId The id of the last city of the previous page, or 0 for the first page.
+     * @param limit       The maximum number of cities to return.
+     * @return The matching City objects with higher ids than afterCityId, sorted by city id.
+     */
+    public List<City> findCities(Map<Pollutant, Set<AqiCategory>> categories, int afterCityId, int limit) {
+        List<City> result = new ArrayList<>();
+        if (categories.isEmpty()) {
+            return result;
+        }
+        locks.readLockAll();
+        try {
+            // The bitmaps of the categories wanted for each given pollutant
+            long[][][] wanted = new long[categories.size()][][];
+            int given = 0;
+            for (Map.Entry<Pollutant, Set<AqiCategory>> entry : categories.entrySet()) {
+                wanted[given] = new long[entry.getValue().size()][];
+                int i = 0;
+                for (AqiCategory category : entry.getValue()) {
+                    wanted[given][i++] = bitmaps[entry.getKey().ordinal()][category.ordinal()];
+                }
+                given++;
+            }
+
+            int firstCityId = Math.max(afterCityId + 1, 0);
+            for (int word = firstCityId >>> 6; word < cities.length >>> 6 && result.size() < limit; word++) {
+                long matches = word == firstCityId >>> 6 ? -1L << firstCityId : -1L;
+                for (long[][] pollutantBitmaps : wanted) {
+                    long pollutantMatches = 0;
+                    for (long[] bitmap : pollutantBitmaps) {
+                        pollutantMatches |= bitmap[word];
+                    }
+                    matches &= pollutantMatches;
+                }
+                for (; matches != 0 && result.size() < limit; matches &= matches - 1) {
+                    result.add(cities[(word << 6) | Long.numberOfTrailingZeros(matches)]);
+                }
+            }
+        } finally {
+            locks.readUnlockAll();
+        }
+        return result;
+    }
+
+    /**
+     * Lists a page of the live cities in order of city id. The index maps every id to its live city, so the page
+     * is found without walking the cities before it.
+     *
+     * @param afterCityId The id of the last city of the previous page, or 0 for the first page.
+     * @param limit       The maximum number of cities to return.
+     * @return The live City objects with higher ids than afterCityId, sorted by city id.
+     */
+    public List<City> listCities(int afterCityId, int limit) {
+        List<City> result = new ArrayList<>();
+        locks.readLockAll();
+        try {
+            for (int cityId = Math.max(afterCityId + 1, 0); cityId < cities.length && result.size() < limit; cityId++) {
+                if (cities[cityId] != null) {
+                    result.add(cities[cityId]);
+                }
+            }
+        } finally {
+            locks.readUnlockAll();
+        }
+        return result;
+    }
+
+    /**
+     * Counts the live cities in an AQI category of a pollutant.
+     *
+     * @param pollutant The pollutant.
+     * @param category  The AQI category.
+     * @return The number of cities.
+     */
+    public int count(Pollutant pollutant, AqiCategory category) {
+        int count = 0;
+        locks.readLockAll();
+        try {
+            for (long word : bitmaps[pollutant.ordinal()][category.ordinal()]) {
+                count += Long.bitCount(word);
+            }
+        } finally {
+            locks.readUnlockAll();
+        }
+        return count;
+    }
+
+    /**
+     * Moves a city to the bitmaps of its new categories after the Record has published a new City object for it.
+     * Changes to the same city must be applied in the order they were published.
+     *
+     * @param previous The City object the new one replaces, or null if the city is new.
+     * @param current  The City object published for the city.
+     */
+    void update(City previous, City current) {
+        int cityId = current.getCityId();
+        int stripe = locks.stripeOf(cityId >>> 6);
+        while (true) {
+            locks.get(stripe).writeLock().lock();
+            try {
+                if (cityId < cities.length) {
+                    if (previous != null) {
+                        remove(previous);
+                    }
+                    add(current);
+                    return;
+                }
+            } finally {
+                locks.get(stripe).writeLock().unlock();
+            }
+            grow(cityId);
+        }
+    }
+
+    /**
+     * Rebuilds the bitmaps from the cities of a whole new dataset, swapping them in at once.
+     *
+     * @param countries The countries of the dataset.
+     */
+    void rebuild(Collection<Country> countries) {
+        int maxCityId = 0;
+        for (Country country : countries) {
+            for (City city : country.getCities()) {
+                maxCityId = Math.max(maxCityId, city.getCityId());
+            }
+        }
+        int words = (maxCityId >>> 6) + 1;
+        long[][][] rebuiltBitmaps = newBitmaps(words);
+        City[] rebuiltCities = new City[words << 6];
+        for (Country country : countries) {
+            for (City city : country.getCities()) {
+                if (!city.isDeleted()) {
+                    setBits(rebuiltBitmaps, city, true);
+                    rebuiltCities[city.getCityId()] = city;
+                }
+            }
+        }
+        locks.writeLockAll();
+        try {
+            bitmaps = rebuiltBitmaps;
+            cities = rebuiltCities;
+        } finally {
+            locks.writeUnlockAll();
+        }
+    }
+
+    /**
+     * Grows the bitmaps and the city table to hold a city id, at least doubling them. The caller must not hold any
+     * stripe.
+     *
+     * @param cityId The city id.
+     */
+    private void grow(int cityId) {
+        locks.writeLockAll();
+        try {
+            if (cityId < cities.length) {
+                return;
+            }
+            int words = Math.max((cityId >>> 6) + 1, (cities.length >>> 6) << 1);
+            for (long[][] pollutantBitmaps : bitmaps) {
+                for (int i = 0; i < pollutantBitmaps.length; i++) {
+                    pollutantBitmaps[i] = Arrays.copyOf(pollutantBitmaps[i], words);
+                }
+            }
+            cities = Arrays.copyOf(cities, words << 6);
+        } finally {
+            locks.writeUnlockAll();
+        }
+    }
+
+    /**
+     * Adds a city to the bitmaps of its categories, unless it is deleted. The stripe of the city must be held.
+     *
+     * @param city The City object.
+     */
+    private void add(City city) {
+        if (city.isDeleted()) {
+            return;
+        }
+        setBits(bitmaps, city, true);
+        cities[city.getCityId()] = city;
+    }
+
+    /**
+     * Removes a city from the bitmaps of its categories. The stripe of the city must be held.
+     *
+     * @param city The City object.
+     */
+    private void remove(City city) {
+        if (city.isDeleted() || cities[city.getCityId()] != city) {
+            return;
+        }
+        setBits(bitmaps, city, false);
+        cities[city.getCityId()] = null;
+    }
+
+    /**
+     * Sets or clears the bit of a city in the bitmap of its category of each pollutant.
+     *
+     * @param target The bitmaps to change.
+     * @param city   The City object.
+     * @param value  True to set the bits, false to clear them.
+     */
+    private static void setBits(long[][][] target, City city, boolean value) {
+        int cityId = city.getCityId();
+        for (Pollutant pollutant : POLLUTANTS) {
+            AqiCategory category = city.getAqiCategory(pollutant);
+            if (category != null) {
+                long[] words = target[pollutant.ordinal()][category.ordinal()];
+                if (value) {
+                    words[cityId >>> 6] |= 1L << cityId;
+                } else {
+                    words[cityId >>> 6] &= ~(1L << cityId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates an empty bitmap for every category of every pollutant.
+     *
+     * @param words The number of 64-bit words of each bitmap.
+     * @return The bitmaps, indexed by pollutant ordinal, category ordinal and word number.
+     */
+    private static long[][][] newBitmaps(int words) {
+        return new long[POLLUTANTS.length][CATEGORIES.length][words];
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * The CompactionStatus file reports how many deleted cities are waiting to be compacted away.
+ */
+package com.airquality.record;
+
+import java.time.Instant;
+
+/**
+ * The CompactionStatus class reports the number of deleted cities still held in the record and the time the
+ * record was last compacted.
+ */
+public class CompactionStatus {
+
+    // The number of deleted cities still held in the record
+    private final int tombstones;
+
+    // The time of the last compaction, or of the load if there has been none since, in milliseconds since the epoch
+    private final long lastCompactionTime;
+
+    /**
+     * Constructs a CompactionStatus.
+     *
+     * @param tombstones         The number of deleted cities still held in the record.
+     * @param lastCompactionTime The time of the last compaction or load in milliseconds since the epoch, or 0 if none.
+     */
+    public CompactionStatus(int tombstones, long lastCompactionTime) {
+        this.tombstones = tombstones;
+        this.lastCompactionTime = lastCompactionTime;
+    }
+
+    /**
+     * Gets the number of deleted cities still held in the record.
+     *
+     * @return The number of deleted cities.
+     */
+    public int getTombstones() {
+        return tombstones;
+    }
+
+    /**
+     * Gets the time of the last compaction, or of the load if the record has not been compacted since.
+     *
+     * @return The time in ISO-8601 format, or null if the record has been neither loaded nor compacted.
+     */
+    public String getLastCompaction() {
+        return lastCompactionTime == 0 ? null : Instant.ofEpochMilli(lastCompactionTime).toString();
+    }
+}
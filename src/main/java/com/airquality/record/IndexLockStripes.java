@@ -0,0 +1,96 @@
+/**
+ * The IndexLockStripes file provides the striped read-write locks guarding the secondary indexes.
+ */
+package com.airquality.record;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The IndexLockStripes class splits the lock of a secondary index into stripes. A write locks only the stripe
+ * owning the part of the index it changes, so writes to different parts, such as the cities of different
+ * countries, run in parallel. A query over the whole index takes the read side of every stripe, in order, and so
+ * sees either all or none of every write. Changes to the layout of the whole index take the write side of every
+ * stripe, in the same order, so they can never wait on a query or each other in a cycle.
+ */
+final class IndexLockStripes {
+
+    // The stripes, each guarding the parts of the index that map to it
+    private final ReentrantReadWriteLock[] stripes;
+
+    /**
+     * Constructs a set of lock stripes.
+     *
+     * @param count The number of stripes.
+     */
+    IndexLockStripes(int count) {
+        stripes = new ReentrantReadWriteLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Gets the number of stripes.
+     *
+     * @return The number of stripes.
+     */
+    int size() {
+        return stripes.length;
+    }
+
+    /**
+     * Gets the number of the stripe owning a part of the index.
+     *
+     * @param hash A hash of the part of the index, such as a country key or a bitmap word.
+     * @return The number of the stripe.
+     */
+    int stripeOf(int hash) {
+        return Math.floorMod(hash, stripes.length);
+    }
+
+    /**
+     * Gets a stripe.
+     *
+     * @param stripe The number of the stripe.
+     * @return The lock of the stripe.
+     */
+    ReentrantReadWriteLock get(int stripe) {
+        return stripes[stripe];
+    }
+
+    /**
+     * Takes the read side of every stripe, in order.
+     */
+    void readLockAll() {
+        for (ReentrantReadWriteLock stripe : stripes) {
+            stripe.readLock().lock();
+        }
+    }
+
+    /**
+     * Releases the read side of every stripe, in the reverse order.
+     */
+    void readUnlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes the write side of every stripe, in order. The caller must not hold any stripe.
+     */
+    void writeLockAll() {
+        for (ReentrantReadWriteLock stripe : stripes) {
+            stripe.writeLock().lock();
+        }
+    }
+
+    /**
+     * Releases the write side of every stripe, in the reverse order.
+     */
+    void writeUnlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The LocationStatistics file reports the statistics of the AQI values of every pollutant in a country or globally.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.Pollutant;
+
+/**
+ * The LocationStatistics class reports the number of live cities in a country, or in all countries, and the
+ * AqiStatistics of each pollutant across them.
+ */
+public class LocationStatistics {
+
+    // The name of the country, or null for the global statistics
+    private final String name;
+
+    // The number of live cities
+    private final int cities;
+
+    // The statistics of each pollutant, indexed by pollutant ordinal
+    private final AqiStatistics[] pollutants;
+
+    /**
+     * Constructs a LocationStatistics.
+     *
+     * @param name       The name of the country, or null for the global statistics.
+     * @param cities     The number of live cities.
+     * @param pollutants The statistics of each pollutant, indexed by pollutant ordinal.
+     */
+    LocationStatistics(String name, int cities, AqiStatistics[] pollutants) {
+        this.name = name;
+        this.cities = cities;
+        this.pollutants = pollutants;
+    }
+
+    /**
+     * Gets the name of the country.
+     *
+     * @return The name of the country, or null for the global statistics.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the number of live cities.
+     *
+     * @return The number of cities.
+     */
+    public int getCities() {
+        return cities;
+    }
+
+    /**
+     * Gets the statistics of the overall AQI values.
+     *
+     * @return The AqiStatistics of the overall AQI.
+     */
+    public AqiStatistics getAqi() {
+        return pollutants[Pollutant.AQI.ordinal()];
+    }
+
+    /**
+     * Gets the statistics of the CO AQI values.
+     *
+     * @return The AqiStatistics of CO.
+     */
+    public AqiStatistics getCo() {
+        return pollutants[Pollutant.CO.ordinal()];
+    }
+
+    /**
+     * Gets the statistics of the ozone AQI values.
+     *
+     * @return The AqiStatistics of ozone.
+     */
+    public AqiStatistics getOzone() {
+        return pollutants[Pollutant.OZONE.ordinal()];
+    }
+
+    /**
+     * Gets the statistics of the NO2 AQI values.
+     *
+     * @return The AqiStatistics of NO2.
+     */
+    public AqiStatistics getNo2() {
+        return pollutants[Pollutant.NO2.ordinal()];
+    }
+
+    /**
+     * Gets the statistics of the PM2.5 AQI values.
+     *
+     * @return The AqiStatistics of PM2.5.
+     */
+    public AqiStatistics getPm() {
+        return pollutants[Pollutant.PM.ordinal()];
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * The NameIndex file provides a sorted index of the names of the recorded countries and cities for prefix search.
+ */
+package com.airquality.record;
+
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+import com.airquality.locations.Location;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The NameIndex class keeps the normalised names of the countries and live cities of the record in sorted maps, so
+ * that the names starting with a prefix are found with a search of the sorted keys followed by a walk over the
+ * matching entries. A search takes time proportional to the logarithm of the number of names plus the number of
+ * matches returned, whatever the size of the dataset.
+ * <p>
+ * A city is keyed by its normalised name followed by its normalised country name, which keeps the keys of cities
+ * of the same name in different countries unique. A country is indexed while it has at least one live city. The
+ * index is updated by the Record whenever it publishes a changed city and rebuilt whenever it publishes a whole new
+ * dataset.
+ */
+public class NameIndex {
+
+    // Separates the city name from the country name in the key of a city; sorts before every other character
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    // The names currently indexed; replaced as a whole when the index is rebuilt
+    private volatile Names names = new Names();
+
+    /**
+     * Constructs an empty NameIndex.
+     */
+    NameIndex() {
+        // Package-private constructor, the index is owned by the Record
+    }
+
+    /**
+     * Finds the countries and live cities whose names start with a prefix, ignoring case. Countries come before
+     * cities, and each are in alphabetical order.
+     *
+     * @param prefix The prefix of the names.
+     * @param limit  The maximum number of matches to return.
+     * @return The NameMatch objects, or an empty list if there are none.
+     */
+    public List<NameMatch> findByPrefix(String prefix, int limit) {
+        Names current = names;
+        String fromKey = Location.toKey(prefix);
+        String toKey = fromKey + Character.MAX_VALUE;
+        List<NameMatch> result = new ArrayList<>();
+        addMatches(current.countries.subMap(fromKey, true, toKey, false).values().iterator(), limit, result);
+        addMatches(current.cities.subMap(fromKey, true, toKey, false).values().iterator(), limit, result);
+        return result;
+    }
+
+    /**
+     * Updates the names after the Record has published a new City object for a city. A city enters the index when
+     * it is created and leaves it when it is deleted. Changes to the same country must be applied in the order they
+     * were published.
+     *
+     * @param country  The name of the city's country.
+     * @param previous The City object the new one replaces, or null if the city is new.
+     * @param current  The City object published for the city.
+     */
+    void update(String country, City previous, City current) {
+        boolean wasLive = previous != null && !previous.isDeleted();
+        boolean isLive = !current.isDeleted();
+        if (wasLive == isLive) {
+            return;
+        }
+        Names indexed = names;
+        String countryKey = Location.toKey(country);
+        String cityKey = toKey(current.getName(), country);
+        if (isLive) {
+            indexed.cities.put(cityKey, new NameMatch(country, current.getName()));
+            if (indexed.liveCities.merge(countryKey, 1, Integer::sum) == 1) {
+                indexed.countries.put(countryKey, new NameMatch(country, null));
+            }
+        } else {
+            indexed.cities.remove(cityKey);
+            if (indexed.liveCities.merge(countryKey, -1, (count, change) -> count + change == 0 ? null : count + change) == null) {
+                indexed.countries.remove(countryKey);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from the countries and cities of a whole new dataset, swapping the new names in at once.
+     *
+     * @param countryRecords The countries of the dataset.
+     */
+    void rebuild(Collection<Country> countryRecords) {
+        Names rebuilt = new Names();
+        for (Country country : countryRecords) {
+            String countryKey = Location.toKey(country.getName());
+            int liveCities = 0;
+            for (City city : country.getCities()) {
+                if (!city.isDeleted()) {
+                    rebuilt.cities.put(toKey(city.getName(), country.getName()), new NameMatch(country.getName(), city.getName()));
+                    liveCities++;
+                }
+            }
+            if (liveCities > 0) {
+                rebuilt.countries.put(countryKey, new NameMatch(country.getName(), null));
+                rebuilt.liveCities.put(countryKey, liveCities);
+            }
+        }
+        names = rebuilt;
+    }
+
+    /**
+     * Adds matches to a result until it holds the given number.
+     *
+     * @param matches The matches to add, in order.
+     * @param limit   The maximum number of matches of the result.
+     * @param result  Receives the matches.
+     */
+    private static void addMatches(Iterator<NameMatch> matches, int limit, List<NameMatch> result) {
+        while (result.size() < limit && matches.hasNext()) {
+            result.add(matches.next());
+        }
+    }
+
+    /**
+     * Gets the key of a city in the index.
+     *
+     * @param city    The name of the city.
+     * @param country The name of the city's country.
+     * @return The key.
+     */
+    private static String toKey(String city, String country) {
+        return Location.toKey(city) + KEY_SEPARATOR + Location.toKey(country);
+    }
+
+    /**
+     * The Names class holds the sorted names of the countries and live cities, and the number of live cities of
+     * each country, which decides whether the country is indexed.
+     */
+    private static final class Names {
+
+        // The indexed countries, keyed by normalised name
+        private final ConcurrentSkipListMap<String, NameMatch> countries = new ConcurrentSkipListMap<>();
+
+        // The indexed live cities, keyed by normalised name and normalised country name
+        private final ConcurrentSkipListMap<String, NameMatch> cities = new ConcurrentSkipListMap<>();
+
+        // The number of live cities of each country, keyed by normalised name
+        private final ConcurrentHashMap<String, Integer> liveCities = new ConcurrentHashMap<>();
+    }
+}
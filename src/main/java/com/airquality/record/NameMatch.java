@@ -0,0 +1,46 @@
+/**
+ * The NameMatch file represents a country or city whose name matches a search.
+ */
+package com.airquality.record;
+
+/**
+ * The NameMatch class represents a country or a city whose name matches a search. A city match names the city and
+ * its country; a country match names only the country.
+ */
+public class NameMatch {
+
+    // The name of the country, or of the city's country
+    private final String country;
+
+    // The name of the city, or null if the match is a country
+    private final String city;
+
+    /**
+     * Constructs a NameMatch.
+     *
+     * @param country The name of the country, or of the city's country.
+     * @param city    The name of the city, or null if the match is a country.
+     */
+    NameMatch(String country, String city) {
+        this.country = country;
+        this.city = city;
+    }
+
+    /**
+     * Gets the name of the country, or of the city's country.
+     *
+     * @return The country name.
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Gets the name of the city.
+     *
+     * @return The city name, or null if the match is a country.
+     */
+    public String getCity() {
+        return city;
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * The PollutantIndex file provides a sorted index of the recorded cities by the AQI value of one pollutant.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.Pollutant;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+import com.airquality.locations.Location;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The PollutantIndex class keeps the live cities of the record sorted by the AQI value of one pollutant, so that
+ * a range of values is found with a search of the sorted keys followed by a walk over the matching entries,
+ * taking time proportional to the number of cities returned rather than to the size of the dataset.
+ * <p>
+ * Each entry is keyed by the AQI value in the high 32 bits and the city id in the low 32 bits, which keeps the
+ * keys unique and orders cities with the same value by id. The index is updated by the Record whenever it
+ * publishes a changed city and rebuilt whenever it publishes a whole new dataset. Cities that are deleted or have
+ * no value for the pollutant are left out.
+ * <p>
+ * The cities of each country are also kept in a sorted map of their own, and every entry remembers its country.
+ * Rankings, globally or within a country, are then read from either end of a sorted map, taking time
+ * proportional to the number of cities returned, while each write costs a logarithmic update of two maps.
+ */
+public class PollutantIndex {
+
+    // The pollutant whose AQI value the cities are sorted by
+    private final Pollutant pollutant;
+
+    // The indexed cities, keyed by AQI value and city id; replaced as a whole when the index is rebuilt
+    private volatile ConcurrentSkipListMap<Long, Entry> entries = new ConcurrentSkipListMap<>();
+
+    // The indexed cities of each country, keyed by normalised country name; replaced as a whole when rebuilt
+    private volatile ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Entry>> countries = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty PollutantIndex.
+     *
+     * @param pollutant The pollutant whose AQI value the cities are sorted by.
+     */
+    PollutantIndex(Pollutant pollutant) {
+        this.pollutant = pollutant;
+    }
+
+    /**
+     * Gets the pollutant whose AQI value the cities are sorted by.
+     *
+     * @return The Pollutant.
+     */
+    public Pollutant getPollutant() {
+        return pollutant;
+    }
+
+    /**
+     * Finds the cities whose AQI value for the pollutant lies within a range, in order of value and then city id.
+     *
+     * @param startingValue The lowest AQI value to include.
+     * @param endingValue   The highest AQI value to include.
+     * @return The matching City objects, or an empty list if there are none or the range is empty.
+     */
+    public List<City> findInRange(int startingValue, int endingValue) {
+        if (startingValue > endingValue) {
+            return new ArrayList<>();
+        }
+        List<City> result = new ArrayList<>();
+        for (Entry entry : entries.subMap(toKey(startingValue, 0), true, toKey(endingValue, -1), true).values()) {
+            result.add(entry.city);
+        }
+        return result;
+    }
+
+    /**
+     * Finds a page of the cities whose AQI value for the pollutant lies within a range, in index order.
+     *
+     * @param startingValue The lowest AQI value to include.
+     * @param endingValue   The highest AQI value to include.
+     * @param afterKey      The key of the last city of the previous page, or Long.MIN_VALUE for the first page.
+     * @param limit         The maximum number of cities to return.
+     * @return The matching City objects after afterKey, in order of value and then city id.
+     */
+    public List<City> findInRange(int startingValue, int endingValue, long afterKey, int limit) {
+        List<City> result = new ArrayList<>();
+        Iterator<City> cities = iterateRange(startingValue, endingValue, afterKey);
+        while (result.size() < limit && cities.hasNext()) {
+            result.add(cities.next());
+        }
+        return result;
+    }
+
+    /**
+     * Walks the cities whose AQI value for the pollutant lies within a range, in index order, one at a time.
+     * Nothing is collected up front, so a caller that stops early pays only for the cities it has visited.
+     *
+     * @param startingValue The lowest AQI value to include.
+     * @param endingValue   The highest AQI value to include.
+     * @param afterKey      The key after which to start, or Long.MIN_VALUE to start from the lowest value.
+     * @return The matching City objects after afterKey, in order of value and then city id.
+     */
+    public Iterator<City> iterateRange(int startingValue, int endingValue, long afterKey) {
+        long startingKey = toKey(startingValue, 0);
+        long endingKey = toKey(endingValue, -1);
+        if (startingValue > endingValue || afterKey >= endingKey) {
+            return Collections.emptyIterator();
+        }
+        NavigableMap<Long, Entry> range = afterKey >= startingKey
+                ? entries.subMap(afterKey, false, endingKey, true)
+                : entries.subMap(startingKey, true, endingKey, true);
+        Iterator<Entry> cities = range.values().iterator();
+        return new Iterator<City>() {
+            @Override
+            public boolean hasNext() {
+                return cities.hasNext();
+            }
+
+            @Override
+            public City next() {
+                return cities.next().city;
+            }
+        };
+    }
+
+    /**
+     * Ranks the cities with the highest or lowest AQI values for the pollutant, globally or within a country.
+     * Cities with the same value are ranked by city id, from the same end as the values.
+     *
+     * @param country The name of the country, or null to rank the cities of every country.
+     * @param highest True to rank from the highest value down, false to rank from the lowest value up.
+     * @param limit   The maximum number of cities to return.
+     * @return The RankedCity objects, ranked from 1, or an empty list if no city of the country has a value.
+     */
+    public List<RankedCity> rank(String country, boolean highest, int limit) {
+        NavigableMap<Long, Entry> ranked = country == null ? entries : countries.get(Location.toKey(country));
+        List<RankedCity> result = new ArrayList<>();
+        if (ranked == null) {
+            return result;
+        }
+        Iterator<Entry> cities = (highest ? ranked.descendingMap() : ranked).values().iterator();
+        while (result.size() < limit && cities.hasNext()) {
+            Entry entry = cities.next();
+            result.add(new RankedCity(result.size() + 1, entry.country, entry.city, pollutant));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the key of a city returned by this index, which orders it within the index. A page of the index can
+     * be continued after the key of its last city.
+     *
+     * @param city A City object returned by this index.
+     * @return The key of the city.
+     */
+    public long getKey(City city) {
+        return toKey(city.getAqiValue(pollutant), city.getCityId());
+    }
+
+    /**
+     * Counts the cities whose AQI value for the pollutant lies within a range, without collecting them.
+     * Counting walks the matching entries, so it stops once the count reaches the given limit.
+     *
+     * @param startingValue The lowest AQI value to include.
+     * @param endingValue   The highest AQI value to include.
+     * @param limit         The count at which to stop counting.
+     * @return The number of matching cities, or the limit if there are at least that many.
+     */
+    public int countInRange(int startingValue, int endingValue, int limit) {
+        if (startingValue > endingValue) {
+            return 0;
+        }
+        int count = 0;
+        Iterator<Long> keys = entries.subMap(toKey(startingValue, 0), true, toKey(endingValue, -1), true).keySet().iterator();
+        while (count < limit && keys.hasNext()) {
+            keys.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the number of indexed cities.
+     *
+     * @return The number of cities.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Replaces the entry of a city after the Record has published a new City object for it.
+     * Changes to the same city must be applied in the order they were published.
+     *
+     * @param country  The name of the city's country.
+     * @param previous The City object the new one replaces, or null if the city is new.
+     * @param current  The City object published for the city.
+     */
+    void update(String country, City previous, City current) {
+        ConcurrentSkipListMap<Long, Entry> countryEntries = countries.computeIfAbsent(Location.toKey(country),
+                key -> new ConcurrentSkipListMap<>());
+        if (previous != null) {
+            Long previousKey = toKey(previous);
+            if (previousKey != null) {
+                Entry previousEntry = entries.get(previousKey);
+                if (previousEntry != null && previousEntry.city == previous) {
+                    entries.remove(previousKey, previousEntry);
+                    countryEntries.remove(previousKey, previousEntry);
+                }
+            }
+        }
+        Long currentKey = toKey(current);
+        if (currentKey != null) {
+            Entry currentEntry = new Entry(country, current);
+            entries.put(currentKey, currentEntry);
+            countryEntries.put(currentKey, currentEntry);
+        }
+    }
+
+    /**
+     * Rebuilds the index from the cities of a whole new dataset, swapping the new entries in at once.
+     *
+     * @param countryRecords The countries of the dataset.
+     */
+    void rebuild(Collection<Country> countryRecords) {
+        ConcurrentSkipListMap<Long, Entry> rebuilt = new ConcurrentSkipListMap<>();
+        ConcurrentHashMap<String, ConcurrentSkipListMap<Long, Entry>> rebuiltCountries = new ConcurrentHashMap<>();
+        for (Country country : countryRecords) {
+            ConcurrentSkipListMap<Long, Entry> countryEntries = new ConcurrentSkipListMap<>();
+            for (City city : country.getCities()) {
+                Long key = toKey(city);
+                if (key != null) {
+                    Entry entry = new Entry(country.getName(), city);
+                    rebuilt.put(key, entry);
+                    countryEntries.put(key, entry);
+                }
+            }
+            rebuiltCountries.put(Location.toKey(country.getName()), countryEntries);
+        }
+        countries = rebuiltCountries;
+        entries = rebuilt;
+    }
+
+    /**
+     * Gets the key of a city in the index.
+     *
+     * @param city The City object.
+     * @return The key, or null if the city is deleted or has no value for the pollutant.
+     */
+    private Long toKey(City city) {
+        if (city.isDeleted()) {
+            return null;
+        }
+        int value = city.getAqiValue(pollutant);
+        return value == AirQualityColumns.NOT_AVAILABLE ? null : toKey(value, city.getCityId());
+    }
+
+    /**
+     * Combines an AQI value and a city id into a key. The city id is taken as unsigned, so -1 stands for the
+     * highest possible id.
+     *
+     * @param value  The AQI value.
+     * @param cityId The city id.
+     * @return The key.
+     */
+    private static long toKey(int value, int cityId) {
+        return ((long) value << 32) | (cityId & 0xFFFFFFFFL);
+    }
+
+    /**
+     * The Entry class pairs an indexed City object with the name of its country, which the City does not hold.
+     */
+    private static final class Entry {
+
+        // The name of the city's country
+        private final String country;
+
+        // The indexed City object
+        private final City city;
+
+        /**
+         * Constructs an Entry.
+         *
+         * @param country The name of the city's country.
+         * @param city    The indexed City object.
+         */
+        Entry(String country, City city) {
+            this.country = country;
+            this.city = city;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * The PollutantRange file represents a range of AQI values of one pollutant used to query the record.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.Pollutant;
+import com.airquality.locations.City;
+
+/**
+ * The PollutantRange class represents an inclusive range of AQI values of one pollutant.
+ * Several ranges are combined by Record.findCitiesInRanges to find the cities matching all of them.
+ */
+public class PollutantRange {
+
+    // The pollutant whose AQI value is matched
+    private final Pollutant pollutant;
+
+    // The lowest AQI value in the range
+    private final int startingValue;
+
+    // The highest AQI value in the range
+    private final int endingValue;
+
+    /**
+     * Constructs a PollutantRange.
+     *
+     * @param pollutant     The pollutant whose AQI value is matched.
+     * @param startingValue The lowest AQI value in the range.
+     * @param endingValue   The highest AQI value in the range.
+     */
+    public PollutantRange(Pollutant pollutant, int startingValue, int endingValue) {
+        this.pollutant = pollutant;
+        this.startingValue = startingValue;
+        this.endingValue = endingValue;
+    }
+
+    /**
+     * Gets the pollutant whose AQI value is matched.
+     *
+     * @return The Pollutant.
+     */
+    public Pollutant getPollutant() {
+        return pollutant;
+    }
+
+    /**
+     * Gets the lowest AQI value in the range.
+     *
+     * @return The starting value.
+     */
+    public int getStartingValue() {
+        return startingValue;
+    }
+
+    /**
+     * Gets the highest AQI value in the range.
+     *
+     * @return The ending value.
+     */
+    public int getEndingValue() {
+        return endingValue;
+    }
+
+    /**
+     * Checks whether the AQI value of a city for the pollutant lies within the range.
+     *
+     * @param city The City object.
+     * @return True if the city has a value for the pollutant within the range, false otherwise.
+     */
+    public boolean contains(City city) {
+        int value = city.getAqiValue(pollutant);
+        return value != AirQualityColumns.NOT_AVAILABLE && value >= startingValue && value <= endingValue;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * The RankedCity file represents a city in a ranking of the AQI values of one pollutant.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.Pollutant;
+import com.airquality.locations.City;
+
+/**
+ * The RankedCity class represents a city in a ranking of the AQI values of one pollutant, with its rank, its
+ * country, and its AQI value and category for that pollutant.
+ */
+public class RankedCity {
+
+    // The position of the city in the ranking, from 1
+    private final int rank;
+
+    // The name of the city's country
+    private final String country;
+
+    // The name of the city
+    private final String city;
+
+    // The AQI value of the ranked pollutant
+    private final int aqiValue;
+
+    // The AQI category of the ranked pollutant
+    private final String aqiCategory;
+
+    /**
+     * Constructs a RankedCity, reading the value and category of the ranked pollutant from the city.
+     *
+     * @param rank      The position of the city in the ranking, from 1.
+     * @param country   The name of the city's country.
+     * @param city      The City object.
+     * @param pollutant The ranked pollutant.
+     */
+    RankedCity(int rank, String country, City city, Pollutant pollutant) {
+        this.rank = rank;
+        this.country = country;
+        this.city = city.getName();
+        this.aqiValue = city.getAqiValue(pollutant);
+        this.aqiCategory = city.formatAqiCategory(pollutant);
+    }
+
+    /**
+     * Gets the position of the city in the ranking.
+     *
+     * @return The rank, from 1.
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * Gets the name of the city's country.
+     *
+     * @return The country name.
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    /**
+     * Gets the name of the city.
+     *
+     * @return The city name.
+     */
+    public String getCity() {
+        return city;
+    }
+
+    /**
+     * Gets the AQI value of the ranked pollutant.
+     *
+     * @return The AQI value.
+     */
+    public int getAqiValue() {
+        return aqiValue;
+    }
+
+    /**
+     * Gets the AQI category of the ranked pollutant.
+     *
+     * @return The AQI category label.
+     */
+    public String getAqiCategory() {
+        return aqiCategory;
+    }
+}
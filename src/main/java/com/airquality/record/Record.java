@@ -3,27 +3,67 @@
  */
 package com.airquality.record;
 
+import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.AirQualityEntry;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.exceptions.InvalidRecordException;
+import com.airquality.locations.City;
 import com.airquality.locations.Country;
+import com.airquality.locations.Location;
 
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The Record class represents the collection of recorded air quality data.
  * It follows the Singleton pattern to ensure a single instance of the record exists.
+ * <p>
+ * The data is held in an immutable RecordSnapshot published through an atomic reference. Readers take the current
+ * snapshot without locking and always see a complete, consistent dataset; writers build the next snapshot and
+ * swap it in.
  */
 public class Record {
 
     /** The single instance of the Record class. */
     private static Record instance;
 
-    /** The list of countries containing air quality data records. */
-    private ArrayList<Country> countryRecords = new ArrayList<>();
+    /** The snapshot of the recorded air quality data currently published to readers. */
+    private final AtomicReference<RecordSnapshot> snapshot = new AtomicReference<>(RecordSnapshot.EMPTY);
+
+    /** The time the record was last compacted or loaded, in milliseconds since the epoch, or 0 if neither. */
+    private volatile long lastCompactionTime;
+
+    /** The live cities sorted by the AQI value of each pollutant, kept in step with every published change. */
+    private final EnumMap<Pollutant, PollutantIndex> pollutantIndexes = new EnumMap<>(Pollutant.class);
+
+    /** The bitmaps of the live cities in each AQI category of each pollutant, kept in step with every published change. */
+    private final CategoryIndex categoryIndex = new CategoryIndex();
+
+    /** The running statistics of the AQI values of the live cities by country, kept in step with every published change. */
+    private final StatisticsIndex statisticsIndex = new StatisticsIndex();
+
+    /** The sorted names of the countries and live cities for prefix search, kept in step with every published change. */
+    private final NameIndex nameIndex = new NameIndex();
+
+    /** The number of changes being published whose secondary index updates have not finished yet. */
+    private final AtomicInteger pendingIndexUpdates = new AtomicInteger();
 
     /**
      * Private constructor to prevent direct instantiation.
      */
     private Record() {
-        // Private constructor
+        for (Pollutant pollutant : Pollutant.values()) {
+            pollutantIndexes.put(pollutant, new PollutantIndex(pollutant));
+        }
     }
 
     /**
@@ -43,21 +83,473 @@ public class Record {
     }
 
     /**
-     * Gets the list of countries containing air quality data records.
+     * Gets the snapshot of the recorded air quality data currently published to readers.
+     * The snapshot never changes, so a reader that needs several lookups to agree should take it once and use it
+     * throughout.
      *
-     * @return The ArrayList of Country objects representing recorded air quality data.
+     * @return The current RecordSnapshot.
      */
-    public ArrayList<Country> getCountryRecords() {
-        return countryRecords;
+    public RecordSnapshot getSnapshot() {
+        return snapshot.get();
     }
 
     /**
-     * Sets the list of countries containing air quality data records.
+     * Gets the list of countries containing air quality data records, from the current snapshot.
+     *
+     * @return An unmodifiable list of Country objects representing recorded air quality data.
+     */
+    public List<Country> getCountryRecords() {
+        return snapshot.get().getCountries();
+    }
+
+    /**
+     * Sets the list of countries containing air quality data records, publishing them as a new snapshot that
+     * keeps the current columnar store.
      *
      * @param countryRecords The ArrayList of Country objects representing recorded air quality data.
      */
     public void setCountryRecords(ArrayList<Country> countryRecords) {
-        this.countryRecords = countryRecords;
+        pendingIndexUpdates.incrementAndGet();
+        try {
+            rebuildIndexes(snapshot.updateAndGet(current -> current.withCountries(countryRecords, current.getAirQualityColumns())));
+        } finally {
+            pendingIndexUpdates.decrementAndGet();
+        }
+    }
+
+    /**
+     * Publishes a fully built set of countries, together with the columnar store holding their readings, in place
+     * of the current snapshot. Nothing built here may be changed once published. The compaction interval starts
+     * again from here, so a freshly loaded dataset is not compacted straight away.
+     *
+     * @param countryRecords    The Country objects representing recorded air quality data.
+     * @param airQualityColumns The columnar store holding the readings of their cities.
+     */
+    public void replaceCountryRecords(ArrayList<Country> countryRecords, AirQualityColumns airQualityColumns) {
+        pendingIndexUpdates.incrementAndGet();
+        try {
+            rebuildIndexes(snapshot.updateAndGet(current -> current.withCountries(countryRecords, airQualityColumns)));
+        } finally {
+            pendingIndexUpdates.decrementAndGet();
+        }
+        lastCompactionTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Removes every country from the record and starts a new, empty columnar store for air quality readings.
+     */
+    public void clear() {
+        replaceCountryRecords(new ArrayList<>(), new AirQualityColumns());
+    }
+
+    /**
+     * Checks whether the secondary indexes hold exactly the data of a snapshot: the snapshot is still the latest
+     * one and every change published up to it has reached the indexes. A response read from the indexes matches
+     * the snapshot when this holds both before and after the indexes are read, so only then may it carry the
+     * entity tag of the snapshot.
+     *
+     * @param published The snapshot the response is tagged with.
+     * @return True if the indexes hold the data of the snapshot, false if they may be behind or ahead of it.
+     */
+    public boolean isIndexed(RecordSnapshot published) {
+        return pendingIndexUpdates.get() == 0 && snapshot.get() == published;
+    }
+
+    /**
+     * Gets the index of the live cities sorted by the AQI value of a pollutant. The index follows the latest
+     * published snapshot, which a reader holding an older snapshot may not have seen yet.
+     *
+     * @param pollutant The pollutant.
+     * @return The PollutantIndex of the pollutant.
+     */
+    public PollutantIndex getPollutantIndex(Pollutant pollutant) {
+        return pollutantIndexes.get(pollutant);
+    }
+
+    /**
+     * Gets the bitmap index of the live cities by the AQI category of each pollutant. Like the pollutant indexes,
+     * it follows the latest published snapshot.
+     *
+     * @return The CategoryIndex.
+     */
+    public CategoryIndex getCategoryIndex() {
+        return categoryIndex;
+    }
+
+    /**
+     * Gets the running statistics of the AQI values of the live cities by country. Like the pollutant indexes, they
+     * follow the latest published snapshot.
+     *
+     * @return The StatisticsIndex.
+     */
+    public StatisticsIndex getStatisticsIndex() {
+        return statisticsIndex;
+    }
+
+    /**
+     * Gets the index of the names of the countries and live cities for prefix search. Like the pollutant indexes,
+     * it follows the latest published snapshot.
+     *
+     * @return The NameIndex.
+     */
+    public NameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Finds the live cities whose AQI values lie within every one of the given ranges, in the index order of the
+     * most selective range.
+     *
+     * @param ranges The ranges, at most one per pollutant is useful but any number is accepted.
+     * @return The matching City objects, or an empty list if there are none.
+     */
+    public List<City> findCitiesInRanges(List<PollutantRange> ranges) {
+        PollutantRange mostSelective = findMostSelectiveRange(ranges);
+        return mostSelective == null ? new ArrayList<>() : findCitiesInRanges(ranges, mostSelective, Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Plans a query over several ranges from the pollutant indexes: the matches of each range are counted, stopping
+     * as soon as a range is known to match more cities than the best one so far, so planning costs no more than
+     * walking the smallest range once per range.
+     *
+     * @param ranges The ranges.
+     * @return The range matching the fewest cities, or null if there are no ranges or one of them matches no city.
+     */
+    public PollutantRange findMostSelectiveRange(List<PollutantRange> ranges) {
+        PollutantRange mostSelective = null;
+        int fewestMatches = Integer.MAX_VALUE;
+        for (PollutantRange range : ranges) {
+            int matches = getPollutantIndex(range.getPollutant()).countInRange(range.getStartingValue(), range.getEndingValue(), fewestMatches);
+            if (mostSelective == null || matches < fewestMatches) {
+                mostSelective = range;
+                fewestMatches = matches;
+            }
+        }
+        return fewestMatches > 0 ? mostSelective : null;
+    }
+
+    /**
+     * Finds a page of the live cities whose AQI values lie within every one of the given ranges. The index of the
+     * walked range is read in order from the given key, and each city is checked against the other ranges, so the
+     * walk stops as soon as the page is full. Later pages walk the same range from the key of the last city, which
+     * makes paging through the whole result cost one walk of the range.
+     *
+     * @param ranges   The ranges.
+     * @param walked   The range whose index is walked, normally the most selective one.
+     * @param afterKey The index key of the last city of the previous page, or Long.MIN_VALUE for the first page.
+     * @param limit    The maximum number of cities to return.
+     * @return The matching City objects after afterKey, in order of the walked pollutant's value and then city id.
+     */
+    public List<City> findCitiesInRanges(List<PollutantRange> ranges, PollutantRange walked, long afterKey, int limit) {
+        List<City> result = new ArrayList<>();
+        Iterator<City> cities = getPollutantIndex(walked.getPollutant()).iterateRange(walked.getStartingValue(), walked.getEndingValue(), afterKey);
+        while (result.size() < limit && cities.hasNext()) {
+            City city = cities.next();
+            boolean matchesAll = true;
+            for (PollutantRange range : ranges) {
+                if (range != walked && !range.contains(city)) {
+                    matchesAll = false;
+                    break;
+                }
+            }
+            if (matchesAll) {
+                result.add(city);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the columnar store holding the air quality readings of the recorded cities.
+     *
+     * @return The AirQualityColumns store.
+     */
+    public AirQualityColumns getAirQualityColumns() {
+        return snapshot.get().getAirQualityColumns();
+    }
+
+    /**
+     * Points a city at a row of the columnar store holding its new air quality reading, creating the city and its
+     * country if they do not exist yet. A copy of the country holding a copy of the city is published in a new
+     * snapshot, so readers of the previous snapshot keep seeing the previous reading.
+     *
+     * @param country           The name of the country.
+     * @param city              The name of the city.
+     * @param airQualityColumns The columnar store holding the reading.
+     * @param airQualityRow     The row of the columnar store holding the reading.
+     * @return The City object published for the city.
+     */
+    public City storeAirQuality(String country, String city, AirQualityColumns airQualityColumns, int airQualityRow) {
+        City newCity = null;
+        pendingIndexUpdates.incrementAndGet();
+        try {
+            while (true) {
+                RecordSnapshot current = snapshot.get();
+                Country targetCountry = current.getCountry(country);
+                City targetCity = targetCountry == null ? null : targetCountry.getCity(city);
+                City storedCity;
+                if (targetCity != null) {
+                    storedCity = targetCity.withAirQuality(airQualityColumns, airQualityRow);
+                } else {
+                    // Created once, so that a retry does not use up another city id
+                    if (newCity == null) {
+                        newCity = new City(city);
+                        newCity.bindAirQuality(airQualityColumns, airQualityRow);
+                    }
+                    storedCity = newCity;
+                }
+                Country storedCountry = targetCountry == null ? new Country(country) : targetCountry;
+                if (snapshot.compareAndSet(current, current.withCountry(storedCountry.withCity(storedCity)))) {
+                    updateIndexes(storedCountry.getName(), targetCity, storedCity);
+                    return storedCity;
+                }
+            }
+        } finally {
+            pendingIndexUpdates.decrementAndGet();
+        }
+    }
+
+    /**
+     * Points the cities of a batch of entries at the rows of the columnar store holding their new readings, adding
+     * the given new cities and creating any country that does not exist yet. Each country changed by the batch is
+     * copied once, and all the changes are published together in a single new snapshot.
+     *
+     * @param entries           The entries, naming the country and city of each reading.
+     * @param newCities         For each entry, the new City object it adds, already pointing at its reading, or
+     *                          null if the entry updates a city that exists or is added by an earlier entry.
+     * @param airQualityColumns The columnar store holding the readings.
+     * @param airQualityRows    The row of the columnar store holding the reading of each entry.
+     */
+    public void storeAirQuality(List<AirQualityEntry> entries, City[] newCities, AirQualityColumns airQualityColumns,
+                                int[] airQualityRows) {
+        pendingIndexUpdates.incrementAndGet();
+        try {
+            while (true) {
+                RecordSnapshot current = snapshot.get();
+                LinkedHashMap<String, Country> changedCountries = new LinkedHashMap<>();
+                String[] countryNames = new String[entries.size()];
+                City[] previousCities = new City[entries.size()];
+                City[] storedCities = new City[entries.size()];
+                for (int i = 0; i < entries.size(); i++) {
+                    AirQualityEntry entry = entries.get(i);
+                    Country targetCountry = changedCountries.computeIfAbsent(Location.toKey(entry.getCountry()), key -> {
+                        Country existing = current.getCountry(entry.getCountry());
+                        return existing == null ? new Country(entry.getCountry()) : existing.copy();
+                    });
+                    if (newCities[i] != null) {
+                        storedCities[i] = newCities[i];
+                    } else {
+                        previousCities[i] = targetCountry.getCity(entry.getCity());
+                        storedCities[i] = previousCities[i].withAirQuality(airQualityColumns, airQualityRows[i]);
+                    }
+                    targetCountry.putCity(storedCities[i]);
+                    countryNames[i] = targetCountry.getName();
+                }
+                if (snapshot.compareAndSet(current, current.withChangedCountries(changedCountries.values()))) {
+                    for (int i = 0; i < entries.size(); i++) {
+                        updateIndexes(countryNames[i], previousCities[i], storedCities[i]);
+                    }
+                    return;
+                }
+            }
+        } finally {
+            pendingIndexUpdates.decrementAndGet();
+        }
+    }
+
+    /**
+     * Adds a new city to a country, creating the country if it does not exist yet, and publishes the change.
+     *
+     * @param country The name of the country.
+     * @param city    The new City object, already pointing at its reading.
+     */
+    public void addCity(String country, City city) {
+        pendingIndexUpdates.incrementAndGet();
+        try {
+            snapshot.updateAndGet(current -> {
+                Country targetCountry = current.getCountry(country);
+                return current.withCountry(targetCountry == null ? new Country(country).withCity(city) : targetCountry.withCity(city));
+            });
+            updateIndexes(country, null, city);
+        } finally {
+            pendingIndexUpdates.decrementAndGet();
+        }
+    }
+
+    /**
+     * Stores the air quality reading of a city in the columnar store and publishes the city pointing at it,
+     * creating the city and its country if they do not exist yet.
+     *
+     * @param country    The name of the country.
+     * @param city       The name of the city.
+     * @param airQuality The AirQuality object to store for the city.
+     * @return The City object published for the city.
+     * @throws InvalidRecordException If the reading contains an invalid value or category.
+     */
+    public City storeAirQuality(String country, String city, AirQuality airQuality) throws InvalidRecordException {
+        AirQualityColumns columns = getAirQualityColumns();
+        return storeAirQuality(country, city, columns, columns.append(airQuality));
+    }
+
+    /**
+     * Marks the air quality reading of a city as deleted and publishes the change.
+     *
+     * @param country The name of the country.
+     * @param city    The name of the city.
+     * @return The City object published for the city.
+     */
+    public City deleteAirQuality(String country, String city) {
+        AirQualityColumns columns = getAirQualityColumns();
+        return storeAirQuality(country, city, columns, columns.appendDeleted());
+    }
+
+    /**
+     * Counts the cities whose air quality reading has been deleted but which are still held in the record.
+     *
+     * @return The number of deleted cities.
+     */
+    public int getTombstoneCount() {
+        int tombstones = 0;
+        for (Country country : getCountryRecords()) {
+            for (City city : country.getCities()) {
+                if (city.isDeleted()) {
+                    tombstones++;
+                }
+            }
+        }
+        return tombstones;
+    }
+
+    /**
+     * Counts the rows of the columnar store that no city points at any more, left behind by updates and deletes.
+     *
+     * @return The number of unused rows.
+     */
+    public int getUnusedRowCount() {
+        RecordSnapshot current = snapshot.get();
+        int used = 0;
+        for (Country country : current.getCountries()) {
+            used += country.getCities().size();
+        }
+        return current.getAirQualityColumns().size() - used;
+    }
+
+    /**
+     * Gets the time the record was last compacted, or loaded if it has not been compacted since.
+     *
+     * @return The time in milliseconds since the epoch, or 0 if the record has been neither loaded nor compacted.
+     */
+    public long getLastCompactionTime() {
+        return lastCompactionTime;
+    }
+
+    /**
+     * Removes the deleted cities from the record, along with any country left without cities, and copies the
+     * readings of the remaining cities into a new columnar store without the rows left behind by updates.
+     * <p>
+     * The record is rebuilt from new Country and City objects and published as a new snapshot, so readers of the
+     * old snapshot are not disturbed and never see a half compacted record. Cities keep their ids, so the ids of
+     * removed cities are left unused rather than handed to the cities after them.
+     * Callers must hold the lock on the whole dataset, so that no other write is published meanwhile.
+     *
+     * @return The number of cities removed.
+     */
+    public int compact() {
+        RecordSnapshot current = snapshot.get();
+        List<Country> countryRecords = current.getCountries();
+        List<City> liveCities = new ArrayList<>();
+        int tombstones = 0;
+        for (Country country : countryRecords) {
+            for (City city : country.getCities()) {
+                if (city.isDeleted()) {
+                    tombstones++;
+                } else {
+                    liveCities.add(city);
+                }
+            }
+        }
+        liveCities.sort(Comparator.comparingInt(City::getCityId));
+
+        AirQualityColumns compactedColumns = new AirQualityColumns();
+        HashMap<City, City> compactedCities = new HashMap<>();
+        int[] values = new int[Pollutant.values().length];
+        AqiCategory[] categories = new AqiCategory[values.length];
+        for (City city : liveCities) {
+            for (Pollutant pollutant : Pollutant.values()) {
+                values[pollutant.ordinal()] = city.getAqiValue(pollutant);
+                categories[pollutant.ordinal()] = city.getAqiCategory(pollutant);
+            }
+            compactedCities.put(city, city.withAirQuality(compactedColumns, compactedColumns.append(values, categories)));
+        }
+
+        ArrayList<Country> compactedCountries = new ArrayList<>();
+        for (Country country : countryRecords) {
+            ArrayList<City> cities = new ArrayList<>();
+            for (City city : country.getCities()) {
+                City compactedCity = compactedCities.get(city);
+                if (compactedCity != null) {
+                    cities.add(compactedCity);
+                }
+            }
+            if (!cities.isEmpty()) {
+                Country compactedCountry = new Country(country.getName());
+                compactedCountry.setCities(cities);
+                compactedCountries.add(compactedCountry);
+            }
+        }
+
+        RecordSnapshot compacted = current.withCountries(compactedCountries, compactedColumns);
+        pendingIndexUpdates.incrementAndGet();
+        try {
+            snapshot.set(compacted);
+            rebuildIndexes(compacted);
+        } finally {
+            pendingIndexUpdates.decrementAndGet();
+        }
+        lastCompactionTime = System.currentTimeMillis();
+        return tombstones;
+    }
+
+    /**
+     * Updates the secondary indexes after a new City object has been published for a city.
+     * Callers hold the write lock of the city's country, so changes to a city reach the indexes in order.
+     *
+     * @param country  The name of the city's country.
+     * @param previous The City object replaced, or null if the city is new.
+     * @param current  The City object published.
+     */
+    private void updateIndexes(String country, City previous, City current) {
+        for (PollutantIndex index : pollutantIndexes.values()) {
+            index.update(country, previous, current);
+        }
+        categoryIndex.update(previous, current);
+        statisticsIndex.update(country, previous, current);
+        nameIndex.update(country, previous, current);
+    }
+
+    /**
+     * Rebuilds the secondary indexes after a whole new dataset has been published.
+     *
+     * @param published The snapshot published.
+     */
+    private void rebuildIndexes(RecordSnapshot published) {
+        for (PollutantIndex index : pollutantIndexes.values()) {
+            index.rebuild(published.getCountries());
+        }
+        categoryIndex.rebuild(published.getCountries());
+        statisticsIndex.rebuild(published.getCountries());
+        nameIndex.rebuild(published.getCountries());
+    }
+
+    /**
+     * Gets a country by name, ignoring case.
+     *
+     * @param name The name of the country.
+     * @return The Country object, or null if no country with that name is recorded.
+     */
+    public Country getCountry(String name) {
+        return snapshot.get().getCountry(name);
     }
 
     public static void setInstance(Record instance) {
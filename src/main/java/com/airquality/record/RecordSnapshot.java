@@ -0,0 +1,141 @@
+/**
+ * The RecordSnapshot file represents one consistent version of the recorded air quality data.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.locations.Country;
+import com.airquality.locations.Location;
+import com.airquality.utility.SlotList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The RecordSnapshot class represents one consistent version of the recorded air quality data.
+ * A snapshot is never changed once it has been published by the Record: a write builds a new snapshot holding a
+ * copy of the country it changes, sharing every other country with the previous snapshot, and publishes it in
+ * place of the old one. Readers can therefore use a snapshot for as long as they like without locking. The
+ * countries are held in a SlotList, so the new snapshot shares all but a few small arrays of the old one's list.
+ */
+public class RecordSnapshot {
+
+    /** The snapshot of an empty record. */
+    static final RecordSnapshot EMPTY = new RecordSnapshot(SlotList.empty(), new AirQualityColumns(), 0);
+
+    // The countries of the snapshot, in the order they were added, keyed by normalised country name
+    private final SlotList<Country> countries;
+
+    // The columnar store holding the air quality readings of the cities of the snapshot
+    private final AirQualityColumns airQualityColumns;
+
+    // The version of the snapshot, increasing with every published change
+    private final long version;
+
+    /**
+     * Constructs a RecordSnapshot.
+     *
+     * @param countries         The countries of the snapshot, keyed by normalised country name.
+     * @param airQualityColumns The columnar store holding the air quality readings of the cities.
+     * @param version           The version of the snapshot.
+     */
+    private RecordSnapshot(SlotList<Country> countries, AirQualityColumns airQualityColumns, long version) {
+        this.countries = countries;
+        this.airQualityColumns = airQualityColumns;
+        this.version = version;
+    }
+
+    /**
+     * Gets the countries of the snapshot.
+     *
+     * @return An unmodifiable list of the countries.
+     */
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    /**
+     * Counts the cities of the snapshot, including deleted cities not yet compacted away.
+     *
+     * @return The number of cities.
+     */
+    public int getCityCount() {
+        int cities = 0;
+        for (Country country : countries) {
+            cities += country.getCities().size();
+        }
+        return cities;
+    }
+
+    /**
+     * Gets a country of the snapshot by name, ignoring case.
+     *
+     * @param name The name of the country.
+     * @return The Country object, or null if the snapshot has no country with that name.
+     */
+    public Country getCountry(String name) {
+        return countries.getByKey(Location.toKey(name));
+    }
+
+    /**
+     * Gets the columnar store holding the air quality readings of the cities of the snapshot.
+     *
+     * @return The AirQualityColumns store.
+     */
+    public AirQualityColumns getAirQualityColumns() {
+        return airQualityColumns;
+    }
+
+    /**
+     * Gets the version of the snapshot. Every snapshot published by the Record has a higher version than the
+     * one it replaced.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Creates the next snapshot, with a country added or, if the snapshot already has a country with the same
+     * name, replacing it. Every other country is shared with this snapshot.
+     *
+     * @param country The new or replacement Country object.
+     * @return The new snapshot.
+     */
+    RecordSnapshot withCountry(Country country) {
+        return withChangedCountries(Collections.singletonList(country));
+    }
+
+    /**
+     * Creates the next snapshot, with each of the given countries added or, if the snapshot already has a country
+     * with the same name, replacing it. Every other country is shared with this snapshot.
+     *
+     * @param changedCountries The new or replacement Country objects.
+     * @return The new snapshot.
+     */
+    RecordSnapshot withChangedCountries(Collection<Country> changedCountries) {
+        SlotList<Country> newCountries = countries;
+        for (Country country : changedCountries) {
+            newCountries = newCountries.put(Location.toKey(country.getName()), country);
+        }
+        return new RecordSnapshot(newCountries, airQualityColumns, version + 1);
+    }
+
+    /**
+     * Creates the next snapshot, holding the given countries instead of those of this snapshot.
+     *
+     * @param newCountries      The countries of the new snapshot.
+     * @param airQualityColumns The columnar store holding the air quality readings of their cities.
+     * @return The new snapshot.
+     */
+    RecordSnapshot withCountries(ArrayList<Country> newCountries, AirQualityColumns airQualityColumns) {
+        SlotList<Country> slots = SlotList.empty();
+        for (Country country : newCountries) {
+            slots = slots.append(Location.toKey(country.getName()), country);
+        }
+        return new RecordSnapshot(slots, airQualityColumns, version + 1);
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * The StatisticsIndex file provides running statistics of the AQI values of the recorded cities by country.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+import com.airquality.locations.Location;
+
+import java.util.Collection;
+import java.util.HashMap;
+
+/**
+ * The StatisticsIndex class keeps, for every country and for all countries together, the number of live cities
+ * and an AqiHistogram of the values of each pollutant. Every change the Record publishes moves a city's old values
+ * out of the histograms of its country and of the whole dataset and its new values in, so a request for the
+ * statistics of a country or of the world reads a few histograms rather than scanning the record.
+ * <p>
+ * The countries are spread over lock stripes by the hash of their key, and each stripe keeps the aggregates of its
+ * countries and a partial aggregate of all of them. A write locks only the stripe of its country, so writes to
+ * countries of different stripes run in parallel; the global statistics merge the partial aggregates of every
+ * stripe under all the stripes' read locks. When a whole new dataset is published, the histograms of each country
+ * are rebuilt and merged into the partial aggregates of their stripes.
+ */
+public class StatisticsIndex {
+
+    // Cached copy of Pollutant.values(), which allocates a new array on every call
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // Guards the aggregates, each stripe guarding the countries that map to it
+    private final IndexLockStripes locks = new IndexLockStripes(Constants.INDEX_LOCK_STRIPES);
+
+    // The aggregates of each stripe, indexed by stripe number; replaced as a whole when the index is rebuilt
+    private Stripe[] stripes = newStripes(locks.size());
+
+    /**
+     * Constructs an empty StatisticsIndex.
+     */
+    StatisticsIndex() {
+        // Package-private constructor, the index is owned by the Record
+    }
+
+    /**
+     * Gets the statistics of the live cities of a country.
+     *
+     * @param country The Country object, whose name is reported with the statistics.
+     * @return The LocationStatistics of the country, with no cities if none of them is live.
+     */
+    public LocationStatistics getCountryStatistics(Country country) {
+        String key = Location.toKey(country.getName());
+        int stripe = locks.stripeOf(key.hashCode());
+        locks.get(stripe).readLock().lock();
+        try {
+            Aggregate aggregate = stripes[stripe].countries.get(key);
+            return (aggregate == null ? new Aggregate() : aggregate).toStatistics(country.getName());
+        } finally {
+            locks.get(stripe).readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the statistics of the live cities of all countries.
+     *
+     * @return The global LocationStatistics, which has no name.
+     */
+    public LocationStatistics getGlobalStatistics() {
+        Aggregate global = new Aggregate();
+        locks.readLockAll();
+        try {
+            for (Stripe stripe : stripes) {
+                global.merge(stripe.total);
+            }
+        } finally {
+            locks.readUnlockAll();
+        }
+        return global.toStatistics(null);
+    }
+
+    /**
+     * Moves a city's values from its old reading to its new one after the Record has published a new City object
+     * for it. Changes to the same city must be applied in the order they were published.
+     *
+     * @param country  The name of the city's country.
+     * @param previous The City object the new one replaces, or null if the city is new.
+     * @param current  The City object published for the city.
+     */
+    void update(String country, City previous, City current) {
+        String key = Location.toKey(country);
+        int stripe = locks.stripeOf(key.hashCode());
+        locks.get(stripe).writeLock().lock();
+        try {
+            Stripe target = stripes[stripe];
+            Aggregate aggregate = target.countries.computeIfAbsent(key, countryKey -> new Aggregate());
+            if (previous != null) {
+                aggregate.remove(previous);
+                target.total.remove(previous);
+            }
+            aggregate.add(current);
+            target.total.add(current);
+        } finally {
+            locks.get(stripe).writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the aggregates from the cities of a whole new dataset, swapping them in at once.
+     *
+     * @param countryRecords The countries of the dataset.
+     */
+    void rebuild(Collection<Country> countryRecords) {
+        Stripe[] rebuilt = newStripes(locks.size());
+        for (Country country : countryRecords) {
+            Aggregate aggregate = new Aggregate();
+            for (City city : country.getCities()) {
+                aggregate.add(city);
+            }
+            String key = Location.toKey(country.getName());
+            Stripe stripe = rebuilt[locks.stripeOf(key.hashCode())];
+            stripe.countries.put(key, aggregate);
+            stripe.total.merge(aggregate);
+        }
+        locks.writeLockAll();
+        try {
+            stripes = rebuilt;
+        } finally {
+            locks.writeUnlockAll();
+        }
+    }
+
+    /**
+     * Creates empty stripes.
+     *
+     * @param count The number of stripes.
+     * @return The stripes.
+     */
+    private static Stripe[] newStripes(int count) {
+        Stripe[] created = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            created[i] = new Stripe();
+        }
+        return created;
+    }
+
+    /**
+     * The Stripe class holds the aggregates of the countries guarded by one lock stripe, and their total.
+     */
+    private static final class Stripe {
+
+        // The aggregate of each country of the stripe, keyed by normalised country name
+        private final HashMap<String, Aggregate> countries = new HashMap<>();
+
+        // The aggregate of all countries of the stripe
+        private final Aggregate total = new Aggregate();
+    }
+
+    /**
+     * The Aggregate class holds the number of live cities of a set of cities and the histogram of the values of
+     * each pollutant across them.
+     */
+    private static final class Aggregate {
+
+        // The number of live cities
+        private int cities;
+
+        // The histogram of each pollutant, indexed by pollutant ordinal
+        private final AqiHistogram[] histograms = new AqiHistogram[POLLUTANTS.length];
+
+        /**
+         * Constructs an empty Aggregate.
+         */
+        Aggregate() {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new AqiHistogram();
+            }
+        }
+
+        /**
+         * Counts the values of a city, unless it is deleted.
+         *
+         * @param city The City object.
+         */
+        void add(City city) {
+            if (city.isDeleted()) {
+                return;
+            }
+            cities++;
+            for (Pollutant pollutant : POLLUTANTS) {
+                int value = city.getAqiValue(pollutant);
+                if (value != AirQualityColumns.NOT_AVAILABLE) {
+                    histograms[pollutant.ordinal()].add(value);
+                }
+            }
+        }
+
+        /**
+         * Stops counting the values of a city counted before, unless it is deleted.
+         *
+         * @param city The City object.
+         */
+        void remove(City city) {
+            if (city.isDeleted()) {
+                return;
+            }
+            cities--;
+            for (Pollutant pollutant : POLLUTANTS) {
+                int value = city.getAqiValue(pollutant);
+                if (value != AirQualityColumns.NOT_AVAILABLE) {
+                    histograms[pollutant.ordinal()].remove(value);
+                }
+            }
+        }
+
+        /**
+         * Adds the counts of another aggregate to this one.
+         *
+         * @param other The aggregate to merge into this one.
+         */
+        void merge(Aggregate other) {
+            cities += other.cities;
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i].merge(other.histograms[i]);
+            }
+        }
+
+        /**
+         * Summarises the aggregate.
+         *
+         * @param name The name of the country, or null for the global statistics.
+         * @return The LocationStatistics of the aggregate.
+         */
+        LocationStatistics toStatistics(String name) {
+            AqiStatistics[] statistics = new AqiStatistics[histograms.length];
+            for (int i = 0; i < histograms.length; i++) {
+                statistics[i] = histograms[i].toStatistics();
+            }
+            return new LocationStatistics(name, cities, statistics);
+        }
+    }
+}
@@ -4,17 +4,34 @@
 package com.airquality.resources;
 
 import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.AirQualityEntry;
+import com.airquality.airquality.AirQualityEntryResult;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
 import com.airquality.exceptions.*;
 import com.airquality.locations.City;
 import com.airquality.constants.Constants;
 import com.airquality.locations.Country;
 import com.airquality.csv.CsvReadWrite;
+import com.airquality.record.PollutantIndex;
+import com.airquality.record.PollutantRange;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
 import com.airquality.utility.Utility;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The AirQualityResource class defines RESTful web services for managing air quality data.
@@ -23,54 +40,283 @@ import jakarta.ws.rs.core.Response;
 @Path("/air-quality/v1")
 public class AirQualityResource {
 
+    // The name of the list of cities within AQI value ranges, which its cursors belong to
+    private static final String RANGE_LIST_KEY = "air-quality/range";
+
+    // The name of the list of cities in AQI categories, which its cursors belong to
+    private static final String CATEGORY_LIST_KEY = "air-quality/category";
+
     /**
      * Retrieves air quality data for a specific city in a given country.
      *
      * @param countryName         The name of the country.
      * @param cityName            The name of the city.
-     * @param authorisationHeader The authorization header for authentication.
+     * @param fields              The air quality fields to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
      * @return The response containing the air quality data in JSON format.
      * @throws NoCityFoundException      If the specified city is not found.
      * @throws NoCountryFoundException   If the specified country is not found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the fields are invalid.
      */
     @GET
     @Path("/{countryName}/{cityName}")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getCityAirQuality(@PathParam("countryName") String countryName,
                                       @PathParam("cityName") String cityName,
-                                      @HeaderParam("Authorization") String authorisationHeader) throws NoCityFoundException, NoCountryFoundException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            AirQuality result = null;
-
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                if (Record.getInstance().getCountryRecords().get(i).getName().equalsIgnoreCase(countryName)) {
-                    Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-                    for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                        if (targetCountry.getCities().get(y).getName().equalsIgnoreCase(cityName)) {
-                            City targetCity = targetCountry.getCities().get(y);
-                            result = targetCity.getAirQuality();
-                        }
-                    }
-                }
-            }
+                                      @QueryParam("fields") String fields,
+                                      @Context Request request) throws NoCityFoundException, NoCountryFoundException, DatabaseNotFoundException, InvalidRecordException {
 
-            if (result != null) {
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok(result).cacheControl(cacheControl).build();
-            }
+        FieldProjection projection = FieldProjection.parse(fields);
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        Country targetCountry = Record.getInstance().getCountry(countryName);
+        if (targetCountry == null) {
+            throw NoCountryFoundException.COUNTRY_NOT_FOUND;
+        }
+
+        City targetCity = targetCountry.getCity(cityName);
+        if (targetCity == null || targetCity.isDeleted()) {
+            throw NoCityFoundException.CITY_NOT_FOUND;
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        EntityTag entityTag = Utility.getInstance().getEntityTag(targetCity);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+        Object airQuality = projection == null ? targetCity.getAirQuality() : projection.projectAirQuality(targetCity);
+        return Response.ok(airQuality).tag(entityTag).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Retrieves the cities whose AQI values lie within every one of the given ranges, for example PM2.5 between
+     * 100 and 200 and NO2 below 20. A range may give only a lower or only an upper bound, and pollutants without
+     * either bound are not restricted. The query walks the index of the most selective range, so the cities are
+     * sorted by that pollutant's AQI value and then city id, and every page stops once it is full.
+     *
+     * @param minAqi              The lowest overall AQI value, if restricted.
+     * @param maxAqi              The highest overall AQI value, if restricted.
+     * @param minCo               The lowest CO AQI value, if restricted.
+     * @param maxCo               The highest CO AQI value, if restricted.
+     * @param minOzone            The lowest ozone AQI value, if restricted.
+     * @param maxOzone            The highest ozone AQI value, if restricted.
+     * @param minNo2              The lowest NO2 AQI value, if restricted.
+     * @param maxNo2              The highest NO2 AQI value, if restricted.
+     * @param minPm               The lowest PM2.5 AQI value, if restricted.
+     * @param maxPm               The highest PM2.5 AQI value, if restricted.
+     * @param accept              The Accept header, which decides whether the cities are sent as JSON or in the columnar encoding.
+     * @param limit               The number of cities of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param fields              The fields of each city to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
+     * @return The response containing the matching cities in JSON format.
+     * @throws InvalidAqiValueException  If no range is given or a bound is negative.
+     * @throws NoCityFoundException      If no cities are found.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit, cursor or fields are invalid.
+     */
+    @GET
+    @Path("/range")
+    @Produces({MediaType.APPLICATION_JSON, Constants.COLUMNAR_MEDIA_TYPE})
+    public Response getCitiesInRanges(@QueryParam("minAqi") Integer minAqi, @QueryParam("maxAqi") Integer maxAqi,
+                                      @QueryParam("minCo") Integer minCo, @QueryParam("maxCo") Integer maxCo,
+                                      @QueryParam("minOzone") Integer minOzone, @QueryParam("maxOzone") Integer maxOzone,
+                                      @QueryParam("minNo2") Integer minNo2, @QueryParam("maxNo2") Integer maxNo2,
+                                      @QueryParam("minPm") Integer minPm, @QueryParam("maxPm") Integer maxPm,
+                                      @HeaderParam("Accept") String accept,
+                                      @QueryParam("limit") Integer limit,
+                                      @QueryParam("cursor") String cursor,
+                                      @QueryParam("fields") String fields,
+                                      @Context Request request,
+                                      @Context UriInfo uriInfo) throws InvalidAqiValueException, NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+
+        List<PollutantRange> ranges = new ArrayList<>();
+        addRange(ranges, Pollutant.AQI, minAqi, maxAqi);
+        addRange(ranges, Pollutant.CO, minCo, maxCo);
+        addRange(ranges, Pollutant.OZONE, minOzone, maxOzone);
+        addRange(ranges, Pollutant.NO2, minNo2, maxNo2);
+        addRange(ranges, Pollutant.PM, minPm, maxPm);
+        if (ranges.isEmpty()) {
+            throw new InvalidAqiValueException("At least one AQI value range must be given", 400);
+        }
+        int pageLimit = PageCursors.pageLimit(limit, cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        String afterKey = PageCursors.decode(RANGE_LIST_KEY, cursor);
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean columnar = Utility.getInstance().acceptsMediaType(accept, Constants.COLUMNAR_MEDIA_TYPE);
+        EntityTag entityTag = columnar ? Utility.getInstance().getColumnarEntityTag(snapshot) : Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+        // The first page chooses the range to walk; later pages keep walking it from the key in the cursor
+        PollutantRange walked = afterKey == null ? Record.getInstance().findMostSelectiveRange(ranges) : decodeWalkedRange(ranges, afterKey);
+        List<City> result = walked == null ? new ArrayList<>() : Record.getInstance().findCitiesInRanges(ranges, walked,
+                afterKey == null ? Long.MIN_VALUE : decodeWalkedKey(afterKey), PageCursors.fetchSize(pageLimit));
+        PollutantIndex walkedIndex = walked == null ? null : Record.getInstance().getPollutantIndex(walked.getPollutant());
+        String nextCursor = PageCursors.trimPage(RANGE_LIST_KEY, result, pageLimit,
+                city -> walked.getPollutant().name() + ":" + walkedIndex.getKey(city));
+        if (result.size() > 0) {
+            Response.ResponseBuilder response = ColumnarOutput.negotiate(columnar, result,
+                    columnar || projection == null ? result : projection.project(result));
+            return PageCursors.linkNext(response, uriInfo, nextCursor).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
+        } else {
+            throw NoCityFoundException.NO_CITY_FOUND;
+        }
+    }
 
-            if (!Utility.getInstance().doesCountryExist(countryName)) {
-                throw new NoCountryFoundException("Country not found in the database", 403);
-            } else {
-                throw new NoCityFoundException("City not found in the database", 403);
+    /**
+     * Finds the range walked by the previous page of a range query, named by the key of its cursor.
+     *
+     * @param ranges   The ranges of the query.
+     * @param afterKey The key of the cursor, holding the walked pollutant and the index key of the last city.
+     * @return The range of the walked pollutant.
+     * @throws InvalidRecordException If the key does not name a pollutant of the query.
+     */
+    private static PollutantRange decodeWalkedRange(List<PollutantRange> ranges, String afterKey) throws InvalidRecordException {
+        String pollutant = afterKey.substring(0, Math.max(afterKey.indexOf(':'), 0));
+        for (PollutantRange range : ranges) {
+            if (range.getPollutant().name().equals(pollutant)) {
+                return range;
             }
+        }
+        throw new InvalidRecordException("Cursor invalid", 400);
+    }
+
+    /**
+     * Reads the index key of the last city of the previous page of a range query from the key of its cursor.
+     *
+     * @param afterKey The key of the cursor, holding the walked pollutant and the index key of the last city.
+     * @return The index key of the last city.
+     * @throws InvalidRecordException If the key does not hold a valid index key.
+     */
+    private static long decodeWalkedKey(String afterKey) throws InvalidRecordException {
+        try {
+            return Long.parseLong(afterKey.substring(afterKey.indexOf(':') + 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidRecordException("Cursor invalid", 400);
+        }
+    }
+
+    /**
+     * Adds the range of a pollutant to a query if either of its bounds is given.
+     *
+     * @param ranges        The ranges of the query.
+     * @param pollutant     The pollutant.
+     * @param startingValue The lowest AQI value, or null for no lower bound.
+     * @param endingValue   The highest AQI value, or null for no upper bound.
+     * @throws InvalidAqiValueException If a bound is negative.
+     */
+    private static void addRange(List<PollutantRange> ranges, Pollutant pollutant, Integer startingValue,
+                                 Integer endingValue) throws InvalidAqiValueException {
+        if (startingValue == null && endingValue == null) {
+            return;
+        }
+        if (startingValue != null) {
+            Utility.getInstance().isAqiValueValid(String.valueOf(startingValue));
+        }
+        if (endingValue != null) {
+            Utility.getInstance().isAqiValueValid(String.valueOf(endingValue));
+        }
+        ranges.add(new PollutantRange(pollutant, startingValue == null ? 0 : startingValue,
+                endingValue == null ? Integer.MAX_VALUE : endingValue));
+    }
+
+    /**
+     * Retrieves the cities whose AQI category is one of the given categories for every given pollutant, for example
+     * PM2.5 Unhealthy and CO Good. A parameter may be repeated to accept several categories of a pollutant, and
+     * pollutants without a parameter are not restricted. The query is answered from the category bitmaps.
+     *
+     * @param aqi                 The overall AQI categories accepted, if restricted.
+     * @param co                  The CO AQI categories accepted, if restricted.
+     * @param ozone               The ozone AQI categories accepted, if restricted.
+     * @param no2                 The NO2 AQI categories accepted, if restricted.
+     * @param pm                  The PM2.5 AQI categories accepted, if restricted.
+     * @param accept              The Accept header, which decides whether the cities are sent as JSON or in the columnar encoding.
+     * @param limit               The number of cities of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param fields              The fields of each city to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
+     * @return The response containing the matching cities, sorted by city id, in JSON format.
+     * @throws InvalidAqiCategoryException If no category is given or a category is not known.
+     * @throws NoCityFoundException        If no cities are found.
+     * @throws DatabaseNotFoundException   If there is an issue connecting to the database.
+     * @throws InvalidRecordException      If the limit, cursor or fields are invalid.
+     */
+    @GET
+    @Path("/category")
+    @Produces({MediaType.APPLICATION_JSON, Constants.COLUMNAR_MEDIA_TYPE})
+    public Response getCitiesInCategories(@QueryParam("aqi") List<String> aqi, @QueryParam("co") List<String> co,
+                                          @QueryParam("ozone") List<String> ozone, @QueryParam("no2") List<String> no2,
+                                          @QueryParam("pm") List<String> pm,
+                                          @HeaderParam("Accept") String accept,
+                                          @QueryParam("limit") Integer limit,
+                                          @QueryParam("cursor") String cursor,
+                                          @QueryParam("fields") String fields,
+                                          @Context Request request,
+                                          @Context UriInfo uriInfo) throws InvalidAqiCategoryException, NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+
+        EnumMap<Pollutant, Set<AqiCategory>> categories = new EnumMap<>(Pollutant.class);
+        addCategories(categories, Pollutant.AQI, aqi);
+        addCategories(categories, Pollutant.CO, co);
+        addCategories(categories, Pollutant.OZONE, ozone);
+        addCategories(categories, Pollutant.NO2, no2);
+        addCategories(categories, Pollutant.PM, pm);
+        if (categories.isEmpty()) {
+            throw new InvalidAqiCategoryException("At least one AQI category must be given", 400);
+        }
+        int pageLimit = PageCursors.pageLimit(limit, cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        int afterCityId = PageCursors.decodeCityId(CATEGORY_LIST_KEY, cursor);
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean columnar = Utility.getInstance().acceptsMediaType(accept, Constants.COLUMNAR_MEDIA_TYPE);
+        EntityTag entityTag = columnar ? Utility.getInstance().getColumnarEntityTag(snapshot) : Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+        List<City> result = Record.getInstance().getCategoryIndex().findCities(categories, afterCityId, PageCursors.fetchSize(pageLimit));
+        String nextCursor = PageCursors.trimPage(CATEGORY_LIST_KEY, result, pageLimit, city -> String.valueOf(city.getCityId()));
+        if (result.size() > 0) {
+            Response.ResponseBuilder response = ColumnarOutput.negotiate(columnar, result,
+                    columnar || projection == null ? result : projection.project(result));
+            return PageCursors.linkNext(response, uriInfo, nextCursor).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            throw NoCityFoundException.NO_CITY_FOUND;
+        }
+    }
+
+    /**
+     * Adds the accepted categories of a pollutant to a query if any are given.
+     *
+     * @param categories The accepted categories of each pollutant in the query.
+     * @param pollutant  The pollutant.
+     * @param labels     The labels of the accepted categories, or an empty list if the pollutant is not restricted.
+     * @throws InvalidAqiCategoryException If a label is not a known AQI category.
+     */
+    private static void addCategories(EnumMap<Pollutant, Set<AqiCategory>> categories, Pollutant pollutant,
+                                      List<String> labels) throws InvalidAqiCategoryException {
+        if (labels == null || labels.isEmpty()) {
+            return;
+        }
+        Set<AqiCategory> accepted = EnumSet.noneOf(AqiCategory.class);
+        for (String label : labels) {
+            Utility.getInstance().isAqiCategoryValid(label);
+            accepted.add(AqiCategory.fromLabel(label));
         }
+        categories.put(pollutant, accepted);
     }
 
     /**
@@ -79,35 +325,51 @@ public class AirQualityResource {
      * @param countryName         The name of the country.
      * @param cityName            The name of the city.
      * @param airQualityRecord    The air quality data to be recorded.
-     * @param authorisationHeader The authorization header for authentication.
      * @return The response indicating the success of the operation.
      * @throws InvalidCityException        If the specified city is invalid.
      * @throws DatabaseNotFoundException   If there is an issue connecting to the database.
      * @throws InvalidAqiValueException    If there is an issue with the air quality value.
      * @throws InvalidAqiCategoryException If there is an issue with the air quality category.
+     * @throws InvalidRecordException      If the air quality data cannot be stored.
      */
     @POST
     @Path("/{countryName}/{cityName}")
     @Produces(MediaType.TEXT_PLAIN)
     @Consumes(MediaType.APPLICATION_JSON)
     public Response createCityAirQuality(@PathParam("countryName") String countryName,
-                                         @PathParam("cityName") String cityName, AirQuality airQualityRecord,
-                                         @HeaderParam("Authorization") String authorisationHeader) throws InvalidCityException, DatabaseNotFoundException, InvalidAqiValueException, InvalidAqiCategoryException {
-
-        CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader) && Utility.getInstance().isAirQualityValid(airQualityRecord)) {
-            if (Utility.getInstance().doesCityExist(countryName, cityName)) {
-                throw new InvalidCityException("City already exists", 403);
-            } else {
-                CsvReadWrite.appendDataToCSV(Constants.FILE_PATH, countryName, cityName, airQualityRecord);
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok("Air Quality Record Created Successfully For " + cityName + ", " + countryName).cacheControl(cacheControl).build();
-            }
-        } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+                                         @PathParam("cityName") String cityName, AirQuality airQualityRecord) throws InvalidCityException, DatabaseNotFoundException, InvalidAqiValueException, InvalidAqiCategoryException, InvalidRecordException {
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+
+        Utility.getInstance().isAirQualityValid(airQualityRecord);
+        // Fails with InvalidCityException if the city already exists
+        CsvReadWrite.appendDataToCSV(Constants.FILE_PATH, countryName, cityName, airQualityRecord);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        return Response.ok("Air Quality Record Created Successfully For " + cityName + ", " + countryName).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Creates or updates the air quality records of many cities in one request. Each entry is validated and
+     * stored on its own, and the response holds the outcome of every entry in the order they were sent.
+     *
+     * @param entries             The entries to store, each naming a country, a city and its air quality data.
+     * @return The response containing the result of each entry in JSON format.
+     * @throws InvalidRecordException    If the batch is empty or holds too many entries.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     */
+    @POST
+    @Path("/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response storeAirQualityBatch(List<AirQualityEntry> entries) throws InvalidRecordException, DatabaseNotFoundException {
+
+        if (entries == null || entries.isEmpty() || entries.size() > Constants.BATCH_MAX_ENTRIES) {
+            throw new InvalidRecordException("Batch must hold between 1 and " + Constants.BATCH_MAX_ENTRIES + " entries", 400);
         }
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        List<AirQualityEntryResult> results = CsvReadWrite.storeAirQualityBatch(Constants.FILE_PATH, entries);
+        return Response.ok(results).build();
     }
 
     /**
@@ -116,32 +378,27 @@ public class AirQualityResource {
      * @param countryName         The name of the country.
      * @param cityName            The name of the city.
      * @param airQualityRecord    The updated air quality data.
-     * @param authorisationHeader The authorization header for authentication.
      * @return The response indicating the success of the operation.
      * @throws InvalidCountryException     If the specified country is invalid.
      * @throws InvalidCityException        If the specified city is invalid.
      * @throws DatabaseNotFoundException   If there is an issue connecting to the database.
      * @throws InvalidAqiValueException    If there is an issue with the air quality value.
      * @throws InvalidAqiCategoryException If there is an issue with the air quality category.
+     * @throws InvalidRecordException      If the air quality data cannot be stored.
      */
     @PUT
     @Path("/{countryName}/{cityName}")
     @Produces(MediaType.TEXT_PLAIN)
     @Consumes(MediaType.APPLICATION_JSON)
     public Response updateCityAirQuality(@PathParam("countryName") String countryName,
-                                         @PathParam("cityName") String cityName, AirQuality airQualityRecord,
-                                         @HeaderParam("Authorization") String authorisationHeader) throws InvalidCountryException, InvalidCityException, DatabaseNotFoundException, InvalidAqiValueException, InvalidAqiCategoryException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader) && Utility.getInstance().isAirQualityValid(airQualityRecord)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            int cityId = Utility.getInstance().getCityId(countryName, cityName);
-            CsvReadWrite.updateCsvLine(Constants.FILE_PATH, countryName, cityId, airQualityRecord);
-            CacheControl cacheControl = new CacheControl();
-            cacheControl.setMaxAge(5);
-            return Response.ok("Air Quality Record Updated Successfully For " + cityName + ", " + countryName).cacheControl(cacheControl).build();
-        } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
-        }
+                                         @PathParam("cityName") String cityName, AirQuality airQualityRecord) throws InvalidCountryException, InvalidCityException, DatabaseNotFoundException, InvalidAqiValueException, InvalidAqiCategoryException, InvalidRecordException {
+
+        Utility.getInstance().isAirQualityValid(airQualityRecord);
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CsvReadWrite.updateCsvLine(Constants.FILE_PATH, countryName, cityName, airQualityRecord);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        return Response.ok("Air Quality Record Updated Successfully For " + cityName + ", " + countryName).cacheControl(cacheControl).build();
     }
 
     /**
@@ -149,29 +406,23 @@ public class AirQualityResource {
      *
      * @param countryName         The name of the country.
      * @param cityName            The name of the city.
-     * @param authorisationHeader The authorization header for authentication.
      * @return The response indicating the success of the operation.
      * @throws InvalidCountryException   If the specified country is invalid.
      * @throws InvalidCityException      If the specified city is invalid.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If a name is invalid.
      */
     @DELETE
     @Path("/{countryName}/{cityName}")
     @Produces(MediaType.TEXT_PLAIN)
     public Response deleteCityAirQuality(@PathParam("countryName") String countryName,
-                                         @PathParam("cityName") String cityName,
-                                         @HeaderParam("Authorization") String authorisationHeader) throws InvalidCountryException, InvalidCityException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            int lineNumber = Utility.getInstance().getCityId(countryName, cityName);
-            CsvReadWrite.deleteCsvLine(Constants.FILE_PATH, countryName, cityName, lineNumber);
-            CacheControl cacheControl = new CacheControl();
-            cacheControl.setMaxAge(5);
-            return Response.ok("Air Quality Record Deleted Successfully For " + cityName + ", " + countryName).cacheControl(cacheControl).build();
-        } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
-        }
+                                         @PathParam("cityName") String cityName) throws InvalidCountryException, InvalidCityException, DatabaseNotFoundException, InvalidRecordException {
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CsvReadWrite.deleteCsvLine(Constants.FILE_PATH, countryName, cityName);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        return Response.ok("Air Quality Record Deleted Successfully For " + cityName + ", " + countryName).cacheControl(cacheControl).build();
     }
 }
 
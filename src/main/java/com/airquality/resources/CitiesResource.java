@@ -3,21 +3,32 @@
  */
 package com.airquality.resources;
 
+import com.airquality.cache.CachedJson;
+import com.airquality.cache.ResponseCache;
 import com.airquality.constants.Constants;
 import com.airquality.csv.CsvReadWrite;
 import com.airquality.exceptions.*;
-import com.airquality.locations.Country;
+import com.airquality.locations.City;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
 import com.airquality.utility.Utility;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 
-import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The CitiesResource class defines RESTful web services for managing city data.
@@ -26,42 +37,85 @@ import java.util.ArrayList;
 @Path("/cities/v1")
 public class CitiesResource {
 
+    // The key of the response of getAllCities in the response cache
+    private static final String CACHE_KEY = "cities/names";
+
     /**
-     * Retrieves the names of all cities.
+     * Retrieves the names of all cities. Pages list the cities in order of city id.
      *
-     * @param authorisationHeader The authorization header for authentication.
+     * @param acceptEncoding      The Accept-Encoding header, which decides whether the response is compressed.
+     * @param limit               The number of elements of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
      * @return The response containing the names of all cities in JSON format.
      * @throws NoCityFoundException      If no cities are found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit or cursor is invalid.
      */
     @GET
     @Path("/names")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllCities(
-            @HeaderParam("Authorization") String authorisationHeader) throws NoCityFoundException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            ArrayList<String> result = new ArrayList<>();
+            @HeaderParam("Accept-Encoding") String acceptEncoding,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @Context Request request,
+            @Context UriInfo uriInfo) throws NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
 
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-
-                for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                    result.add(targetCountry.getCities().get(y).getName());
-                }
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean paged = PageCursors.isPaged(limit, cursor);
+        boolean gzipped = !paged && Utility.getInstance().acceptsGzip(acceptEncoding);
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot, gzipped);
+        if (paged) {
+            Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+            if (notModified != null) {
+                return notModified;
             }
-
-            if (result.size() > 0) {
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok(result).cacheControl(cacheControl).build();
-            } else {
-                throw new NoCityFoundException("No Cities Found", 403);
+        } else {
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+            if (notModified != null) {
+                return notModified.cacheControl(cacheControl).build();
+            }
+        }
+        if (paged) {
+            // Pages are found through the city table of the category index rather than by walking the countries
+            int pageLimit = PageCursors.checkLimit(limit);
+            int afterCityId = PageCursors.decodeCityId(CACHE_KEY, cursor);
+            List<City> page = Record.getInstance().getCategoryIndex().listCities(afterCityId, pageLimit + 1);
+            String nextCursor = PageCursors.trimPage(CACHE_KEY, page, pageLimit, city -> String.valueOf(city.getCityId()));
+            if (!page.isEmpty()) {
+                List<String> names = page.stream().map(City::getName).collect(Collectors.toList());
+                return PageCursors.linkNext(Response.ok(names), uriInfo, nextCursor).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
+            }
+        } else if (ResponseCache.getInstance().isCacheable(snapshot)) {
+            CachedJson result = ResponseCache.getInstance().get(CACHE_KEY, snapshot, cached -> listCityNames(cached).collect(Collectors.toList()));
+            if (!result.isEmpty()) {
+                return result.toResponse(gzipped).tag(entityTag).cacheControl(cacheControl).build();
             }
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            Iterator<String> result = listCityNames(snapshot).iterator();
+            if (result.hasNext()) {
+                return new StreamingJsonOutput(result, gzipped).toResponse().tag(entityTag).cacheControl(cacheControl).build();
+            }
         }
+        throw NoCityFoundException.NO_CITIES_FOUND;
+    }
+
+    /**
+     * Lists the names of the live cities of a snapshot.
+     *
+     * @param snapshot The snapshot of the dataset.
+     * @return The city names, in the order of their countries.
+     */
+    private static Stream<String> listCityNames(RecordSnapshot snapshot) {
+        return snapshot.getCountries().stream()
+                .flatMap(country -> country.getCities().stream())
+                .filter(city -> !city.isDeleted())
+                .map(City::getName);
     }
 }
 
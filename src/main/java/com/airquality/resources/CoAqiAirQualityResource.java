@@ -3,22 +3,31 @@
  */
 package com.airquality.resources;
 
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
 import com.airquality.exceptions.*;
 import com.airquality.locations.City;
 import com.airquality.constants.Constants;
-import com.airquality.locations.Country;
 import com.airquality.csv.CsvReadWrite;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
 import com.airquality.utility.Utility;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 
-import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 
 /**
  * The CoAqiAirQualityResource class provides RESTful web services for retrieving air quality information related to CO (Carbon Monoxide).
@@ -26,87 +35,113 @@ import java.util.ArrayList;
 @Path("/co/v1")
 public class CoAqiAirQualityResource {
 
+    // The name of the list of cities with healthy CO air quality, which its cursors belong to
+    private static final String HEALTHY_LIST_KEY = "co/co-healthy-cities";
+
+    // The name of the list of cities with unhealthy CO air quality, which its cursors belong to
+    private static final String UNHEALTHY_LIST_KEY = "co/co-unhealthy-cities";
+
     /**
      * Retrieves cities with healthy CO air quality.
      *
-     * @param authorisationHeader The authorization header for authentication.
+     * @param accept              The Accept header, which decides whether the cities are sent as JSON or in the columnar encoding.
+     * @param limit               The number of cities of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param fields              The fields of each city to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
      * @return The response containing cities with healthy CO air quality in JSON format.
      * @throws NoCityFoundException      If no cities with healthy CO air quality are found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit, cursor or fields are invalid.
      */
     @GET
     @Path("/co-healthy-cities")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Constants.COLUMNAR_MEDIA_TYPE})
     public Response getCoHealthyCities(
-            @HeaderParam("Authorization") String authorisationHeader) throws NoCityFoundException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            ArrayList<City> result = new ArrayList<>();
-
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-
-                for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                    City targetCity = targetCountry.getCities().get(y);
-
-                    if (targetCity.getAirQuality().getCoAqiCategory().equalsIgnoreCase(Constants.AQI_CATEGORY_HEALTHY)) {
-                        result.add(targetCity);
-                    }
-                }
-            }
-
-            if (result.size() > 0) {
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok(result).cacheControl(cacheControl).build();
-            } else {
-                throw new NoCityFoundException("No City Found", 403);
-            }
+            @HeaderParam("Accept") String accept,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("fields") String fields,
+            @Context Request request,
+            @Context UriInfo uriInfo) throws NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+
+        int pageLimit = PageCursors.pageLimit(limit, cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        int afterCityId = PageCursors.decodeCityId(HEALTHY_LIST_KEY, cursor);
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean columnar = Utility.getInstance().acceptsMediaType(accept, Constants.COLUMNAR_MEDIA_TYPE);
+        EntityTag entityTag = columnar ? Utility.getInstance().getColumnarEntityTag(snapshot) : Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+        List<City> result = Record.getInstance().getCategoryIndex().findCities(
+                Collections.singletonMap(Pollutant.CO, EnumSet.of(AqiCategory.GOOD)),
+                afterCityId, PageCursors.fetchSize(pageLimit));
+        String nextCursor = PageCursors.trimPage(HEALTHY_LIST_KEY, result, pageLimit, city -> String.valueOf(city.getCityId()));
+
+        if (result.size() > 0) {
+            Response.ResponseBuilder response = ColumnarOutput.negotiate(columnar, result,
+                    columnar || projection == null ? result : projection.project(result));
+            return PageCursors.linkNext(response, uriInfo, nextCursor).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            throw NoCityFoundException.NO_CITY_FOUND;
         }
     }
 
     /**
      * Retrieves cities with unhealthy CO air quality.
      *
-     * @param authorisationHeader The authorization header for authentication.
+     * @param accept              The Accept header, which decides whether the cities are sent as JSON or in the columnar encoding.
+     * @param limit               The number of cities of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param fields              The fields of each city to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
      * @return The response containing cities with unhealthy CO air quality in JSON format.
      * @throws NoCityFoundException      If no cities with unhealthy CO air quality are found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit, cursor or fields are invalid.
      */
     @GET
     @Path("/co-unhealthy-cities")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Constants.COLUMNAR_MEDIA_TYPE})
     public Response getCoUnhealthyCities(
-            @HeaderParam("Authorization") String authorisationHeader) throws NoCityFoundException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            ArrayList<City> result = new ArrayList<>();
-
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-
-                for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                    City targetCity = targetCountry.getCities().get(y);
-
-                    if (targetCity.getAirQuality().getCoAqiCategory().equalsIgnoreCase(Constants.AQI_CATEGORY_UNHEALTHY) || targetCity.getAirQuality().getCoAqiCategory().equalsIgnoreCase(Constants.AQI_CATEGORY_UNHEALTHY_FOR_CERTAIN_GROUPS)) {
-                        result.add(targetCity);
-                    }
-                }
-            }
-
-            if (result.size() > 0) {
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok(result).cacheControl(cacheControl).build();
-            } else {
-                throw new NoCityFoundException("No City Found", 403);
-            }
+            @HeaderParam("Accept") String accept,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("fields") String fields,
+            @Context Request request,
+            @Context UriInfo uriInfo) throws NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+
+        int pageLimit = PageCursors.pageLimit(limit, cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        int afterCityId = PageCursors.decodeCityId(UNHEALTHY_LIST_KEY, cursor);
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean columnar = Utility.getInstance().acceptsMediaType(accept, Constants.COLUMNAR_MEDIA_TYPE);
+        EntityTag entityTag = columnar ? Utility.getInstance().getColumnarEntityTag(snapshot) : Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+        List<City> result = Record.getInstance().getCategoryIndex().findCities(
+                Collections.singletonMap(Pollutant.CO, EnumSet.of(AqiCategory.UNHEALTHY, AqiCategory.UNHEALTHY_FOR_SENSITIVE_GROUPS)),
+                afterCityId, PageCursors.fetchSize(pageLimit));
+        String nextCursor = PageCursors.trimPage(UNHEALTHY_LIST_KEY, result, pageLimit, city -> String.valueOf(city.getCityId()));
+
+        if (result.size() > 0) {
+            Response.ResponseBuilder response = ColumnarOutput.negotiate(columnar, result,
+                    columnar || projection == null ? result : projection.project(result));
+            return PageCursors.linkNext(response, uriInfo, nextCursor).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            throw NoCityFoundException.NO_CITY_FOUND;
         }
     }
 }
@@ -0,0 +1,226 @@
+/**
+ * The ColumnarOutput file writes lists of cities in a compact columnar binary encoding.
+ */
+package com.airquality.resources;
+
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The ColumnarOutput class writes a list of cities, optionally grouped by country, in the columnar binary
+ * encoding served to clients that ask for application/vnd.airquality.columnar. Machine clients read it with a few
+ * loops over primitive columns instead of parsing JSON, and it is several times smaller.
+ * <p>
+ * All integers are unsigned LEB128 varints and all strings are a varint byte length followed by UTF-8 bytes.
+ * The body is laid out as:
+ * <ol>
+ *     <li>the magic bytes "AQC" and the format version 1;</li>
+ *     <li>the number of cities;</li>
+ *     <li>the category dictionary: its size, then the labels, with "N/A" first and the AQI categories after it;</li>
+ *     <li>the country dictionary: its size, then the country names, or a size of 0 for a plain list of cities;</li>
+ *     <li>if there are countries, the country column: the dictionary index of each city's country;</li>
+ *     <li>the name column: the name of each city;</li>
+ *     <li>the city id column: each id as a zigzag-encoded difference from the previous id, starting from 0;</li>
+ *     <li>for each pollutant in the order AQI, CO, ozone, NO2 and PM2.5, a value column holding each AQI value
+ *     plus 1, with 0 for "N/A", and a category column holding the dictionary index of each category.</li>
+ * </ol>
+ * Each column is written in a pass over the cities, so nothing is built in memory beyond the write buffer.
+ */
+class ColumnarOutput implements StreamingOutput {
+
+    // The size of the buffer between the encoder and the response stream
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // The magic bytes and format version at the start of every body
+    private static final byte[] HEADER = {'A', 'Q', 'C', 1};
+
+    // Cached copy of Pollutant.values(), which allocates a new array on every call
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // Cached copy of AqiCategory.values(), which allocates a new array on every call
+    private static final AqiCategory[] CATEGORIES = AqiCategory.values();
+
+    /**
+     * Writes one column entry of a city.
+     */
+    private interface CityWriter {
+
+        /**
+         * Writes the column entry of a city.
+         *
+         * @param city         The City object.
+         * @param countryIndex The dictionary index of the city's country, or 0 without countries.
+         * @throws IOException If the response cannot be written.
+         */
+        void write(City city, int countryIndex) throws IOException;
+    }
+
+    // The countries holding the cities, or null for a plain list of cities
+    private final List<Country> countries;
+
+    // The cities, when there are no countries
+    private final List<City> cities;
+
+    /**
+     * Constructs a ColumnarOutput.
+     *
+     * @param countries The countries holding the cities, or null for a plain list of cities.
+     * @param cities    The cities, when there are no countries.
+     */
+    private ColumnarOutput(List<Country> countries, List<City> cities) {
+        this.countries = countries;
+        this.cities = cities;
+    }
+
+    /**
+     * Creates a ColumnarOutput for the cities of a list of countries, with a country column.
+     *
+     * @param countries The countries, holding only live cities.
+     * @return The ColumnarOutput.
+     */
+    static ColumnarOutput ofCountries(List<Country> countries) {
+        return new ColumnarOutput(countries, null);
+    }
+
+    /**
+     * Creates a ColumnarOutput for a list of cities, without a country column.
+     *
+     * @param cities The cities.
+     * @return The ColumnarOutput.
+     */
+    static ColumnarOutput ofCities(List<City> cities) {
+        return new ColumnarOutput(null, cities);
+    }
+
+    /**
+     * Builds a 200 response for a list of cities in whichever representation the client asked for.
+     *
+     * @param columnar Whether the client asked for the columnar encoding.
+     * @param cities   The cities, written in the columnar encoding.
+     * @param json     The entity written as JSON otherwise.
+     * @return The response builder, to which the caller adds its entity tag and cache control.
+     */
+    static Response.ResponseBuilder negotiate(boolean columnar, List<City> cities, Object json) {
+        Response.ResponseBuilder response = columnar ? ofCities(cities).toResponse() : Response.ok(json);
+        return response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Builds a 200 response writing the cities in the columnar encoding.
+     *
+     * @return The response builder, to which the caller adds its entity tag and cache control.
+     */
+    Response.ResponseBuilder toResponse() {
+        return Response.ok(this, Constants.COLUMNAR_MEDIA_TYPE).header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    }
+
+    /**
+     * Writes the cities to the response stream.
+     *
+     * @param output The response stream.
+     * @throws IOException If the response cannot be written.
+     */
+    @Override
+    public void write(OutputStream output) throws IOException {
+        BufferedOutputStream buffer = new BufferedOutputStream(output, BUFFER_SIZE);
+        buffer.write(HEADER);
+
+        int[] cityCount = new int[1];
+        forEachCity((city, countryIndex) -> cityCount[0]++);
+        writeVarint(buffer, cityCount[0]);
+
+        writeVarint(buffer, CATEGORIES.length + 1);
+        writeString(buffer, Constants.DELETED_CHARACTER);
+        for (AqiCategory category : CATEGORIES) {
+            writeString(buffer, category.getLabel());
+        }
+
+        List<Country> dictionary = countries == null ? Collections.emptyList() : countries;
+        writeVarint(buffer, dictionary.size());
+        for (Country country : dictionary) {
+            writeString(buffer, country.getName());
+        }
+        if (countries != null) {
+            forEachCity((city, countryIndex) -> writeVarint(buffer, countryIndex));
+        }
+
+        forEachCity((city, countryIndex) -> writeString(buffer, city.getName()));
+        int[] previousCityId = new int[1];
+        forEachCity((city, countryIndex) -> {
+            int difference = city.getCityId() - previousCityId[0];
+            writeVarint(buffer, (difference << 1) ^ (difference >> 31));
+            previousCityId[0] = city.getCityId();
+        });
+
+        for (Pollutant pollutant : POLLUTANTS) {
+            forEachCity((city, countryIndex) -> writeVarint(buffer, city.getAqiValue(pollutant) + 1));
+            forEachCity((city, countryIndex) -> {
+                AqiCategory category = city.getAqiCategory(pollutant);
+                writeVarint(buffer, category == null ? 0 : category.ordinal() + 1);
+            });
+        }
+        buffer.flush();
+    }
+
+    /**
+     * Passes every city, in order, to a column writer.
+     *
+     * @param writer The column writer.
+     * @throws IOException If the response cannot be written.
+     */
+    private void forEachCity(CityWriter writer) throws IOException {
+        if (countries == null) {
+            for (City city : cities) {
+                writer.write(city, 0);
+            }
+            return;
+        }
+        for (int countryIndex = 0; countryIndex < countries.size(); countryIndex++) {
+            for (City city : countries.get(countryIndex).getCities()) {
+                writer.write(city, countryIndex);
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint: seven bits per byte, lowest first, with the top bit set on every byte but
+     * the last.
+     *
+     * @param output The stream to write to.
+     * @param value  The value, taken as unsigned.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void writeVarint(OutputStream output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    /**
+     * Writes a string as its UTF-8 byte length followed by its UTF-8 bytes.
+     *
+     * @param output The stream to write to.
+     * @param value  The string.
+     * @throws IOException If the response cannot be written.
+     */
+    private static void writeString(OutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(output, bytes.length);
+        output.write(bytes);
+    }
+}
@@ -3,17 +3,29 @@
  */
 package com.airquality.resources;
 
+import com.airquality.cache.CachedJson;
+import com.airquality.cache.ResponseCache;
 import com.airquality.constants.Constants;
 import com.airquality.csv.CsvReadWrite;
 import com.airquality.exceptions.*;
+import com.airquality.locations.Country;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
 import com.airquality.utility.Utility;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The CountriesResource class provides RESTful web services for retrieving information related to countries.
@@ -21,37 +33,71 @@ import java.util.ArrayList;
 @Path("/countries/v1")
 public class CountriesResource {
 
+    // The key of the response of getAllCountries in the response cache
+    private static final String CACHE_KEY = "countries/names";
+
     /**
      * Retrieves the names of all countries.
      *
-     * @param authorisationHeader The authorization header for authentication.
+     * @param acceptEncoding      The Accept-Encoding header, which decides whether the response is compressed.
+     * @param limit               The number of elements of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
      * @return The response containing the names of all countries in JSON format.
      * @throws NoCountryFoundException   If no countries are found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit or cursor is invalid.
      */
     @GET
     @Path("/names")
     @Produces(MediaType.APPLICATION_JSON)
     public Response getAllCountries(
-            @HeaderParam("Authorization") String authorisationHeader) throws NoCountryFoundException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            ArrayList<String> result = new ArrayList<>();
+            @HeaderParam("Accept-Encoding") String acceptEncoding,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @Context Request request,
+            @Context UriInfo uriInfo) throws NoCountryFoundException, DatabaseNotFoundException, InvalidRecordException {
 
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                result.add(Record.getInstance().getCountryRecords().get(i).getName());
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean paged = PageCursors.isPaged(limit, cursor);
+        boolean gzipped = !paged && Utility.getInstance().acceptsGzip(acceptEncoding);
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot, gzipped);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+        if (paged) {
+            List<String> page = new ArrayList<>();
+            String nextCursor = PageCursors.fillCountryPage(CACHE_KEY, snapshot.getCountries(), cursor,
+                    PageCursors.checkLimit(limit), Country::getName, page);
+            if (!page.isEmpty()) {
+                return PageCursors.linkNext(Response.ok(page), uriInfo, nextCursor).tag(entityTag).cacheControl(cacheControl).build();
             }
-
-            if (result.size() > 0) {
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok(result).cacheControl(cacheControl).build();
-            } else {
-                throw new NoCountryFoundException("No Countries Found", 403);
+        } else if (ResponseCache.getInstance().isCacheable(snapshot)) {
+            CachedJson result = ResponseCache.getInstance().get(CACHE_KEY, snapshot, cached -> listCountryNames(cached).collect(Collectors.toList()));
+            if (!result.isEmpty()) {
+                return result.toResponse(gzipped).tag(entityTag).cacheControl(cacheControl).build();
             }
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            Iterator<String> result = listCountryNames(snapshot).iterator();
+            if (result.hasNext()) {
+                return new StreamingJsonOutput(result, gzipped).toResponse().tag(entityTag).cacheControl(cacheControl).build();
+            }
         }
+        throw NoCountryFoundException.NO_COUNTRIES_FOUND;
+    }
+
+    /**
+     * Lists the names of the countries of a snapshot.
+     *
+     * @param snapshot The snapshot of the dataset.
+     * @return The country names.
+     */
+    private static Stream<String> listCountryNames(RecordSnapshot snapshot) {
+        return snapshot.getCountries().stream().map(Country::getName);
     }
 }
@@ -0,0 +1,213 @@
+/**
+ * The FieldProjection file selects the fields of the cities returned by the list and lookup endpoints.
+ */
+package com.airquality.resources;
+
+import com.airquality.airquality.Pollutant;
+import com.airquality.exceptions.InvalidRecordException;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The FieldProjection class holds the fields of a city asked for with the fields query parameter, for example
+ * fields=name,ozoneAqiValue, and builds the JSON objects holding only those fields.
+ * <p>
+ * Each projected value is read straight from its column through the City, so the columns of fields that are not
+ * asked for are never read and no AirQuality object is created. The projected objects keep the property names and
+ * order of the full objects, so a client reading the full objects reads the projected ones unchanged.
+ */
+final class FieldProjection {
+
+    /**
+     * The fields of the air quality of a city, in the order JSON-B writes the properties of an AirQuality object.
+     */
+    private enum AirQualityField {
+        AQI_CATEGORY("aqiCategory", Pollutant.AQI, true),
+        AQI_VALUE("aqiValue", Pollutant.AQI, false),
+        CO_AQI_CATEGORY("coAqiCategory", Pollutant.CO, true),
+        CO_AQI_VALUE("coAqiValue", Pollutant.CO, false),
+        NO_AQI_CATEGORY("noAqiCategory", Pollutant.NO2, true),
+        NO_AQI_VALUE("noAqiValue", Pollutant.NO2, false),
+        OZONE_AQI_CATEGORY("ozoneAqiCategory", Pollutant.OZONE, true),
+        OZONE_AQI_VALUE("ozoneAqiValue", Pollutant.OZONE, false),
+        PM_AQI_CATEGORY("pmAqiCategory", Pollutant.PM, true),
+        PM_AQI_VALUE("pmAqiValue", Pollutant.PM, false);
+
+        // The name of the property in the JSON object
+        private final String property;
+
+        // The pollutant the field belongs to
+        private final Pollutant pollutant;
+
+        // Whether the field is the AQI category rather than the AQI value
+        private final boolean category;
+
+        /**
+         * Constructs an AirQualityField.
+         *
+         * @param property  The name of the property in the JSON object.
+         * @param pollutant The pollutant the field belongs to.
+         * @param category  Whether the field is the AQI category rather than the AQI value.
+         */
+        AirQualityField(String property, Pollutant pollutant, boolean category) {
+            this.property = property;
+            this.pollutant = pollutant;
+            this.category = category;
+        }
+
+        /**
+         * Reads the field of a city.
+         *
+         * @param city The City object.
+         * @return The value of the field as it is shown to clients.
+         */
+        String read(City city) {
+            return category ? city.formatAqiCategory(pollutant) : city.formatAqiValue(pollutant);
+        }
+
+        /**
+         * Finds the field with a property name.
+         *
+         * @param property The name of the property.
+         * @return The AirQualityField, or null if no field has that name.
+         */
+        static AirQualityField fromProperty(String property) {
+            for (AirQualityField field : values()) {
+                if (field.property.equals(property)) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Whether the name of the city is projected
+    private final boolean name;
+
+    // Whether the id of the city is projected
+    private final boolean cityId;
+
+    // The air quality fields projected, in property order
+    private final AirQualityField[] airQualityFields;
+
+    /**
+     * Constructs a FieldProjection.
+     *
+     * @param name             Whether the name of the city is projected.
+     * @param cityId           Whether the id of the city is projected.
+     * @param airQualityFields The air quality fields projected.
+     */
+    private FieldProjection(boolean name, boolean cityId, EnumSet<AirQualityField> airQualityFields) {
+        this.name = name;
+        this.cityId = cityId;
+        this.airQualityFields = airQualityFields.toArray(new AirQualityField[0]);
+    }
+
+    /**
+     * Parses the fields query parameter. The fields are separated by commas and may be name, cityId, airQuality for
+     * every air quality field, or one of the air quality fields such as ozoneAqiValue or pmAqiCategory.
+     *
+     * @param fields The fields query parameter, or null if not given.
+     * @return The FieldProjection, or null if the parameter is not given and the full objects are returned.
+     * @throws InvalidRecordException If a field is not known or no field is given.
+     */
+    static FieldProjection parse(String fields) throws InvalidRecordException {
+        if (fields == null) {
+            return null;
+        }
+        boolean name = false;
+        boolean cityId = false;
+        EnumSet<AirQualityField> airQualityFields = EnumSet.noneOf(AirQualityField.class);
+        for (String field : fields.split(",")) {
+            field = field.trim();
+            if (field.isEmpty()) {
+                continue;
+            }
+            if (field.equals("name")) {
+                name = true;
+            } else if (field.equals("cityId")) {
+                cityId = true;
+            } else if (field.equals("airQuality")) {
+                airQualityFields = EnumSet.allOf(AirQualityField.class);
+            } else {
+                AirQualityField airQualityField = AirQualityField.fromProperty(field);
+                if (airQualityField == null) {
+                    throw new InvalidRecordException("Field " + field + " not known", 400);
+                }
+                airQualityFields.add(airQualityField);
+            }
+        }
+        if (!name && !cityId && airQualityFields.isEmpty()) {
+            throw new InvalidRecordException("At least one field must be given", 400);
+        }
+        return new FieldProjection(name, cityId, airQualityFields);
+    }
+
+    /**
+     * Builds the projected object of a city.
+     *
+     * @param city The City object.
+     * @return The projected fields of the city, by property name.
+     */
+    Map<String, Object> project(City city) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        if (airQualityFields.length > 0) {
+            projected.put("airQuality", projectAirQuality(city));
+        }
+        if (cityId) {
+            projected.put("cityId", city.getCityId());
+        }
+        if (name) {
+            projected.put("name", city.getName());
+        }
+        return projected;
+    }
+
+    /**
+     * Builds the projected objects of a list of cities.
+     *
+     * @param cities The City objects.
+     * @return The projected objects, in the same order.
+     */
+    List<Map<String, Object>> project(List<City> cities) {
+        List<Map<String, Object>> projected = new ArrayList<>(cities.size());
+        for (City city : cities) {
+            projected.add(project(city));
+        }
+        return projected;
+    }
+
+    /**
+     * Builds the object of a country holding the projected objects of its cities. The name of the country is
+     * always kept.
+     *
+     * @param country The Country object, holding only live cities.
+     * @return The cities and name of the country, by property name.
+     */
+    Map<String, Object> project(Country country) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        projected.put("cities", project(country.getCities()));
+        projected.put("name", country.getName());
+        return projected;
+    }
+
+    /**
+     * Builds the projected air quality object of a city. The name and id of the city are not part of it.
+     *
+     * @param city The City object.
+     * @return The projected air quality fields of the city, by property name.
+     */
+    Map<String, Object> projectAirQuality(City city) {
+        Map<String, Object> projected = new LinkedHashMap<>();
+        for (AirQualityField field : airQualityFields) {
+            projected.put(field.property, field.read(city));
+        }
+        return projected;
+    }
+}
@@ -3,19 +3,25 @@
  */
 package com.airquality.resources;
 
-import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.Pollutant;
 import com.airquality.exceptions.*;
 import com.airquality.locations.City;
 import com.airquality.constants.Constants;
-import com.airquality.locations.Country;
 import com.airquality.csv.CsvReadWrite;
+import com.airquality.record.PollutantIndex;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
 import com.airquality.utility.Utility;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * The OzoneAqiAirQualityResource class provides RESTful web services for retrieving information related to ozone air quality.
@@ -23,53 +29,66 @@ import java.util.ArrayList;
 @Path("/ozone/v1")
 public class OzoneAqiAirQualityResource {
 
+    // The name of the list of cities within an ozone AQI value range, which its cursors belong to
+    private static final String LIST_KEY = "ozone/ozone-aqi-value";
+
     /**
      * Retrieves cities within a specified ozone AQI value range.
      *
      * @param startingValue       The starting value of the ozone AQI range.
      * @param endingValue         The ending value of the ozone AQI range.
-     * @param authorisationHeader The authorization header for authentication.
+     * @param accept              The Accept header, which decides whether the cities are sent as JSON or in the columnar encoding.
+     * @param limit               The number of cities of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param fields              The fields of each city to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
      * @return The response containing the cities within the specified ozone AQI value range in JSON format.
      * @throws InvalidAqiValueException  If there is an issue with the AQI value.
      * @throws NoCityFoundException      If no cities are found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit, cursor or fields are invalid.
      */
     @GET
     @Path("/ozone-aqi-value")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Constants.COLUMNAR_MEDIA_TYPE})
     public Response getCityWithinOzoneAqiValue(@QueryParam("startingValue") int startingValue,
                                                @QueryParam("endingValue") int endingValue,
-                                               @HeaderParam("Authorization") String authorisationHeader) throws InvalidAqiValueException, NoCityFoundException, DatabaseNotFoundException {
-
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            ArrayList<City> result = new ArrayList<>();
+                                               @HeaderParam("Accept") String accept,
+                                               @QueryParam("limit") Integer limit,
+                                               @QueryParam("cursor") String cursor,
+                                               @QueryParam("fields") String fields,
+                                               @Context Request request,
+                                               @Context UriInfo uriInfo) throws InvalidAqiValueException, NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
 
-            Utility.getInstance().isAqiValueValid(String.valueOf(startingValue));
-            Utility.getInstance().isAqiValueValid(String.valueOf(endingValue));
+        Utility.getInstance().isAqiValueValid(String.valueOf(startingValue));
+        Utility.getInstance().isAqiValueValid(String.valueOf(endingValue));
+        int pageLimit = PageCursors.pageLimit(limit, cursor);
+        FieldProjection projection = FieldProjection.parse(fields);
+        long afterKey = PageCursors.decodeLong(LIST_KEY, cursor, Long.MIN_VALUE);
 
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-
-                for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                    City targetCity = targetCountry.getCities().get(y);
-                    AirQuality targetAirQuality = targetCity.getAirQuality();
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean columnar = Utility.getInstance().acceptsMediaType(accept, Constants.COLUMNAR_MEDIA_TYPE);
+        EntityTag entityTag = columnar ? Utility.getInstance().getColumnarEntityTag(snapshot) : Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
 
-                    if (!targetAirQuality.getOzoneAqiValue().equalsIgnoreCase(Constants.DELETED_CHARACTER)) {
-                        if (startingValue <= Integer.parseInt(targetAirQuality.getOzoneAqiValue()) && endingValue >= Integer.parseInt(targetAirQuality.getOzoneAqiValue())) {
-                            result.add(targetCity);
-                        }
-                    }
-                }
-            }
+        // Pages follow the order of the ozone index, so the cursor holds the index key of the last city
+        PollutantIndex index = Record.getInstance().getPollutantIndex(Pollutant.OZONE);
+        List<City> result = index.findInRange(startingValue, endingValue, afterKey, PageCursors.fetchSize(pageLimit));
+        String nextCursor = PageCursors.trimPage(LIST_KEY, result, pageLimit, city -> String.valueOf(index.getKey(city)));
 
-            if (result.size() > 0) {
-                return Response.ok(result).build();
-            } else {
-                throw new NoCityFoundException("No City Found", 403);
-            }
+        if (result.size() > 0) {
+            Response.ResponseBuilder response = ColumnarOutput.negotiate(columnar, result,
+                    columnar || projection == null ? result : projection.project(result));
+            return PageCursors.linkNext(response, uriInfo, nextCursor).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            throw NoCityFoundException.NO_CITY_FOUND;
         }
     }
 }
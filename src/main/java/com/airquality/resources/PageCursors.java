@@ -0,0 +1,248 @@
+/**
+ * The PageCursors file provides the limits and cursors used to page through the list endpoints.
+ */
+package com.airquality.resources;
+
+import com.airquality.constants.Constants;
+import com.airquality.exceptions.InvalidRecordException;
+import com.airquality.locations.Country;
+import com.airquality.locations.Location;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The PageCursors class checks the page limits and encodes the cursors of the list endpoints.
+ * <p>
+ * A cursor names the last element of the previous page by a stable key, such as a city id or a position in an
+ * index, rather than by an offset. The next page starts just after that key, so writes made between two pages
+ * neither repeat nor skip the elements that were already there. City ids never change: compaction keeps them and
+ * the CSV file stores them, so a cursor stays valid across compactions and reloads. Cursors are opaque to clients: each is tagged with
+ * the list it belongs to and encoded as URL-safe Base64. The cursor of the next page is sent in a Link header with
+ * rel="next", which is left out on the last page.
+ */
+final class PageCursors {
+
+    /**
+     * Private constructor to prevent instantiation of the PageCursors class.
+     */
+    private PageCursors() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * Checks whether a request asks for a page rather than the whole list.
+     *
+     * @param limit  The limit query parameter, or null if not given.
+     * @param cursor The cursor query parameter, or null if not given.
+     * @return True if either parameter is given, false otherwise.
+     */
+    static boolean isPaged(Integer limit, String cursor) {
+        return limit != null || cursor != null;
+    }
+
+    /**
+     * Checks the number of elements asked for in a page.
+     *
+     * @param limit The limit query parameter, or null to use the default.
+     * @return The number of elements to return.
+     * @throws InvalidRecordException If the limit is not between 1 and PAGE_MAX_LIMIT.
+     */
+    static int checkLimit(Integer limit) throws InvalidRecordException {
+        if (limit == null) {
+            return Constants.PAGE_DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > Constants.PAGE_MAX_LIMIT) {
+            throw new InvalidRecordException("Limit must be between 1 and " + Constants.PAGE_MAX_LIMIT, 400);
+        }
+        return limit;
+    }
+
+    /**
+     * Checks the number of elements asked for by a request to an endpoint that returns its whole list unless paged.
+     *
+     * @param limit  The limit query parameter, or null if not given.
+     * @param cursor The cursor query parameter, or null if not given.
+     * @return The number of elements to return, or Integer.MAX_VALUE if the request is not paged.
+     * @throws InvalidRecordException If the limit is not between 1 and PAGE_MAX_LIMIT.
+     */
+    static int pageLimit(Integer limit, String cursor) throws InvalidRecordException {
+        return isPaged(limit, cursor) ? checkLimit(limit) : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Gives the number of elements to fetch for a page: one more than the limit, which shows whether there is a
+     * next page without a separate count.
+     *
+     * @param pageLimit The number of elements of the page.
+     * @return The number of elements to fetch.
+     */
+    static int fetchSize(int pageLimit) {
+        return pageLimit == Integer.MAX_VALUE ? pageLimit : pageLimit + 1;
+    }
+
+    /**
+     * Encodes the key of the last element of a page as a cursor.
+     *
+     * @param list The name of the list the cursor belongs to.
+     * @param key  The key of the last element of the page.
+     * @return The opaque cursor.
+     */
+    static String encode(String list, String key) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((list + ":" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes the key held by a cursor.
+     *
+     * @param list   The name of the list the cursor must belong to.
+     * @param cursor The cursor query parameter, or null for the first page.
+     * @return The key of the last element of the previous page, or null for the first page.
+     * @throws InvalidRecordException If the cursor is malformed or belongs to another list.
+     */
+    static String decode(String list, String cursor) throws InvalidRecordException {
+        if (cursor == null) {
+            return null;
+        }
+        String prefix = list + ":";
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(prefix)) {
+                return decoded.substring(prefix.length());
+            }
+        } catch (IllegalArgumentException e) {
+            // Reported below as an invalid cursor
+        }
+        throw new InvalidRecordException("Cursor invalid", 400);
+    }
+
+    /**
+     * Decodes a cursor holding a numeric key.
+     *
+     * @param list   The name of the list the cursor must belong to.
+     * @param cursor The cursor query parameter, or null for the first page.
+     * @param first  The key to use for the first page, which comes before every element.
+     * @return The key of the last element of the previous page, or the given first key.
+     * @throws InvalidRecordException If the cursor is malformed or belongs to another list.
+     */
+    static long decodeLong(String list, String cursor, long first) throws InvalidRecordException {
+        String key = decode(list, cursor);
+        if (key == null) {
+            return first;
+        }
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new InvalidRecordException("Cursor invalid", 400);
+        }
+    }
+
+    /**
+     * Decodes a cursor holding a city id.
+     *
+     * @param list   The name of the list the cursor must belong to.
+     * @param cursor The cursor query parameter, or null for the first page.
+     * @return The id of the last city of the previous page, or 0 for the first page.
+     * @throws InvalidRecordException If the cursor is malformed, belongs to another list or holds no valid city id.
+     */
+    static int decodeCityId(String list, String cursor) throws InvalidRecordException {
+        long cityId = decodeLong(list, cursor, 0);
+        if (cityId < 0 || cityId > Integer.MAX_VALUE) {
+            throw new InvalidRecordException("Cursor invalid", 400);
+        }
+        return (int) cityId;
+    }
+
+    /**
+     * Trims a page fetched with one element more than the limit back to the limit, and gives the cursor of the
+     * next page if the extra element showed that there is one.
+     *
+     * @param list  The name of the list the cursor belongs to.
+     * @param page  The elements fetched, at most limit + 1.
+     * @param limit The number of elements asked for.
+     * @param key   Gives the key of an element, after which the next page starts.
+     * @param <T>   The type of the elements.
+     * @return The cursor of the next page, or null if this is the last page.
+     */
+    static <T> String trimPage(String list, List<T> page, int limit, Function<T, String> key) {
+        if (page.size() <= limit) {
+            return null;
+        }
+        page.subList(limit, page.size()).clear();
+        return encode(list, key.apply(page.get(limit - 1)));
+    }
+
+    /**
+     * Fills a page from the countries of a snapshot, continuing after the country named by the cursor.
+     * A country cursor holds the position of the last country of the previous page and its normalised name: the
+     * page continues after that country wherever it now is, or from the same position if it has been removed.
+     *
+     * @param list      The name of the list the cursor belongs to.
+     * @param countries The countries of the snapshot, in order.
+     * @param cursor    The cursor query parameter, or null for the first page.
+     * @param limit     The number of elements asked for.
+     * @param mapper    Gives the element of a country, or null to leave the country out.
+     * @param page      Receives the elements of the page.
+     * @param <T>       The type of the elements.
+     * @return The cursor of the next page, or null if this is the last page.
+     * @throws InvalidRecordException If the cursor is malformed or belongs to another list.
+     */
+    static <T> String fillCountryPage(String list, List<Country> countries, String cursor, int limit,
+                                      Function<Country, T> mapper, List<T> page) throws InvalidRecordException {
+        int position = 0;
+        String key = decode(list, cursor);
+        if (key != null) {
+            String[] parts = key.split(":", 2);
+            try {
+                position = Math.min(Integer.parseInt(parts[0]), countries.size());
+            } catch (NumberFormatException e) {
+                throw new InvalidRecordException("Cursor invalid", 400);
+            }
+            if (parts.length < 2 || position < 0) {
+                throw new InvalidRecordException("Cursor invalid", 400);
+            }
+            if (position < countries.size() && Location.toKey(countries.get(position).getName()).equals(parts[1])) {
+                position++;
+            } else {
+                for (int i = 0; i < countries.size(); i++) {
+                    if (Location.toKey(countries.get(i).getName()).equals(parts[1])) {
+                        position = i + 1;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int lastPosition = -1;
+        for (; position < countries.size(); position++) {
+            T element = mapper.apply(countries.get(position));
+            if (element != null) {
+                if (page.size() == limit) {
+                    return encode(list, lastPosition + ":" + Location.toKey(countries.get(lastPosition).getName()));
+                }
+                page.add(element);
+                lastPosition = position;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the link to the next page to a response, if there is one.
+     *
+     * @param response   The response builder.
+     * @param uriInfo    The URI of the request, whose other query parameters the link keeps.
+     * @param nextCursor The cursor of the next page, or null if this is the last page.
+     * @return The response builder.
+     */
+    static Response.ResponseBuilder linkNext(Response.ResponseBuilder response, UriInfo uriInfo, String nextCursor) {
+        if (nextCursor != null) {
+            response.link(uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", nextCursor).build(), "next");
+        }
+        return response;
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * The RankingsResource file provides RESTful web services for ranking cities by their AQI values.
+ */
+package com.airquality.resources;
+
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.csv.CsvReadWrite;
+import com.airquality.exceptions.*;
+import com.airquality.locations.Country;
+import com.airquality.record.RankedCity;
+import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
+import com.airquality.utility.Utility;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The RankingsResource class provides RESTful web services for retrieving the cities with the highest or lowest
+ * AQI values of a pollutant, globally or within a country. Rankings are read from either end of the sorted
+ * pollutant indexes, which every write keeps up to date, so no request sorts the dataset.
+ */
+@Path("/rankings/v1")
+public class RankingsResource {
+
+    /**
+     * Retrieves the cities with the highest AQI values of a pollutant, the most polluted first.
+     *
+     * @param pollutant           The pollutant: aqi, co, ozone, no2 or pm.
+     * @param country             The name of the country to rank the cities of, or null for every country.
+     * @param limit               The number of cities to return.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the ranked cities in JSON format.
+     * @throws NoCountryFoundException   If the specified country is not found.
+     * @throws NoCityFoundException      If no cities are found.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the pollutant or limit is invalid.
+     */
+    @GET
+    @Path("/{pollutant}/highest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getHighestRanking(@PathParam("pollutant") String pollutant,
+                                      @QueryParam("country") String country,
+                                      @QueryParam("limit") Integer limit,
+                                      @Context Request request) throws NoCountryFoundException, NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+        return getRanking(pollutant, country, limit, true, request);
+    }
+
+    /**
+     * Retrieves the cities with the lowest AQI values of a pollutant, the least polluted first.
+     *
+     * @param pollutant           The pollutant: aqi, co, ozone, no2 or pm.
+     * @param country             The name of the country to rank the cities of, or null for every country.
+     * @param limit               The number of cities to return.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the ranked cities in JSON format.
+     * @throws NoCountryFoundException   If the specified country is not found.
+     * @throws NoCityFoundException      If no cities are found.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the pollutant or limit is invalid.
+     */
+    @GET
+    @Path("/{pollutant}/lowest")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getLowestRanking(@PathParam("pollutant") String pollutant,
+                                     @QueryParam("country") String country,
+                                     @QueryParam("limit") Integer limit,
+                                     @Context Request request) throws NoCountryFoundException, NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+        return getRanking(pollutant, country, limit, false, request);
+    }
+
+    /**
+     * Ranks the cities by the AQI value of a pollutant.
+     *
+     * @param pollutant The pollutant: aqi, co, ozone, no2 or pm.
+     * @param country   The name of the country to rank the cities of, or null for every country.
+     * @param limit     The number of cities to return, or null for the default page size.
+     * @param highest   True to rank from the highest value down, false to rank from the lowest value up.
+     * @param request   The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the ranked cities in JSON format.
+     * @throws NoCountryFoundException   If the specified country is not found.
+     * @throws NoCityFoundException      If no cities are found.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the pollutant or limit is invalid.
+     */
+    private static Response getRanking(String pollutant, String country, Integer limit, boolean highest,
+                                       Request request) throws NoCountryFoundException, NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+        Pollutant rankedPollutant = parsePollutant(pollutant);
+        int rankingLimit = PageCursors.checkLimit(limit);
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        String countryName = null;
+        if (country != null) {
+            Country targetCountry = snapshot.getCountry(country);
+            if (targetCountry == null) {
+                throw NoCountryFoundException.COUNTRY_NOT_FOUND;
+            }
+            countryName = targetCountry.getName();
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        List<RankedCity> result = Record.getInstance().getPollutantIndex(rankedPollutant).rank(countryName, highest, rankingLimit);
+        if (result.isEmpty()) {
+            throw NoCityFoundException.NO_CITY_FOUND;
+        }
+        return Response.ok(result).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Finds the pollutant named in the path, which uses the same names as the query parameters of the filters.
+     *
+     * @param pollutant The name of the pollutant: aqi, co, ozone, no2 or pm, ignoring case.
+     * @return The Pollutant.
+     * @throws InvalidRecordException If no pollutant has that name.
+     */
+    private static Pollutant parsePollutant(String pollutant) throws InvalidRecordException {
+        try {
+            return Pollutant.valueOf(pollutant.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRecordException("Pollutant " + pollutant + " not known", 400);
+        }
+    }
+}
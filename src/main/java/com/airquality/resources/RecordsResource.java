@@ -3,21 +3,36 @@
  */
 package com.airquality.resources;
 
+import com.airquality.cache.CachedJson;
+import com.airquality.cache.ResponseCache;
 import com.airquality.constants.Constants;
 import com.airquality.csv.CsvReadWrite;
 import com.airquality.exceptions.*;
 import com.airquality.locations.Country;
+import com.airquality.record.CompactionStatus;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
 import com.airquality.utility.Utility;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * The RecordsResource class provides RESTful web services for retrieving all records.
@@ -25,38 +40,126 @@ import java.util.ArrayList;
 @Path("/records/v1")
 public class RecordsResource {
 
+    // The key of the response of getAllRecords in the response cache
+    private static final String CACHE_KEY = "records/all-records";
+
     /**
      * Retrieves all records.
      *
-     * @param authorisationHeader The authorization header for authentication.
+     * @param accept              The Accept header, which decides whether the records are sent as JSON or in the columnar encoding.
+     * @param acceptEncoding      The Accept-Encoding header, which decides whether the response is compressed.
+     * @param limit               The number of elements of a page, if the list is paged.
+     * @param cursor              The cursor of the page to return, taken from the Link header of the previous page.
+     * @param fields              The fields of each city to return, separated by commas, or null for every field.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @param uriInfo             The URI of the request, from which the link to the next page is built.
      * @return The response containing all records in JSON format.
      * @throws NoCountryFoundException   If no countries are found.
      * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the limit, cursor or fields are invalid.
      */
     @GET
     @Path("/all-records")
-    @Produces(MediaType.APPLICATION_JSON)
+    @Produces({MediaType.APPLICATION_JSON, Constants.COLUMNAR_MEDIA_TYPE})
     public Response getAllRecords(
-            @HeaderParam("Authorization") String authorisationHeader) throws NoCountryFoundException, DatabaseNotFoundException {
+            @HeaderParam("Accept") String accept,
+            @HeaderParam("Accept-Encoding") String acceptEncoding,
+            @QueryParam("limit") Integer limit,
+            @QueryParam("cursor") String cursor,
+            @QueryParam("fields") String fields,
+            @Context Request request,
+            @Context UriInfo uriInfo) throws NoCountryFoundException, DatabaseNotFoundException, InvalidRecordException {
 
-        if (Utility.getInstance().isAuthorised(authorisationHeader)) {
-            CsvReadWrite.readDataFromCSV(Constants.FILE_PATH);
-            ArrayList<Country> result = new ArrayList<>();
-
-            for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-                result.add(Record.getInstance().getCountryRecords().get(i));
-            }
-
-            if (result.size() > 0) {
-                CacheControl cacheControl = new CacheControl();
-                cacheControl.setMaxAge(5);
-                return Response.ok(result).cacheControl(cacheControl).build();
+        FieldProjection projection = FieldProjection.parse(fields);
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        boolean paged = PageCursors.isPaged(limit, cursor);
+        boolean columnar = Utility.getInstance().acceptsMediaType(accept, Constants.COLUMNAR_MEDIA_TYPE);
+        boolean gzipped = !paged && !columnar && Utility.getInstance().acceptsGzip(acceptEncoding);
+        EntityTag entityTag = columnar
+                ? Utility.getInstance().getColumnarEntityTag(snapshot)
+                : Utility.getInstance().getEntityTag(snapshot, gzipped);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
+        }
+        if (columnar) {
+            // The columnar encoding carries every field, and is small enough not to need the JSON cache
+            List<Country> page = new ArrayList<>();
+            String nextCursor = null;
+            if (paged) {
+                nextCursor = PageCursors.fillCountryPage(CACHE_KEY, snapshot.getCountries(), cursor,
+                        PageCursors.checkLimit(limit), Country::withoutDeletedCities, page);
             } else {
-                throw new NoCountryFoundException("No Countries Found", 403);
+                page = listRecords(snapshot).collect(Collectors.toList());
+            }
+            if (!page.isEmpty()) {
+                return PageCursors.linkNext(ColumnarOutput.ofCountries(page).toResponse(), uriInfo, nextCursor).tag(entityTag).cacheControl(cacheControl).build();
+            }
+        } else if (paged) {
+            List<Object> page = new ArrayList<>();
+            String nextCursor = PageCursors.fillCountryPage(CACHE_KEY, snapshot.getCountries(), cursor,
+                    PageCursors.checkLimit(limit), country -> {
+                        Country liveCountry = country.withoutDeletedCities();
+                        return liveCountry == null || projection == null ? liveCountry : projection.project(liveCountry);
+                    }, page);
+            if (!page.isEmpty()) {
+                return PageCursors.linkNext(Response.ok(page).header(HttpHeaders.VARY, HttpHeaders.ACCEPT), uriInfo, nextCursor).tag(entityTag).cacheControl(cacheControl).build();
+            }
+        } else if (projection == null && ResponseCache.getInstance().isCacheable(snapshot)) {
+            CachedJson result = ResponseCache.getInstance().get(CACHE_KEY, snapshot, cached -> listRecords(cached).collect(Collectors.toList()));
+            if (!result.isEmpty()) {
+                return result.toResponse(gzipped).header(HttpHeaders.VARY, HttpHeaders.ACCEPT).tag(entityTag).cacheControl(cacheControl).build();
             }
         } else {
-            return Response.status(401).entity("Error 401: Invalid Credentials").build();
+            // Projected records are streamed rather than cached, as each projection would need a body of its own
+            Iterator<?> result = projection == null
+                    ? listRecords(snapshot).iterator()
+                    : listRecords(snapshot).map(projection::project).iterator();
+            if (result.hasNext()) {
+                return new StreamingJsonOutput(result, gzipped).toResponse().header(HttpHeaders.VARY, HttpHeaders.ACCEPT).tag(entityTag).cacheControl(cacheControl).build();
+            }
+        }
+        throw NoCountryFoundException.NO_COUNTRIES_FOUND;
+    }
+
+    /**
+     * Lists the countries of a snapshot with their live cities. Each country is only copied without its deleted
+     * cities when the stream reaches it.
+     *
+     * @param snapshot The snapshot of the dataset.
+     * @return The countries, without deleted cities or countries left without cities.
+     */
+    private static Stream<Country> listRecords(RecordSnapshot snapshot) {
+        return snapshot.getCountries().stream().map(Country::withoutDeletedCities).filter(Objects::nonNull);
+    }
+
+    /**
+     * Retrieves the number of deleted cities waiting to be compacted away and the time of the last compaction.
+     *
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the compaction status in JSON format.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     */
+    @GET
+    @Path("/compaction")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCompactionStatus(
+            @Context Request request) throws DatabaseNotFoundException {
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot);
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(entityTag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).build();
         }
+        Record record = Record.getInstance();
+        return Response.ok(new CompactionStatus(record.getTombstoneCount(), record.getLastCompactionTime())).tag(entityTag).cacheControl(cacheControl).build();
     }
 }
 
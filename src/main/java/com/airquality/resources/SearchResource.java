@@ -0,0 +1,74 @@
+/**
+ * The SearchResource file provides RESTful web services for searching country and city names.
+ */
+package com.airquality.resources;
+
+import com.airquality.constants.Constants;
+import com.airquality.csv.CsvReadWrite;
+import com.airquality.exceptions.*;
+import com.airquality.record.NameMatch;
+import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
+import com.airquality.utility.Utility;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+import java.util.List;
+
+/**
+ * The SearchResource class provides RESTful web services for finding the countries and cities whose names start
+ * with a prefix, as typed into a search box. Matches are read from the sorted name index, which every write keeps
+ * up to date, so a search neither scans nor sends the whole list of names.
+ */
+@Path("/search/v1")
+public class SearchResource {
+
+    /**
+     * Retrieves the countries and cities whose names start with a prefix, ignoring case. Countries come first,
+     * then cities with their country, each in alphabetical order.
+     *
+     * @param prefix              The prefix of the names.
+     * @param limit               The maximum number of matches to return, AUTOCOMPLETE_DEFAULT_LIMIT if not given.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the matches in JSON format.
+     * @throws NoCityFoundException      If no country or city matches.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     * @throws InvalidRecordException    If the prefix is missing or the limit is invalid.
+     */
+    @GET
+    @Path("/autocomplete")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response autocomplete(@QueryParam("prefix") String prefix,
+                                 @QueryParam("limit") Integer limit,
+                                 @Context Request request) throws NoCityFoundException, DatabaseNotFoundException, InvalidRecordException {
+
+        if (prefix == null || prefix.isEmpty()) {
+            throw new InvalidRecordException("A prefix must be given", 400);
+        }
+        int matchLimit = PageCursors.checkLimit(limit == null ? Constants.AUTOCOMPLETE_DEFAULT_LIMIT : limit);
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+
+        List<NameMatch> result = Record.getInstance().getNameIndex().findByPrefix(prefix, matchLimit);
+        if (result.isEmpty()) {
+            throw NoCityFoundException.NO_CITY_FOUND;
+        }
+        return Response.ok(result).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
+    }
+}
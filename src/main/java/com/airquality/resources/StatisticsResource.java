@@ -0,0 +1,91 @@
+/**
+ * The StatisticsResource file provides RESTful web services for retrieving statistics of the AQI values.
+ */
+package com.airquality.resources;
+
+import com.airquality.constants.Constants;
+import com.airquality.csv.CsvReadWrite;
+import com.airquality.exceptions.*;
+import com.airquality.locations.Country;
+import com.airquality.record.LocationStatistics;
+import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
+import com.airquality.utility.Utility;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * The StatisticsResource class provides RESTful web services for retrieving the number, mean, minimum, maximum
+ * and percentiles of the AQI values of each pollutant, for one country or for all countries. The statistics are
+ * kept up to date by the Record on every change, so a request reads them without scanning the dataset.
+ */
+@Path("/statistics/v1")
+public class StatisticsResource {
+
+    /**
+     * Retrieves the statistics of the AQI values of the live cities of all countries.
+     *
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the global statistics in JSON format.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     */
+    @GET
+    @Path("/global")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getGlobalStatistics(
+            @Context Request request) throws DatabaseNotFoundException {
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+        LocationStatistics statistics = Record.getInstance().getStatisticsIndex().getGlobalStatistics();
+        return Response.ok(statistics).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Retrieves the statistics of the AQI values of the live cities of a country.
+     *
+     * @param countryName         The name of the country.
+     * @param request             The request, used to answer If-None-Match with 304 Not Modified.
+     * @return The response containing the statistics of the country in JSON format.
+     * @throws NoCountryFoundException   If the specified country is not found.
+     * @throws DatabaseNotFoundException If there is an issue connecting to the database.
+     */
+    @GET
+    @Path("/countries/{countryName}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getCountryStatistics(@PathParam("countryName") String countryName,
+                                         @Context Request request) throws NoCountryFoundException, DatabaseNotFoundException {
+
+        CsvReadWrite.refreshDataIfChanged(Constants.FILE_PATH);
+        RecordSnapshot snapshot = Record.getInstance().getSnapshot();
+        Country targetCountry = snapshot.getCountry(countryName);
+        if (targetCountry == null) {
+            throw NoCountryFoundException.COUNTRY_NOT_FOUND;
+        }
+
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(5);
+        EntityTag entityTag = Utility.getInstance().getEntityTag(snapshot);
+        Response notModified = Utility.getInstance().evaluateIndexedPreconditions(request, snapshot, entityTag, cacheControl);
+        if (notModified != null) {
+            return notModified;
+        }
+        LocationStatistics statistics = Record.getInstance().getStatisticsIndex().getCountryStatistics(targetCountry);
+        return Response.ok(statistics).tag(Utility.getInstance().getIndexedEntityTag(snapshot, entityTag)).cacheControl(cacheControl).build();
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * The StreamingJsonOutput file writes a JSON array to a response one element at a time.
+ */
+package com.airquality.resources;
+
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The StreamingJsonOutput class writes the elements of a JSON array to the response stream as they are taken
+ * from an iterator, through a buffer of fixed size. Only one element is held in memory at a time, so the memory
+ * used by a request does not grow with the dataset and the first bytes are sent as soon as the buffer fills.
+ * Elements are serialized with JSON-B, the same way the JAX-RS runtime would serialize the whole array.
+ */
+class StreamingJsonOutput implements StreamingOutput {
+
+    // The size of the buffer between the serializer and the response stream
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Serializes the elements; JSON-B instances are thread-safe
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    // The elements of the array, taken lazily while the response is written
+    private final Iterator<?> elements;
+
+    // Whether the response is compressed with gzip
+    private final boolean gzipped;
+
+    /**
+     * Constructs a StreamingJsonOutput.
+     *
+     * @param elements The elements of the array. The iterator should build each element only when it is taken.
+     * @param gzipped  Whether to compress the response with gzip.
+     */
+    StreamingJsonOutput(Iterator<?> elements, boolean gzipped) {
+        this.elements = elements;
+        this.gzipped = gzipped;
+    }
+
+    /**
+     * Builds a 200 response streaming the array, compressed if the client accepts gzip.
+     *
+     * @return The response builder, to which the caller adds its entity tag and cache control.
+     */
+    Response.ResponseBuilder toResponse() {
+        Response.ResponseBuilder response = Response.ok(this, MediaType.APPLICATION_JSON_TYPE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipped) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response;
+    }
+
+    /**
+     * Writes the array to the response stream.
+     *
+     * @param output The response stream.
+     * @throws IOException If the response cannot be written.
+     */
+    @Override
+    public void write(OutputStream output) throws IOException {
+        OutputStream stream = gzipped ? new GZIPOutputStream(output, BUFFER_SIZE) : output;
+        BufferedOutputStream buffer = new BufferedOutputStream(stream, BUFFER_SIZE);
+        // JSON-B closes the stream it writes to, which must stay open for the rest of the array
+        OutputStream element = new FilterOutputStream(buffer) {
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                out.write(bytes, offset, length);
+            }
+
+            @Override
+            public void close() {
+                // Left open for the next element
+            }
+        };
+
+        buffer.write('[');
+        boolean first = true;
+        while (elements.hasNext()) {
+            if (!first) {
+                buffer.write(',');
+            }
+            JSONB.toJson(elements.next(), element);
+            first = false;
+        }
+        buffer.write(']');
+        buffer.flush();
+        if (gzipped) {
+            ((GZIPOutputStream) stream).finish();
+        }
+        stream.flush();
+    }
+}
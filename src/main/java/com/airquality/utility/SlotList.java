@@ -0,0 +1,236 @@
+/**
+ * The SlotList file provides the persistent list holding the countries of a snapshot and the cities of a country.
+ */
+package com.airquality.utility;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SlotList class is an unmodifiable list whose elements are also found by key. Changing it creates a new list
+ * and leaves this one as it was, so a published version can be read without locking while the next is built.
+ * <p>
+ * The elements are held in a tree of 32-element arrays, and a change copies only the arrays on the path to the
+ * changed slot, so replacing or appending an element costs a few small array copies whatever the size of the list.
+ * Keys are mapped to slots by a map shared by a list and the lists created from it. Replacing an element keeps its
+ * slot, so the shared map only grows when an element is appended, and a list ignores the slots from its size
+ * onwards. Should two lists created from the same list append different keys, the second takes its own copy of
+ * the map.
+ *
+ * @param <E> The type of the elements.
+ */
+public final class SlotList<E> extends AbstractList<E> {
+
+    // Number of bits of a slot number taken by each level of the tree
+    private static final int BITS = 5;
+
+    // Number of children of each array of the tree
+    private static final int WIDTH = 1 << BITS;
+
+    // Mask selecting the child within an array of the tree
+    private static final int MASK = WIDTH - 1;
+
+    // The keys of the slots, shared by this list and the lists created from it
+    private final Slots slots;
+
+    // The root array of the tree
+    private final Object[] root;
+
+    // The number of bits the slot number is shifted by to select the child of the root
+    private final int shift;
+
+    // The number of elements
+    private final int size;
+
+    /**
+     * Constructs a SlotList.
+     *
+     * @param slots The keys of the slots.
+     * @param root  The root array of the tree.
+     * @param shift The number of bits the slot number is shifted by to select the child of the root.
+     * @param size  The number of elements.
+     */
+    private SlotList(Slots slots, Object[] root, int shift, int size) {
+        this.slots = slots;
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    /**
+     * Creates an empty list.
+     *
+     * @param <E> The type of the elements.
+     * @return The new list.
+     */
+    public static <E> SlotList<E> empty() {
+        return new SlotList<>(new Slots(), new Object[WIDTH], 0, 0);
+    }
+
+    /**
+     * Gets the number of elements.
+     *
+     * @return The number of elements.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the element in a slot.
+     *
+     * @param index The slot.
+     * @return The element.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public E get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (E) node[index & MASK];
+    }
+
+    /**
+     * Gets the first element appended with a key.
+     *
+     * @param key The key.
+     * @return The element, or null if the list has no element with that key.
+     */
+    public E getByKey(String key) {
+        Integer slot = slots.slotOf.get(key);
+        return slot == null || slot >= size ? null : get(slot);
+    }
+
+    /**
+     * Creates a list with an element replacing the first element with the same key or, if there is none, appended.
+     *
+     * @param key     The key of the element.
+     * @param element The element.
+     * @return The new list.
+     */
+    public SlotList<E> put(String key, E element) {
+        Integer slot = slots.slotOf.get(key);
+        if (slot == null || slot >= size) {
+            return append(key, element);
+        }
+        return new SlotList<>(slots, set(root, shift, slot, element), shift, size);
+    }
+
+    /**
+     * Creates a list with an element appended, even if the list already has an element with the same key.
+     * Looking up the key still finds the first of them.
+     *
+     * @param key     The key of the element.
+     * @param element The element.
+     * @return The new list.
+     */
+    public SlotList<E> append(String key, E element) {
+        Slots appendedSlots = slots.append(key, size);
+        if (size == WIDTH << shift) {
+            // The tree is full, so it gets a new root with the old one as its first child
+            Object[] newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            return new SlotList<>(appendedSlots, set(newRoot, shift + BITS, size, element), shift + BITS, size + 1);
+        }
+        return new SlotList<>(appendedSlots, set(root, shift, size, element), shift, size + 1);
+    }
+
+    /**
+     * Copies the arrays on the path to a slot, creating any missing one, and stores an element in the slot.
+     *
+     * @param node    The array to copy, or null if it does not exist yet.
+     * @param level   The number of bits the slot number is shifted by to select the child of the array.
+     * @param index   The slot.
+     * @param element The element.
+     * @return The copied array.
+     */
+    private static Object[] set(Object[] node, int level, int index, Object element) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        if (level == 0) {
+            copy[index & MASK] = element;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = set((Object[]) copy[child], level - BITS, index, element);
+        }
+        return copy;
+    }
+
+    /**
+     * The Slots class maps the keys of a list to their slots. It is shared by a list and every list created from
+     * it, and only ever has keys appended, so every list sharing it sees the slots below its own size unchanged.
+     */
+    private static final class Slots {
+
+        // The first slot of each key, read without locking
+        private final ConcurrentHashMap<String, Integer> slotOf;
+
+        // The key of each slot, guarded by the lock of this object
+        private String[] keys;
+
+        // The number of slots, guarded by the lock of this object
+        private int size;
+
+        /**
+         * Constructs an empty Slots object.
+         */
+        Slots() {
+            this(new ConcurrentHashMap<>(), new String[WIDTH], 0);
+        }
+
+        /**
+         * Constructs a Slots object.
+         *
+         * @param slotOf The first slot of each key.
+         * @param keys   The key of each slot.
+         * @param size   The number of slots.
+         */
+        private Slots(ConcurrentHashMap<String, Integer> slotOf, String[] keys, int size) {
+            this.slotOf = slotOf;
+            this.keys = keys;
+            this.size = size;
+        }
+
+        /**
+         * Appends a key for a list to a slot, after the slots of the list.
+         *
+         * @param key      The key.
+         * @param listSize The size of the list the key is appended to.
+         * @return This object or, if another list has already appended a different key after the same slots,
+         * a copy of the slots of the list with the key appended.
+         */
+        synchronized Slots append(String key, int listSize) {
+            if (listSize < size) {
+                // Another list took the slot: a retry of the same append can share it, anything else cannot
+                return key.equals(keys[listSize]) ? this : copy(listSize).append(key, listSize);
+            }
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size] = key;
+            slotOf.putIfAbsent(key, size);
+            size++;
+            return this;
+        }
+
+        /**
+         * Copies the first slots.
+         *
+         * @param count The number of slots to copy.
+         * @return The new Slots object.
+         */
+        private Slots copy(int count) {
+            ConcurrentHashMap<String, Integer> copiedSlotOf = new ConcurrentHashMap<>();
+            for (int i = 0; i < count; i++) {
+                copiedSlotOf.putIfAbsent(keys[i], i);
+            }
+            return new Slots(copiedSlotOf, Arrays.copyOf(keys, Math.max(WIDTH, count * 2)), count);
+        }
+    }
+}
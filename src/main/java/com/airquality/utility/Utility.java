@@ -9,9 +9,13 @@ import com.airquality.locations.City;
 import com.airquality.constants.Constants;
 import com.airquality.locations.Country;
 import com.airquality.record.Record;
+import com.airquality.record.RecordSnapshot;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
 
-import java.nio.charset.StandardCharsets;
-import java.util.Base64;
+import java.util.regex.Pattern;
 
 /**
  * Utility class providing various helper methods for air quality application.
@@ -20,6 +24,14 @@ public class Utility {
 
     private static Utility instance;
 
+    // Compiled once, as String.matches compiles the regular expression again on every call
+    private static final Pattern INTEGER_PATTERN = Pattern.compile(Constants.INTEGER_REGEX);
+    private static final Pattern LOCATION_NAME_PATTERN = Pattern.compile(Constants.LOCATION_NAME_REGEX);
+    private static final Pattern REFUSED_QUALITY_PATTERN = Pattern.compile("q=0(\\.0*)?");
+
+    // Set apart the entity tags of this run from those of earlier runs, whose versions counted from the same numbers
+    private static final String ENTITY_TAG_PREFIX = Long.toHexString(System.currentTimeMillis());
+
     private Utility() {
     }
 
@@ -40,20 +52,136 @@ public class Utility {
     }
 
     /**
-     * Check if a country exists in the records.
+     * Get the entity tag of responses built from a snapshot of the whole dataset. It changes whenever any
+     * data changes.
      *
-     * @param country The name of the country.
-     * @return True if the country exists, false otherwise.
+     * @param snapshot The snapshot the response is built from.
+     * @return The strong EntityTag of the snapshot's version.
      */
-    public boolean doesCountryExist(String country) {
-        for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-            if (Record.getInstance().getCountryRecords().get(i).getName().equalsIgnoreCase(country)) {
+    public EntityTag getEntityTag(RecordSnapshot snapshot) {
+        return new EntityTag(ENTITY_TAG_PREFIX + "-d" + Long.toHexString(snapshot.getVersion()));
+    }
+
+    /**
+     * Get the entity tag of a response built from a snapshot of the whole dataset and sent either as it is or
+     * compressed with gzip. The two encodings are different representations, so their strong tags differ.
+     *
+     * @param snapshot The snapshot the response is built from.
+     * @param gzipped  Whether the response is sent compressed with gzip.
+     * @return The strong EntityTag of the snapshot's version and the encoding.
+     */
+    public EntityTag getEntityTag(RecordSnapshot snapshot, boolean gzipped) {
+        return gzipped ? new EntityTag(getEntityTag(snapshot).getValue() + "-gzip") : getEntityTag(snapshot);
+    }
+
+    /**
+     * Get the entity tag of a response built from a snapshot of the whole dataset and sent in the columnar binary
+     * encoding, which is a different representation from the JSON one.
+     *
+     * @param snapshot The snapshot the response is built from.
+     * @return The strong EntityTag of the snapshot's version and the columnar encoding.
+     */
+    public EntityTag getColumnarEntityTag(RecordSnapshot snapshot) {
+        return new EntityTag(getEntityTag(snapshot).getValue() + "-columnar");
+    }
+
+    /**
+     * Get the entity tag of a response read from the secondary indexes of the record rather than from the snapshot
+     * itself. The indexes are updated just after each snapshot is published, so the tag is only given while they
+     * hold exactly the data of the snapshot. Callers check again once the response is built and send it untagged
+     * if the indexes have moved on meanwhile.
+     *
+     * @param snapshot  The snapshot the response is tagged with.
+     * @param entityTag The entity tag of the snapshot.
+     * @return The entity tag, or null if the indexes may not match the snapshot.
+     */
+    public EntityTag getIndexedEntityTag(RecordSnapshot snapshot, EntityTag entityTag) {
+        return Record.getInstance().isIndexed(snapshot) ? entityTag : null;
+    }
+
+    /**
+     * Evaluates the conditional headers of a request for a response read from the secondary indexes of the record.
+     * The request is only matched against the entity tag of the snapshot while the indexes hold exactly its data.
+     *
+     * @param request      The request.
+     * @param snapshot     The snapshot the response is tagged with.
+     * @param entityTag    The entity tag of the snapshot.
+     * @param cacheControl The cache control of the response.
+     * @return The 304 Not Modified response, or null if the response must be built.
+     */
+    public Response evaluateIndexedPreconditions(Request request, RecordSnapshot snapshot, EntityTag entityTag,
+                                                 CacheControl cacheControl) {
+        EntityTag indexedEntityTag = getIndexedEntityTag(snapshot, entityTag);
+        Response.ResponseBuilder notModified = indexedEntityTag == null ? null : request.evaluatePreconditions(indexedEntityTag);
+        return notModified == null ? null : notModified.cacheControl(cacheControl).build();
+    }
+
+    /**
+     * Check if a client asks for a media type by naming it in its Accept header. Wildcards are not taken as asking
+     * for it, so that JSON stays the default.
+     *
+     * @param accept    The Accept header of the request, or null if it has none.
+     * @param mediaType The media type.
+     * @return True if the header lists the media type without refusing it, false otherwise.
+     */
+    public boolean acceptsMediaType(String accept, String mediaType) {
+        if (accept == null) {
+            return false;
+        }
+        for (String range : accept.split(",")) {
+            String[] parts = range.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase(mediaType)) {
+                for (int i = 1; i < parts.length; i++) {
+                    if (REFUSED_QUALITY_PATTERN.matcher(parts[i].replace(" ", "")).matches()) {
+                        return false;
+                    }
+                }
                 return true;
             }
         }
         return false;
     }
 
+    /**
+     * Check if a client accepts responses compressed with gzip.
+     *
+     * @param acceptEncoding The Accept-Encoding header of the request, or null if it has none.
+     * @return True if the header lists gzip without refusing it, false otherwise.
+     */
+    public boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length < 2 || !REFUSED_QUALITY_PATTERN.matcher(parts[1].replace(" ", "")).matches();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the entity tag of responses built from the air quality of a single city. It changes only when the
+     * reading of that city does.
+     *
+     * @param city The city the response is built from.
+     * @return The strong EntityTag of the city's version.
+     */
+    public EntityTag getEntityTag(City city) {
+        return new EntityTag(ENTITY_TAG_PREFIX + "-c" + Long.toHexString(city.getVersion()));
+    }
+
+    /**
+     * Check if a country exists in the records.
+     *
+     * @param country The name of the country.
+     * @return True if the country exists, false otherwise.
+     */
+    public boolean doesCountryExist(String country) {
+        return Record.getInstance().getCountry(country) != null;
+    }
+
     /**
      * Validate if a string represents a valid integer or a deleted character.
      *
@@ -62,10 +190,10 @@ public class Utility {
      * @throws InvalidRecordException If the value is not a valid integer or a deleted character.
      */
     public String isInteger(String value) throws InvalidRecordException {
-        if (value.matches(Constants.INTEGER_REGEX) || value.equals(Constants.DELETED_CHARACTER)) {
+        if (INTEGER_PATTERN.matcher(value).matches() || value.equals(Constants.DELETED_CHARACTER)) {
             return value;
         } else {
-            throw new InvalidRecordException("Database record entry invalid", 403);
+            throw new InvalidRecordException("Database record entry invalid", 400);
         }
     }
 
@@ -77,8 +205,8 @@ public class Utility {
      * @throws InvalidRecordException If the value is not a valid location name.
      */
     public String isString(String value) throws InvalidRecordException {
-        if (value.matches(Constants.LOCATION_NAME_REGEX)) {
-            throw new InvalidRecordException("Database record entry invalid", 403);
+        if (LOCATION_NAME_PATTERN.matcher(value).matches()) {
+            throw new InvalidRecordException("Database record entry invalid", 400);
         } else {
             return value;
         }
@@ -92,10 +220,10 @@ public class Utility {
      * @throws InvalidAqiValueException If the AQI value is not a valid integer or a deleted character.
      */
     public boolean isAqiValueValid(String aqiValue) throws InvalidAqiValueException {
-        if ((aqiValue.matches(Constants.INTEGER_REGEX) && Integer.parseInt(aqiValue) >= 0) || aqiValue.equals(Constants.DELETED_CHARACTER)) {
+        if ((INTEGER_PATTERN.matcher(aqiValue).matches() && Integer.parseInt(aqiValue) >= 0) || aqiValue.equals(Constants.DELETED_CHARACTER)) {
             return true;
         } else {
-            throw new InvalidAqiValueException("AQI value Invalid", 403);
+            throw new InvalidAqiValueException("AQI value Invalid", 400);
         }
     }
 
@@ -112,7 +240,7 @@ public class Utility {
                 || aqiCategory.equalsIgnoreCase(Constants.AQI_CATEGORY_VERY_UNHEALTHY) || aqiCategory.equalsIgnoreCase(Constants.AQI_CATEGORY_HAZARDOUS)) {
             return true;
         } else {
-            throw new InvalidAqiCategoryException("AQI Category must be \"Good\", \"Moderate\", " + "\"Unhealthy for Sensitive Groups\", \"Unhealthy\", \"Very Unhealthy\", or \"N/A\"", 403);
+            throw new InvalidAqiCategoryException("AQI Category must be \"Good\", \"Moderate\", " + "\"Unhealthy for Sensitive Groups\", \"Unhealthy\", \"Very Unhealthy\", or \"N/A\"", 400);
         }
     }
 
@@ -145,28 +273,29 @@ public class Utility {
      * @param country The name of the country.
      * @param city    The name of the city.
      * @return The city ID if found, otherwise throw InvalidCityException or InvalidCountryException.
-     * @throws InvalidCityException    If the city is not found in the database.
+     * @throws InvalidCityException    If the city is not found in the database or has been deleted.
      * @throws InvalidCountryException If the country is not found in the database.
      */
     public int getCityId(String country, String city) throws InvalidCityException, InvalidCountryException {
-        boolean targetCountryFound = false;
-        for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-            Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-            if (targetCountry.getName().equalsIgnoreCase(country)) {
-                targetCountryFound = true;
-                for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                    City targetCity = targetCountry.getCities().get(y);
-                    if (targetCity.getName().equals(city)) {
-                        return targetCity.getCityId();
-                    }
-                }
-            }
-        }
-        if (!targetCountryFound) {
-            throw new InvalidCountryException("Country not found in the database", 403);
-        } else {
-            throw new InvalidCityException("City not found in the database", 403);
+        return getCity(country, city).getCityId();
+    }
+
+    /**
+     * Get the City object for a given country and city name. A deleted city that has not been compacted away yet
+     * is not found, so only creating the city again brings it back.
+     *
+     * @param country The name of the country.
+     * @param city    The name of the city.
+     * @return The City object if found, otherwise throw InvalidCityException or InvalidCountryException.
+     * @throws InvalidCityException    If the city is not found in the database or has been deleted.
+     * @throws InvalidCountryException If the country is not found in the database.
+     */
+    public City getCity(String country, String city) throws InvalidCityException, InvalidCountryException {
+        City targetCity = getCountryByName(country).getCity(city);
+        if (targetCity == null || targetCity.isDeleted()) {
+            throw InvalidCityException.CITY_NOT_FOUND;
         }
+        return targetCity;
     }
 
     /**
@@ -177,51 +306,23 @@ public class Utility {
      * @throws InvalidCountryException If the country is not found in the database.
      */
     public Country getCountryByName(String country) throws InvalidCountryException {
-        for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-            Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-            if (targetCountry.getName().equalsIgnoreCase(country)) {
-                return targetCountry;
-            }
+        Country targetCountry = Record.getInstance().getCountry(country);
+        if (targetCountry == null) {
+            throw InvalidCountryException.COUNTRY_NOT_FOUND;
         }
-        throw new InvalidCountryException("Country not found in the database", 403);
+        return targetCountry;
     }
 
     /**
-     * Check if a city exists in the records.
+     * Check if a city exists in the records. A city whose air quality has been deleted does not count.
      *
      * @param country The name of the country.
      * @param city    The name of the city.
      * @return True if the city exists, false otherwise.
      */
     public boolean doesCityExist(String country, String city) {
-        for (int i = 0; i < Record.getInstance().getCountryRecords().size(); i++) {
-            Country targetCountry = Record.getInstance().getCountryRecords().get(i);
-            if (targetCountry.getName().equalsIgnoreCase(country)) {
-                for (int y = 0; y < targetCountry.getCities().size(); y++) {
-                    City targetCity = targetCountry.getCities().get(y);
-                    if (targetCity.getName().equals(city)) {
-                        return true;
-                    }
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Check if the provided authorization header is valid.
-     *
-     * @param authorizationHeader The authorization header to check.
-     * @return True if the authorization is valid, false otherwise.
-     */
-    public boolean isAuthorised(String authorizationHeader) {
-        if (authorizationHeader == null || !authorizationHeader.startsWith(Constants.PASSWORD_PREFIX)) {
-            return false;
-        } else {
-            String base64Credentials = authorizationHeader.substring(Constants.PASSWORD_PREFIX.length()).trim();
-            String credentials = new String(Base64.getDecoder().decode(base64Credentials), StandardCharsets.UTF_8);
-            String[] values = credentials.split(":", 2);
-            return Constants.USERNAME.equals(values[0]) && Constants.PASSWORD.equals(values[1]);
-        }
+        Country targetCountry = Record.getInstance().getCountry(country);
+        City targetCity = targetCountry == null ? null : targetCountry.getCity(city);
+        return targetCity != null && !targetCity.isDeleted();
     }
 }
@@ -0,0 +1,162 @@
+/**
+ * The CredentialVerifierTest file tests the checking and caching of Basic authorization headers.
+ */
+package com.airquality.auth;
+
+import com.airquality.constants.Constants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The CredentialVerifierTest class checks which headers CredentialVerifier accepts and when it asks the user store
+ * rather than its cache, using a store that counts the credentials it is asked to verify.
+ */
+class CredentialVerifierTest {
+
+    /**
+     * A user store that counts the calls to verify.
+     */
+    private static final class CountingUserStore implements UserStore {
+
+        // The store the calls are passed on to
+        private final InMemoryUserStore users = new InMemoryUserStore();
+
+        // The number of calls to verify
+        private final AtomicInteger verifications = new AtomicInteger();
+
+        /**
+         * Constructs a CountingUserStore holding a single user.
+         *
+         * @param username The username.
+         * @param password The password.
+         */
+        CountingUserStore(String username, String password) {
+            users.addUser(username, password);
+        }
+
+        /**
+         * Verifies the credentials against the users of the store, counting the call.
+         *
+         * @param username The username.
+         * @param password The password.
+         * @return True if the credentials are valid, false otherwise.
+         */
+        @Override
+        public boolean verify(String username, String password) {
+            verifications.incrementAndGet();
+            return users.verify(username, password);
+        }
+    }
+
+    // The store plugged into the verifier for each test
+    private CountingUserStore store;
+
+    /**
+     * Plugs a new counting store into the verifier.
+     */
+    @BeforeEach
+    void plugInStore() {
+        store = new CountingUserStore("alice", "secret");
+        CredentialVerifier.getInstance().setUserStore(store);
+    }
+
+    /**
+     * Puts the default store back, so that other tests see the built-in user.
+     */
+    @AfterEach
+    void restoreDefaultStore() {
+        InMemoryUserStore defaultStore = new InMemoryUserStore();
+        defaultStore.addUser(Constants.USERNAME, Constants.PASSWORD);
+        CredentialVerifier.getInstance().setUserStore(defaultStore);
+    }
+
+    /**
+     * Builds a Basic authorization header.
+     *
+     * @param credentials The username and password, separated by a colon.
+     * @return The header.
+     */
+    private static String basic(String credentials) {
+        return Constants.PASSWORD_PREFIX + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks that a valid header is verified by the store once and then accepted from the cache.
+     */
+    @Test
+    void cachesAcceptedHeaders() {
+        CredentialVerifier verifier = CredentialVerifier.getInstance();
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+        assertEquals(1, store.verifications.get());
+    }
+
+    /**
+     * Checks that rejected headers are not cached, so a wrong password is asked about every time.
+     */
+    @Test
+    void doesNotCacheRejectedHeaders() {
+        CredentialVerifier verifier = CredentialVerifier.getInstance();
+        assertFalse(verifier.isAuthorised(basic("alice:wrong")));
+        assertFalse(verifier.isAuthorised(basic("alice:wrong")));
+        assertEquals(2, store.verifications.get());
+    }
+
+    /**
+     * Checks that replacing the store forgets the headers accepted by the old one.
+     */
+    @Test
+    void replacingStoreClearsCache() {
+        CredentialVerifier verifier = CredentialVerifier.getInstance();
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+
+        CountingUserStore newStore = new CountingUserStore("bob", "hunter2");
+        verifier.setUserStore(newStore);
+        assertFalse(verifier.isAuthorised(basic("alice:secret")));
+        assertTrue(verifier.isAuthorised(basic("bob:hunter2")));
+        assertEquals(2, newStore.verifications.get());
+    }
+
+    /**
+     * Checks that a full cache is cleared rather than growing, after which headers are verified again.
+     */
+    @Test
+    void clearsCacheWhenFull() {
+        CredentialVerifier verifier = CredentialVerifier.getInstance();
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+        // The same credentials with different whitespace make different headers
+        for (int i = 1; i < Constants.AUTH_CACHE_MAX_ENTRIES; i++) {
+            assertTrue(verifier.isAuthorised(basic("alice:secret") + " ".repeat(i)));
+        }
+        assertEquals(Constants.AUTH_CACHE_MAX_ENTRIES, store.verifications.get());
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+        assertEquals(Constants.AUTH_CACHE_MAX_ENTRIES, store.verifications.get());
+
+        // The next new header finds the cache full and clears it
+        assertTrue(verifier.isAuthorised(basic("alice:secret") + " ".repeat(Constants.AUTH_CACHE_MAX_ENTRIES)));
+        assertTrue(verifier.isAuthorised(basic("alice:secret")));
+        assertEquals(Constants.AUTH_CACHE_MAX_ENTRIES + 2, store.verifications.get());
+    }
+
+    /**
+     * Checks that missing and malformed headers are rejected without asking the store.
+     */
+    @Test
+    void rejectsMalformedHeaders() {
+        CredentialVerifier verifier = CredentialVerifier.getInstance();
+        assertFalse(verifier.isAuthorised(null));
+        assertFalse(verifier.isAuthorised(""));
+        assertFalse(verifier.isAuthorised("Bearer abc"));
+        assertFalse(verifier.isAuthorised(Constants.PASSWORD_PREFIX + "not base64!"));
+        assertFalse(verifier.isAuthorised(basic("alice")));
+        assertEquals(0, store.verifications.get());
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ * The CsvReadWriteTest file tests that writes survive the journal, checkpoints and compaction.
+ */
+package com.airquality.csv;
+
+import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.Pollutant;
+import com.airquality.constants.Constants;
+import com.airquality.exceptions.InvalidCityException;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+import com.airquality.record.Record;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The CsvReadWriteTest class writes to a small dataset and reloads it, checking that the reloaded record matches
+ * what was written, whether the writes were replayed from the journal or read from a checkpoint.
+ */
+class CsvReadWriteTest {
+
+    // The CSV file of the test, with three cities that have no ids yet
+    private String fileName;
+
+    /**
+     * Writes the dataset to a new CSV file and loads it.
+     *
+     * @param directory The temporary directory of the test.
+     */
+    @BeforeEach
+    void loadDataset(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("dataset.csv");
+        Files.write(file, List.of(Constants.CSV_HEADER,
+                "France,Paris,50,Moderate,1,Good,30,Good,4,Good,60,Moderate,",
+                "France,Lyon,40,Good,1,Good,20,Good,3,Good,40,Good,",
+                "Italy,Rome,70,Moderate,2,Good,35,Good,6,Good,70,Moderate,"), StandardCharsets.UTF_8);
+        fileName = file.toString();
+        CsvReadWrite.readDataFromCSV(fileName);
+    }
+
+    /**
+     * Closes the journal, so that the temporary directory can be removed.
+     */
+    @AfterEach
+    void closeJournal() {
+        CsvReadWrite.closeJournal();
+    }
+
+    /**
+     * Creates a reading with the given overall AQI value.
+     *
+     * @param aqiValue The overall AQI value.
+     * @return The new AirQuality object.
+     */
+    private static AirQuality reading(int aqiValue) {
+        return new AirQuality(String.valueOf(aqiValue), "Moderate", "1", "Good", "30", "Good", "4", "Good", "60", "Moderate");
+    }
+
+    /**
+     * Gets a city from the Record singleton instance.
+     *
+     * @param country The country name.
+     * @param city    The city name.
+     * @return The City object, or null if the record does not hold it.
+     */
+    private static City city(String country, String city) {
+        Country targetCountry = Record.getInstance().getCountry(country);
+        return targetCountry == null ? null : targetCountry.getCity(city);
+    }
+
+    /**
+     * Reads the journal of the dataset.
+     *
+     * @return The lines of the journal, or an empty list if there is none.
+     */
+    private List<String> journalLines() throws Exception {
+        Path journal = Path.of(fileName + Constants.JOURNAL_FILE_SUFFIX);
+        return Files.exists(journal) ? Files.readAllLines(journal, StandardCharsets.UTF_8) : List.of();
+    }
+
+    /**
+     * Checks that writes recorded only in the journal are replayed when the dataset is loaded again.
+     */
+    @Test
+    void replaysJournalOnReload() throws Exception {
+        int parisId = city("France", "Paris").getCityId();
+        CsvReadWrite.appendDataToCSV(fileName, "France", "Nice", reading(25));
+        int niceId = city("France", "Nice").getCityId();
+        CsvReadWrite.updateCsvLine(fileName, "France", "Paris", reading(99));
+        CsvReadWrite.deleteCsvLine(fileName, "France", "Lyon");
+        assertEquals(3, journalLines().size());
+
+        CsvReadWrite.readDataFromCSV(fileName);
+
+        assertEquals(parisId, city("France", "Paris").getCityId());
+        assertEquals(99, city("France", "Paris").getAqiValue(Pollutant.AQI));
+        assertEquals(niceId, city("France", "Nice").getCityId());
+        assertEquals(25, city("France", "Nice").getAqiValue(Pollutant.AQI));
+        assertTrue(city("France", "Lyon").isDeleted());
+        assertFalse(city("Italy", "Rome").isDeleted());
+    }
+
+    /**
+     * Checks that a checkpoint folds the journal into the CSV file, keeping the city ids, and empties the journal.
+     */
+    @Test
+    void checkpointRoundTrip() throws Exception {
+        CsvReadWrite.appendDataToCSV(fileName, "Spain", "Madrid", reading(80));
+        int madridId = city("Spain", "Madrid").getCityId();
+        int romeId = city("Italy", "Rome").getCityId();
+        CsvReadWrite.updateCsvLine(fileName, "Italy", "Rome", reading(11));
+        CsvReadWrite.deleteCsvLine(fileName, "France", "Lyon");
+
+        CsvReadWrite.checkpoint(fileName);
+        assertTrue(journalLines().isEmpty());
+
+        CsvReadWrite.readDataFromCSV(fileName);
+
+        assertEquals(madridId, city("Spain", "Madrid").getCityId());
+        assertEquals(80, city("Spain", "Madrid").getAqiValue(Pollutant.AQI));
+        assertEquals(romeId, city("Italy", "Rome").getCityId());
+        assertEquals(11, city("Italy", "Rome").getAqiValue(Pollutant.AQI));
+        assertTrue(city("France", "Lyon").isDeleted());
+    }
+
+    /**
+     * Checks that compaction removes deleted cities from the record and the CSV file, without changing the ids of
+     * the remaining cities or handing the removed ids to new cities.
+     */
+    @Test
+    void compactionRoundTrip() throws Exception {
+        int lyonId = city("France", "Lyon").getCityId();
+        int romeId = city("Italy", "Rome").getCityId();
+        CsvReadWrite.deleteCsvLine(fileName, "France", "Lyon");
+        assertEquals(1, Record.getInstance().getTombstoneCount());
+
+        CsvReadWrite.compact(fileName);
+        assertNull(city("France", "Lyon"));
+        assertEquals(0, Record.getInstance().getTombstoneCount());
+        assertTrue(journalLines().isEmpty());
+
+        CsvReadWrite.readDataFromCSV(fileName);
+        assertNull(city("France", "Lyon"));
+        assertEquals(romeId, city("Italy", "Rome").getCityId());
+
+        CsvReadWrite.appendDataToCSV(fileName, "France", "Lyon", reading(33));
+        assertNotEquals(lyonId, city("France", "Lyon").getCityId());
+    }
+
+    /**
+     * Checks that a deleted city cannot be updated, but can be created again with its old id, and that both
+     * outcomes survive a reload.
+     */
+    @Test
+    void deleteThenPut() throws Exception {
+        int lyonId = city("France", "Lyon").getCityId();
+        CsvReadWrite.deleteCsvLine(fileName, "France", "Lyon");
+
+        assertThrows(InvalidCityException.class, () -> CsvReadWrite.updateCsvLine(fileName, "France", "Lyon", reading(12)));
+        assertEquals(1, journalLines().size());
+        CsvReadWrite.readDataFromCSV(fileName);
+        assertTrue(city("France", "Lyon").isDeleted());
+
+        CsvReadWrite.appendDataToCSV(fileName, "France", "Lyon", reading(12));
+        CsvReadWrite.readDataFromCSV(fileName);
+        assertFalse(city("France", "Lyon").isDeleted());
+        assertEquals(lyonId, city("France", "Lyon").getCityId());
+        assertEquals(12, city("France", "Lyon").getAqiValue(Pollutant.AQI));
+    }
+
+    /**
+     * Checks that deleting a city twice fails the second time and records a single deletion.
+     */
+    @Test
+    void doubleDelete() throws Exception {
+        CsvReadWrite.deleteCsvLine(fileName, "France", "Lyon");
+
+        assertThrows(InvalidCityException.class, () -> CsvReadWrite.deleteCsvLine(fileName, "France", "Lyon"));
+        assertEquals(1, journalLines().size());
+        assertEquals(1, Record.getInstance().getTombstoneCount());
+
+        CsvReadWrite.readDataFromCSV(fileName);
+        assertTrue(city("France", "Lyon").isDeleted());
+        assertEquals(1, Record.getInstance().getTombstoneCount());
+    }
+}
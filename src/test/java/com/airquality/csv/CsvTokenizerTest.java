@@ -0,0 +1,158 @@
+/**
+ * The CsvTokenizerTest file tests the streaming reader for the rows of the air quality dataset.
+ */
+package com.airquality.csv;
+
+import com.airquality.airquality.AirQualityColumns;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.exceptions.InvalidRecordException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The CsvTokenizerTest class checks how CsvTokenizer splits and decodes rows, including the rows it must reject.
+ */
+class CsvTokenizerTest {
+
+    // The reading fields of a valid row, between the city name and the city id
+    private static final String READING = "50,Moderate,1,Good,30,Good,4,Good,60,Moderate";
+
+    /**
+     * Creates a tokenizer reading the given text.
+     *
+     * @param text The rows, as they would appear in the CSV file.
+     * @return The new CsvTokenizer.
+     */
+    private static CsvTokenizer tokenize(String text) {
+        return new CsvTokenizer(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Checks that rows with a city id, a trailing delimiter or neither are all read, with the id only where given.
+     */
+    @Test
+    void readsRowsWithAndWithoutCityId() throws IOException, InvalidRecordException {
+        CsvTokenizer tokenizer = tokenize("France,Paris," + READING + ",7\n"
+                + "France,Lyon," + READING + ",\n"
+                + "France,Nice," + READING + "\n");
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals("France", tokenizer.getCountry());
+        assertEquals("Paris", tokenizer.getCity());
+        assertEquals(7, tokenizer.getCityId());
+        assertEquals(50, tokenizer.getValues()[Pollutant.AQI.ordinal()]);
+        assertEquals(AqiCategory.MODERATE, tokenizer.getCategories()[Pollutant.AQI.ordinal()]);
+        assertEquals(60, tokenizer.getValues()[Pollutant.PM.ordinal()]);
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals("Lyon", tokenizer.getCity());
+        assertEquals(0, tokenizer.getCityId());
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals("Nice", tokenizer.getCity());
+        assertEquals(0, tokenizer.getCityId());
+        assertEquals(AqiCategory.MODERATE, tokenizer.getCategories()[Pollutant.PM.ordinal()]);
+
+        assertFalse(tokenizer.nextRow());
+    }
+
+    /**
+     * Checks that CRLF line endings are stripped, blank lines are skipped and the last line needs no line break.
+     */
+    @Test
+    void handlesLineEndingsAndBlankLines() throws IOException, InvalidRecordException {
+        CsvTokenizer tokenizer = tokenize("France,Paris," + READING + ",1\r\n\r\n\nFrance,Lyon," + READING + ",2");
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals(1, tokenizer.getCityId());
+        assertTrue(tokenizer.nextRow());
+        assertEquals("Lyon", tokenizer.getCity());
+        assertEquals(2, tokenizer.getCityId());
+        assertEquals(4, tokenizer.getLineNumber());
+        assertFalse(tokenizer.nextRow());
+    }
+
+    /**
+     * Checks that the header line can be skipped and that an empty stream has no rows.
+     */
+    @Test
+    void skipsHeaderAndReadsEmptyStream() throws IOException, InvalidRecordException {
+        CsvTokenizer tokenizer = tokenize("Country,City\nFrance,Paris," + READING + "\n");
+        assertTrue(tokenizer.skipLine());
+        assertTrue(tokenizer.nextRow());
+        assertEquals("Paris", tokenizer.getCity());
+
+        CsvTokenizer empty = tokenize("");
+        assertFalse(empty.skipLine());
+        assertFalse(empty.nextRow());
+    }
+
+    /**
+     * Checks that "N/A" fields are read as missing values and categories, and that categories ignore case.
+     */
+    @Test
+    void readsDeletedFieldsAndCategoriesInAnyCase() throws IOException, InvalidRecordException {
+        CsvTokenizer tokenizer = tokenize("France,Paris,N/A,N/A,1,good,n/a,n/a,4,UNHEALTHY FOR SENSITIVE GROUPS,60,Moderate,3\n");
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals(AirQualityColumns.NOT_AVAILABLE, tokenizer.getValues()[Pollutant.AQI.ordinal()]);
+        assertNull(tokenizer.getCategories()[Pollutant.AQI.ordinal()]);
+        assertEquals(AqiCategory.GOOD, tokenizer.getCategories()[Pollutant.CO.ordinal()]);
+        assertEquals(AirQualityColumns.NOT_AVAILABLE, tokenizer.getValues()[Pollutant.OZONE.ordinal()]);
+        assertEquals(AqiCategory.UNHEALTHY_FOR_SENSITIVE_GROUPS, tokenizer.getCategories()[Pollutant.NO2.ordinal()]);
+    }
+
+    /**
+     * Checks that names are decoded as UTF-8 and that a line longer than the read buffer is read whole.
+     */
+    @Test
+    void readsUnicodeNamesAndLongLines() throws IOException, InvalidRecordException {
+        String longName = "x".repeat(200_000);
+        CsvTokenizer tokenizer = tokenize("Côte d'Ivoire,Abidjan," + READING + "\nFrance," + longName + "," + READING + ",9\n");
+
+        assertTrue(tokenizer.nextRow());
+        assertEquals("Côte d'Ivoire", tokenizer.getCountry());
+        assertTrue(tokenizer.nextRow());
+        assertEquals(longName, tokenizer.getCity());
+        assertEquals(9, tokenizer.getCityId());
+    }
+
+    /**
+     * Checks that invalid rows are rejected with their line number, and that reading continues after them.
+     */
+    @Test
+    void rejectsInvalidRowsAndContinues() throws IOException, InvalidRecordException {
+        String[] invalidRows = {
+                "France,Paris,50,Moderate",
+                "France,Paris," + READING + ",1,2",
+                "France,Paris,-5,Moderate,1,Good,30,Good,4,Good,60,Moderate",
+                "France,Paris,5a,Moderate,1,Good,30,Good,4,Good,60,Moderate",
+                "France,Paris,,Moderate,1,Good,30,Good,4,Good,60,Moderate",
+                "France,Paris,1234567890,Moderate,1,Good,30,Good,4,Good,60,Moderate",
+                "France,Paris,50,Fine,1,Good,30,Good,4,Good,60,Moderate",
+                "France,Paris," + READING + ",0",
+                "France,Paris," + READING + ",id",
+        };
+        StringBuilder text = new StringBuilder();
+        for (String row : invalidRows) {
+            text.append(row).append('\n');
+        }
+        text.append("France,Lyon,").append(READING).append(",5\n");
+        CsvTokenizer tokenizer = tokenize(text.toString());
+
+        for (int line = 1; line <= invalidRows.length; line++) {
+            InvalidRecordException e = assertThrows(InvalidRecordException.class, tokenizer::nextRow, invalidRows[line - 1]);
+            assertTrue(e.getMessage().contains("line " + line), e.getMessage());
+        }
+        assertTrue(tokenizer.nextRow());
+        assertEquals("Lyon", tokenizer.getCity());
+        assertEquals(5, tokenizer.getCityId());
+        assertFalse(tokenizer.nextRow());
+    }
+}
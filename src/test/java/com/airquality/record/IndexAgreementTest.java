@@ -0,0 +1,281 @@
+/**
+ * The IndexAgreementTest file tests the secondary indexes of the Record against a scan of every city.
+ */
+package com.airquality.record;
+
+import com.airquality.airquality.AirQuality;
+import com.airquality.airquality.AqiCategory;
+import com.airquality.airquality.Pollutant;
+import com.airquality.csv.CsvReadWrite;
+import com.airquality.locations.City;
+import com.airquality.locations.Country;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The IndexAgreementTest class loads the bundled dataset, makes random writes through CsvReadWrite and checks that
+ * PollutantIndex, CategoryIndex and StatisticsIndex answer exactly as a brute-force scan of the live cities does,
+ * before and after compaction.
+ */
+class IndexAgreementTest {
+
+    // Cached copy of Pollutant.values()
+    private static final Pollutant[] POLLUTANTS = Pollutant.values();
+
+    // Cached copy of AqiCategory.values()
+    private static final AqiCategory[] CATEGORIES = AqiCategory.values();
+
+    // The copy of the bundled dataset the test writes to
+    private String fileName;
+
+    // Fixed seed, so that a failure can be reproduced
+    private final Random random = new Random(205);
+
+    /**
+     * Copies the bundled dataset to a new CSV file and loads it.
+     *
+     * @param directory The temporary directory of the test.
+     */
+    @BeforeEach
+    void loadDataset(@TempDir Path directory) throws Exception {
+        Path file = directory.resolve("dataset.csv");
+        Files.copy(Paths.get("data", "global-air-pollution-dataset.csv"), file);
+        fileName = file.toString();
+        CsvReadWrite.readDataFromCSV(fileName);
+    }
+
+    /**
+     * Closes the journal, so that the temporary directory can be removed.
+     */
+    @AfterEach
+    void closeJournal() {
+        CsvReadWrite.closeJournal();
+    }
+
+    /**
+     * Checks the indexes after loading, after random writes and after compaction.
+     */
+    @Test
+    void indexesAgreeWithScan() throws Exception {
+        checkIndexes();
+        makeRandomWrites(500);
+        checkIndexes();
+        CsvReadWrite.compact(fileName);
+        checkIndexes();
+        makeRandomWrites(200);
+        checkIndexes();
+    }
+
+    /**
+     * Creates, updates and deletes random cities through CsvReadWrite.
+     *
+     * @param count The number of writes.
+     */
+    private void makeRandomWrites(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            List<Country> countries = Record.getInstance().getCountryRecords();
+            Country country = countries.get(random.nextInt(countries.size()));
+            List<City> cities = country.getCities();
+            City city = cities.get(random.nextInt(cities.size()));
+            int choice = random.nextInt(10);
+            if (choice == 0) {
+                CsvReadWrite.appendDataToCSV(fileName, country.getName(), "Testville " + i, randomReading());
+            } else if (city.isDeleted()) {
+                CsvReadWrite.appendDataToCSV(fileName, country.getName(), city.getName(), randomReading());
+            } else if (choice < 3) {
+                CsvReadWrite.deleteCsvLine(fileName, country.getName(), city.getName());
+            } else {
+                CsvReadWrite.updateCsvLine(fileName, country.getName(), city.getName(), randomReading());
+            }
+        }
+    }
+
+    /**
+     * Creates a reading with random values and categories.
+     *
+     * @return The new AirQuality object.
+     */
+    private AirQuality randomReading() {
+        String[] fields = new String[POLLUTANTS.length * 2];
+        for (int i = 0; i < POLLUTANTS.length; i++) {
+            fields[i * 2] = String.valueOf(random.nextInt(500));
+            fields[i * 2 + 1] = CATEGORIES[random.nextInt(CATEGORIES.length)].getLabel();
+        }
+        return new AirQuality(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5], fields[6], fields[7], fields[8], fields[9]);
+    }
+
+    /**
+     * Gets the live cities of the record by scanning every country.
+     *
+     * @return The live City objects, sorted by city id.
+     */
+    private static List<City> scanLiveCities() {
+        List<City> live = new ArrayList<>();
+        for (Country country : Record.getInstance().getCountryRecords()) {
+            for (City city : country.getCities()) {
+                if (!city.isDeleted()) {
+                    live.add(city);
+                }
+            }
+        }
+        live.sort(Comparator.comparingInt(City::getCityId));
+        return live;
+    }
+
+    /**
+     * Checks every index against a scan of the live cities.
+     */
+    private void checkIndexes() {
+        Record record = Record.getInstance();
+        assertTrue(record.isIndexed(record.getSnapshot()));
+        List<City> live = scanLiveCities();
+        checkPollutantIndexes(live);
+        checkCategoryIndex(live);
+        checkStatisticsIndex();
+    }
+
+    /**
+     * Checks single and combined range queries against the scan.
+     *
+     * @param live The live cities, sorted by city id.
+     */
+    private void checkPollutantIndexes(List<City> live) {
+        Record record = Record.getInstance();
+        for (int i = 0; i < 20; i++) {
+            List<PollutantRange> ranges = new ArrayList<>();
+            for (Pollutant pollutant : POLLUTANTS) {
+                if (ranges.isEmpty() || random.nextBoolean()) {
+                    int start = random.nextInt(200);
+                    ranges.add(new PollutantRange(pollutant, start, start + random.nextInt(200)));
+                }
+            }
+            PollutantRange first = ranges.get(0);
+            Comparator<City> byValue = Comparator.comparingInt((City city) -> city.getAqiValue(first.getPollutant()))
+                    .thenComparingInt(City::getCityId);
+
+            List<City> expected = new ArrayList<>();
+            for (City city : live) {
+                if (first.contains(city)) {
+                    expected.add(city);
+                }
+            }
+            expected.sort(byValue);
+            assertEquals(expected, record.getPollutantIndex(first.getPollutant()).findInRange(first.getStartingValue(), first.getEndingValue()));
+            assertEquals(expected.size(), record.getPollutantIndex(first.getPollutant()).countInRange(first.getStartingValue(), first.getEndingValue(), Integer.MAX_VALUE));
+
+            expected.removeIf(city -> !ranges.stream().allMatch(range -> range.contains(city)));
+            List<City> found = new ArrayList<>(record.findCitiesInRanges(ranges));
+            found.sort(byValue);
+            assertEquals(expected, found);
+        }
+    }
+
+    /**
+     * Checks category queries, category counts and the listing of live cities against the scan.
+     *
+     * @param live The live cities, sorted by city id.
+     */
+    private void checkCategoryIndex(List<City> live) {
+        CategoryIndex index = Record.getInstance().getCategoryIndex();
+        assertEquals(live, index.listCities(0, Integer.MAX_VALUE));
+        for (Pollutant pollutant : POLLUTANTS) {
+            for (AqiCategory category : CATEGORIES) {
+                long expected = live.stream().filter(city -> city.getAqiCategory(pollutant) == category).count();
+                assertEquals(expected, index.count(pollutant, category), pollutant + " " + category);
+            }
+        }
+        for (int i = 0; i < 20; i++) {
+            Map<Pollutant, Set<AqiCategory>> wanted = new EnumMap<>(Pollutant.class);
+            for (Pollutant pollutant : POLLUTANTS) {
+                if (random.nextInt(3) == 0) {
+                    Set<AqiCategory> categories = EnumSet.noneOf(AqiCategory.class);
+                    categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                    categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+                    wanted.put(pollutant, categories);
+                }
+            }
+            if (wanted.isEmpty()) {
+                wanted.put(Pollutant.AQI, EnumSet.of(AqiCategory.GOOD));
+            }
+            List<City> expected = new ArrayList<>();
+            for (City city : live) {
+                if (wanted.entrySet().stream().allMatch(entry -> entry.getValue().contains(city.getAqiCategory(entry.getKey())))) {
+                    expected.add(city);
+                }
+            }
+            assertEquals(expected, index.findCities(wanted));
+
+            // Paging through the matches gives the same cities
+            List<City> paged = new ArrayList<>();
+            int afterCityId = 0;
+            List<City> page;
+            while (!(page = index.findCities(wanted, afterCityId, 97)).isEmpty()) {
+                paged.addAll(page);
+                afterCityId = page.get(page.size() - 1).getCityId();
+            }
+            assertEquals(expected, paged);
+        }
+    }
+
+    /**
+     * Checks the statistics of every country and the global statistics against the scan.
+     */
+    private void checkStatisticsIndex() {
+        StatisticsIndex index = Record.getInstance().getStatisticsIndex();
+        List<City> all = new ArrayList<>();
+        for (Country country : Record.getInstance().getCountryRecords()) {
+            List<City> cities = new ArrayList<>();
+            for (City city : country.getCities()) {
+                if (!city.isDeleted()) {
+                    cities.add(city);
+                }
+            }
+            checkStatistics(cities, index.getCountryStatistics(country));
+            all.addAll(cities);
+        }
+        checkStatistics(all, index.getGlobalStatistics());
+    }
+
+    /**
+     * Checks the statistics of a set of cities against their readings.
+     *
+     * @param cities     The live cities.
+     * @param statistics The statistics reported for them.
+     */
+    private static void checkStatistics(List<City> cities, LocationStatistics statistics) {
+        assertEquals(cities.size(), statistics.getCities());
+        AqiStatistics[] byPollutant = {statistics.getAqi(), statistics.getCo(), statistics.getOzone(), statistics.getNo2(), statistics.getPm()};
+        for (Pollutant pollutant : POLLUTANTS) {
+            AqiStatistics reported = byPollutant[pollutant.ordinal()];
+            int[] values = cities.stream().mapToInt(city -> city.getAqiValue(pollutant)).sorted().toArray();
+            assertEquals(values.length, reported.getCount(), statistics.getName() + " " + pollutant);
+            if (values.length == 0) {
+                assertNull(reported.getMin());
+                continue;
+            }
+            assertEquals(values[0], reported.getMin());
+            assertEquals(values[values.length - 1], reported.getMax());
+            double mean = 0;
+            for (int value : values) {
+                mean += value;
+            }
+            assertEquals(mean / values.length, reported.getMean(), 0.01);
+        }
+    }
+}
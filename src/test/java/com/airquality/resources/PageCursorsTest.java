@@ -0,0 +1,94 @@
+/**
+ * The PageCursorsTest file tests the page limits and cursors of the list endpoints.
+ */
+package com.airquality.resources;
+
+import com.airquality.constants.Constants;
+import com.airquality.exceptions.InvalidRecordException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The PageCursorsTest class checks that cursors round-trip, and that malformed cursors and cursors of another list
+ * are rejected as bad requests rather than failing the request or starting the page somewhere else.
+ */
+class PageCursorsTest {
+
+    /**
+     * Encodes raw text as a cursor would be encoded, without the list check.
+     *
+     * @param text The text.
+     * @return The URL-safe Base64 encoding of the text.
+     */
+    private static String encodeRaw(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Checks that the key of a cursor is decoded as it was encoded, and that no cursor means the first page.
+     */
+    @Test
+    void roundTripsKeys() throws InvalidRecordException {
+        assertEquals("France", PageCursors.decode("countries", PageCursors.encode("countries", "France")));
+        assertEquals("a:b/c?", PageCursors.decode("countries", PageCursors.encode("countries", "a:b/c?")));
+        assertEquals(-42L, PageCursors.decodeLong("range", PageCursors.encode("range", "-42"), 0));
+        assertEquals(17, PageCursors.decodeCityId("cities", PageCursors.encode("cities", "17")));
+
+        assertNull(PageCursors.decode("countries", null));
+        assertEquals(Long.MIN_VALUE, PageCursors.decodeLong("range", null, Long.MIN_VALUE));
+        assertEquals(0, PageCursors.decodeCityId("cities", null));
+    }
+
+    /**
+     * Checks that a cursor of another list is rejected, including a list whose name starts with the same text.
+     */
+    @Test
+    void rejectsForeignCursors() {
+        String citiesCursor = PageCursors.encode("cities", "17");
+        assertThrows(InvalidRecordException.class, () -> PageCursors.decode("countries", citiesCursor));
+        assertThrows(InvalidRecordException.class, () -> PageCursors.decodeCityId("city", citiesCursor));
+        assertThrows(InvalidRecordException.class, () -> PageCursors.decode("cities", encodeRaw("cities")));
+        assertThrows(InvalidRecordException.class, () -> PageCursors.decode("cities", encodeRaw("")));
+    }
+
+    /**
+     * Checks that cursors which are not URL-safe Base64 are rejected.
+     */
+    @Test
+    void rejectsMalformedCursors() {
+        String[] malformed = {"", "!!!", "a", "Y2l0aWVzOjE3=x", "Y2l0aWVz+jE3", "Y2l0aWVz/jE3", "%20", " "};
+        for (String cursor : malformed) {
+            assertThrows(InvalidRecordException.class, () -> PageCursors.decodeCityId("cities", cursor), cursor);
+        }
+    }
+
+    /**
+     * Checks that numeric cursors holding something other than a valid key are rejected.
+     */
+    @Test
+    void rejectsInvalidNumericKeys() {
+        String[] keys = {"", "abc", "1.5", "0x10", "99999999999999999999", " 17"};
+        for (String key : keys) {
+            assertThrows(InvalidRecordException.class, () -> PageCursors.decodeLong("cities", PageCursors.encode("cities", key), 0), key);
+        }
+        assertThrows(InvalidRecordException.class, () -> PageCursors.decodeCityId("cities", PageCursors.encode("cities", "-1")));
+        assertThrows(InvalidRecordException.class, () -> PageCursors.decodeCityId("cities", PageCursors.encode("cities", String.valueOf(Integer.MAX_VALUE + 1L))));
+    }
+
+    /**
+     * Checks that page limits outside 1 to PAGE_MAX_LIMIT are rejected.
+     */
+    @Test
+    void checksLimits() throws InvalidRecordException {
+        assertEquals(Constants.PAGE_DEFAULT_LIMIT, PageCursors.checkLimit(null));
+        assertEquals(1, PageCursors.checkLimit(1));
+        assertEquals(Constants.PAGE_MAX_LIMIT, PageCursors.checkLimit(Constants.PAGE_MAX_LIMIT));
+        assertThrows(InvalidRecordException.class, () -> PageCursors.checkLimit(0));
+        assertThrows(InvalidRecordException.class, () -> PageCursors.checkLimit(Constants.PAGE_MAX_LIMIT + 1));
+        assertEquals(Integer.MAX_VALUE, PageCursors.pageLimit(null, null));
+    }
+}
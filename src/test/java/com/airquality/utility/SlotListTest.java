@@ -0,0 +1,83 @@
+/**
+ * The SlotListTest file tests the persistent list holding the countries of a snapshot and the cities of a country.
+ */
+package com.airquality.utility;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The SlotListTest class checks that changing a SlotList leaves the lists it was created from unchanged, including
+ * when two lists created from the same list append different keys.
+ */
+class SlotListTest {
+
+    /**
+     * Checks that appends and replacements across several levels of the tree leave every older version intact.
+     */
+    @Test
+    void keepsOlderVersions() {
+        List<SlotList<Integer>> versions = new ArrayList<>();
+        SlotList<Integer> list = SlotList.empty();
+        for (int i = 0; i < 5000; i++) {
+            versions.add(list);
+            list = list.put("k" + i, i);
+        }
+        SlotList<Integer> replaced = list.put("k1234", -1);
+
+        assertEquals(5000, list.size());
+        assertEquals(1234, list.getByKey("k1234"));
+        assertEquals(-1, replaced.getByKey("k1234"));
+        assertEquals(-1, replaced.get(1234));
+        assertEquals(5000, replaced.size());
+        for (int size = 0; size < versions.size(); size += 97) {
+            SlotList<Integer> version = versions.get(size);
+            assertEquals(size, version.size());
+            for (int i = 0; i < size; i++) {
+                assertEquals(i, version.get(i));
+            }
+            assertNull(version.getByKey("k" + size));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> replaced.get(5000));
+        assertThrows(UnsupportedOperationException.class, () -> replaced.set(0, 1));
+    }
+
+    /**
+     * Checks that lists appending different keys after the same list each find only their own key.
+     */
+    @Test
+    void separatesBranches() {
+        SlotList<String> base = SlotList.<String>empty().put("a", "A").put("b", "B");
+        SlotList<String> left = base.put("c", "left");
+        SlotList<String> right = base.put("d", "right");
+        SlotList<String> retried = base.put("c", "retried");
+
+        assertEquals("left", left.getByKey("c"));
+        assertNull(left.getByKey("d"));
+        assertEquals("right", right.getByKey("d"));
+        assertNull(right.getByKey("c"));
+        assertEquals("retried", retried.getByKey("c"));
+        assertNull(base.getByKey("c"));
+
+        SlotList<String> rightLater = right.put("c", "C").put("b", "B2");
+        assertEquals(List.of("A", "B2", "right", "C"), rightLater);
+        assertEquals(List.of("A", "B", "left"), left);
+    }
+
+    /**
+     * Checks that a key appended twice is found at its first slot, and that put replaces that slot.
+     */
+    @Test
+    void findsFirstOfDuplicateKeys() {
+        SlotList<String> list = SlotList.<String>empty().append("a", "first").append("a", "second");
+        assertEquals(2, list.size());
+        assertEquals("first", list.getByKey("a"));
+
+        SlotList<String> replaced = list.put("a", "third");
+        assertEquals(List.of("third", "second"), replaced);
+    }
+}